@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and rewriting each type of application config file, from a handful of properties up to a very
+ * large file. Run with {@code -prof gc} to also report the allocation rate:
+ * <pre>
+ * ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="ConfigSourceBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigSourceBenchmark {
+
+    private static final String CLIENT_ID_KEY = "okta.oauth2.client-id";
+
+    @Param({"env", "properties", "yaml"})
+    public String format;
+
+    /**
+     * The number of properties in the file: small, medium, and very large.
+     */
+    @Param({"10", "1000", "50000"})
+    public int properties;
+
+    private File tempDir;
+
+    private MutablePropertySource propertySource;
+
+    private Map<String, String> oktaProperties;
+
+    @Setup
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("okta-config-benchmark-").toFile();
+        propertySource = propertySource(format, tempDir);
+
+        Map<String, String> existingProperties = new LinkedHashMap<>();
+        for (int ii = 0; ii < properties; ii++) {
+            existingProperties.put("app.group" + (ii / 100) + ".property" + ii, "value-" + ii);
+        }
+        oktaProperties = new LinkedHashMap<>();
+        oktaProperties.put("okta.oauth2.issuer", "https://dev-123456.okta.com/oauth2/default");
+        oktaProperties.put(CLIENT_ID_KEY, "0oa1abcdefghijklmno5");
+        oktaProperties.put("okta.oauth2.client-secret", "a-client-secret-that-is-forty-characters");
+        existingProperties.putAll(oktaProperties);
+
+        propertySource.addProperties(existingProperties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = tempDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        tempDir.delete();
+    }
+
+    @Benchmark
+    public String getProperty() {
+        return propertySource.getProperty(CLIENT_ID_KEY);
+    }
+
+    @Benchmark
+    public Map<String, String> getProperties() {
+        return propertySource.getProperties();
+    }
+
+    /**
+     * Rewrites the file with the same Okta properties, so the file size stays the same across invocations.
+     */
+    @Benchmark
+    public MutablePropertySource addProperties() throws IOException {
+        propertySource.addProperties(oktaProperties);
+        return propertySource;
+    }
+
+    private static MutablePropertySource propertySource(String format, File dir) {
+        switch (format) {
+            case "env":
+                return new EnvFilePropertiesSource(new File(dir, ".okta.env"));
+            case "properties":
+                return new PropertiesFilePropertiesSource(new File(dir, "application.properties"));
+            case "yaml":
+                return new YamlPropertiesSource(new File(dir, "application.yml"));
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+}
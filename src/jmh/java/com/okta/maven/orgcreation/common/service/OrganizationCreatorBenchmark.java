@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.okta.maven.orgcreation.common.FactorVerificationException;
+import com.okta.maven.orgcreation.common.RestException;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
+import com.okta.maven.orgcreation.common.model.ErrorResponse;
+import com.okta.maven.orgcreation.common.model.OrganizationRequest;
+import com.okta.maven.orgcreation.common.model.OrganizationResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * Measures the latency and throughput of the calls made to create and verify a new Okta Organization, against an
+ * in-process WireMock stub of {@code start.okta.dev} (configured like the tests' {@code WireMockSupport}). Each call
+ * includes the connection setup, and (de)serializing the request and response; the error benchmarks parse an
+ * {@code ErrorResponse}. The {@code serialize*} and {@code deserialize*} benchmarks measure the JSON mapping alone.
+ * <pre>
+ * ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="OrganizationCreatorBenchmark"
+ * </pre>
+ * Add {@code -t <threads>} to measure concurrent callers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrganizationCreatorBenchmark {
+
+    private static final String ORG_RESPONSE = "{\n" +
+            "    \"id\": \"00o1abcdefghijklmno5\",\n" +
+            "    \"email\": \"joe.coder@example.com\",\n" +
+            "    \"apiToken\": \"an-api-token-here\",\n" +
+            "    \"orgUrl\": \"https://okta.example.com\",\n" +
+            "    \"factorId\": \"emf1abcdefghijklmno5\",\n" +
+            "    \"updatePasswordUrl\": \"https://okta.example.com/reset_password/drpabcdefghijklmno5\"\n" +
+            "}";
+
+    private static final String ERROR_RESPONSE = "{\n" +
+            "    \"error\": \"Bad Request\",\n" +
+            "    \"message\": \"Validation failed\",\n" +
+            "    \"causes\": [\"email: must be a well-formed email address\", \"organization: must not be blank\"],\n" +
+            "    \"status\": 400\n" +
+            "}";
+
+    private final OrganizationRequest orgRequest = new OrganizationRequest()
+            .setFirstName("Joe")
+            .setLastName("Coder")
+            .setEmail("joe.coder@example.com")
+            .setOrganization("Test co");
+
+    // configured the same as DefaultOktaOrganizationCreator
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private WireMockServer wireMockServer;
+
+    private String apiBaseUrl;
+
+    private String errorApiBaseUrl;
+
+    private DefaultOktaOrganizationCreator organizationCreator;
+
+    @Setup
+    public void startMockServer() {
+        // the request journal would grow for every call made during the benchmark
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort().disableRequestJournal());
+        wireMockServer.stubFor(post(urlEqualTo("/create"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(ORG_RESPONSE)));
+        wireMockServer.stubFor(post(urlPathMatching("/verify/.+"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(ORG_RESPONSE)));
+        wireMockServer.stubFor(post(urlPathMatching("/error/.+"))
+                .willReturn(aResponse()
+                        .withStatus(400)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(ERROR_RESPONSE)));
+        wireMockServer.start();
+
+        apiBaseUrl = "http://localhost:" + wireMockServer.port();
+        errorApiBaseUrl = apiBaseUrl + "/error";
+    }
+
+    /**
+     * A new creator (and metrics) per iteration, so the recorded metrics do not grow for the whole run.
+     */
+    @Setup(Level.Iteration)
+    public void createOrganizationCreator() {
+        organizationCreator = new DefaultOktaOrganizationCreator(new MetricsRegistry());
+    }
+
+    @TearDown
+    public void stopMockServer() {
+        wireMockServer.stop();
+    }
+
+    @Benchmark
+    public OrganizationResponse createNewOrg() throws RestException, IOException {
+        return organizationCreator.createNewOrg(apiBaseUrl, orgRequest);
+    }
+
+    @Benchmark
+    public OrganizationResponse verifyNewOrg() throws FactorVerificationException, IOException {
+        return organizationCreator.verifyNewOrg(apiBaseUrl, "00o1abcdefghijklmno5", "123456");
+    }
+
+    @Benchmark
+    public Object createNewOrgError() throws IOException {
+        try {
+            return organizationCreator.createNewOrg(errorApiBaseUrl, orgRequest);
+        } catch (RestException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object verifyNewOrgInvalidCode() throws IOException {
+        try {
+            return organizationCreator.verifyNewOrg(errorApiBaseUrl, "00o1abcdefghijklmno5", "000000");
+        } catch (FactorVerificationException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public String serializeRequest() throws IOException {
+        return objectMapper.writeValueAsString(orgRequest);
+    }
+
+    @Benchmark
+    public OrganizationResponse deserializeResponse() throws IOException {
+        return objectMapper.reader().forType(OrganizationResponse.class).readValue(ORG_RESPONSE);
+    }
+
+    @Benchmark
+    public ErrorResponse deserializeErrorResponse() throws IOException {
+        return objectMapper.reader().forType(ErrorResponse.class).readValue(ERROR_RESPONSE);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.service;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.release.ReleaseExecutionException;
+import org.apache.maven.shared.release.config.ModelloReleaseDescriptor;
+import org.apache.maven.shared.release.config.ReleaseDescriptor;
+import org.apache.maven.shared.release.transform.ModelETL;
+import org.apache.maven.shared.release.transform.ModelETLRequest;
+import org.apache.maven.shared.release.transform.jdom.JDomModelETLFactory;
+import org.apache.maven.shared.release.util.ReleaseUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Measures adding a dependency to POMs of increasing size. Each POM starts from one of the test POMs in
+ * {@code src/test/resources/test-poms} (with or without a {@code <dependencies>} block) and is grown with a managed
+ * dependency, and a comment, per {@code dependencies}, and {@code profiles} deeply nested profiles.
+ * <p>
+ * {@link #addDependencyToPom()} is the full update, {@link #extractAndLoad()} is only the JDOM ETL round trip used by
+ * it, the difference is the cost of locating the JDOM element (via reflection) and adding the dependency. Run with
+ * {@code -prof gc} to also report allocations:
+ * <pre>
+ * ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="DependencyAddServiceBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DependencyAddServiceBenchmark {
+
+    @Param({"spaces", "tabs", "no-deps", "ugly"})
+    public String seed;
+
+    @Param({"0", "200", "2000"})
+    public int dependencies;
+
+    @Param({"0", "50"})
+    public int profiles;
+
+    private final JDomModelETLFactory modelETLFactory = new JDomModelETLFactory();
+
+    private DependencyAddService dependencyAddService;
+
+    private byte[] pomContent;
+
+    private File pomFile;
+
+    private MavenProject project;
+
+    @Setup
+    public void setup() throws IOException {
+        dependencyAddService = new DefaultDependencyAddService(modelETLFactory);
+        pomContent = generatePom(readSeed(seed), dependencies, profiles).getBytes(UTF_8);
+        pomFile = Files.createTempFile("okta-pom-benchmark-", ".xml").toFile();
+        project = new MavenProject();
+        project.setFile(pomFile);
+    }
+
+    /**
+     * Each invocation updates the same, original, POM.
+     */
+    @Setup(Level.Invocation)
+    public void resetPom() throws IOException {
+        Files.write(pomFile.toPath(), pomContent, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pomFile.delete();
+    }
+
+    @Benchmark
+    public MavenProject addDependencyToPom() throws PomUpdateException {
+        dependencyAddService.addDependencyToPom("com.okta.spring", "okta-spring-boot-starter", "1.2.3", project);
+        return project;
+    }
+
+    @Benchmark
+    public ModelETL extractAndLoad() throws ReleaseExecutionException {
+        ModelETLRequest request = new ModelETLRequest();
+        request.setLineSeparator(ReleaseUtil.LS);
+        request.setProject(project);
+        request.setReleaseDescriptor(new BenchmarkReleaseDescriptor());
+
+        ModelETL etl = modelETLFactory.newInstance(request);
+        etl.extract(pomFile);
+        etl.load(pomFile);
+        return etl;
+    }
+
+    private static String readSeed(String name) throws IOException {
+        try (InputStream in = DependencyAddServiceBenchmark.class.getResourceAsStream("/test-poms/" + name + ".xml")) {
+            if (in == null) {
+                throw new IOException("Test POM not found: " + name);
+            }
+            byte[] buffer = new byte[8192];
+            StringBuilder content = new StringBuilder();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.append(new String(buffer, 0, read, UTF_8));
+            }
+            return content.toString();
+        }
+    }
+
+    /**
+     * Adds the generated content before the closing {@code </project>}, so the top level {@code <dependencies>} block
+     * of the seed POM is left as is.
+     */
+    static String generatePom(String seed, int dependencies, int profiles) {
+        StringBuilder generated = new StringBuilder();
+
+        if (dependencies > 0) {
+            generated.append("    <dependencyManagement>\n");
+            generated.append("        <dependencies>\n");
+            for (int ii = 0; ii < dependencies; ii++) {
+                generated.append("            <!-- managed dependency ").append(ii).append(" -->\n");
+                dependency(generated, "            ", "com.example.group" + (ii / 50), "artifact-" + ii, "1." + ii);
+            }
+            generated.append("        </dependencies>\n");
+            generated.append("    </dependencyManagement>\n");
+        }
+
+        if (profiles > 0) {
+            generated.append("    <profiles>\n");
+            for (int ii = 0; ii < profiles; ii++) {
+                generated.append("        <!-- profile ").append(ii).append(" -->\n");
+                generated.append("        <profile>\n");
+                generated.append("            <id>profile-").append(ii).append("</id>\n");
+                generated.append("            <build>\n");
+                generated.append("                <plugins>\n");
+                generated.append("                    <plugin>\n");
+                generated.append("                        <groupId>com.example</groupId>\n");
+                generated.append("                        <artifactId>plugin-").append(ii).append("</artifactId>\n");
+                generated.append("                        <dependencies>\n");
+                dependency(generated, "                            ", "com.example", "plugin-dependency-" + ii, "2." + ii);
+                generated.append("                        </dependencies>\n");
+                generated.append("                    </plugin>\n");
+                generated.append("                </plugins>\n");
+                generated.append("            </build>\n");
+                generated.append("            <dependencies>\n");
+                dependency(generated, "                ", "com.example", "profile-dependency-" + ii, "3." + ii);
+                generated.append("            </dependencies>\n");
+                generated.append("        </profile>\n");
+            }
+            generated.append("    </profiles>\n");
+        }
+
+        int end = seed.lastIndexOf("</project>");
+        return seed.substring(0, end) + generated + seed.substring(end);
+    }
+
+    private static void dependency(StringBuilder pom, String indent, String groupId, String artifactId, String version) {
+        pom.append(indent).append("<dependency>\n");
+        pom.append(indent).append("    <groupId>").append(groupId).append("</groupId>\n");
+        pom.append(indent).append("    <artifactId>").append(artifactId).append("</artifactId>\n");
+        pom.append(indent).append("    <version>").append(version).append("</version>\n");
+        pom.append(indent).append("</dependency>\n");
+    }
+
+    private static final class BenchmarkReleaseDescriptor extends ModelloReleaseDescriptor implements ReleaseDescriptor {
+        private static final long serialVersionUID = 1L;
+    }
+}
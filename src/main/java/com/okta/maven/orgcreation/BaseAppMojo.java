@@ -15,21 +15,34 @@
  */
 package com.okta.maven.orgcreation;
 
+import com.okta.commons.lang.ApplicationInfo;
 import com.okta.maven.orgcreation.common.config.MutablePropertySource;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
+import com.okta.maven.orgcreation.common.metrics.TraceRecorder;
+import com.okta.maven.orgcreation.common.progressbar.ProgressBar;
+import com.okta.maven.orgcreation.common.progressbar.ProgressBarFactory;
 import com.okta.maven.orgcreation.common.service.ClientConfigurationException;
 import com.okta.maven.orgcreation.common.service.ConfigFileLocatorService;
+import com.okta.maven.orgcreation.common.service.Deadline;
+import com.okta.maven.orgcreation.common.service.DeadlineExceededException;
 import com.okta.maven.orgcreation.common.service.DefaultSdkConfigurationService;
 import com.okta.maven.orgcreation.common.service.DefaultSetupService;
 import com.okta.maven.orgcreation.common.service.SdkConfigurationService;
 import com.okta.maven.orgcreation.common.service.SetupService;
+import com.okta.maven.orgcreation.service.OktaSessionCache;
 import com.okta.sdk.resource.application.OpenIdConnectApplicationType;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 abstract class BaseAppMojo extends AbstractMojo {
 
@@ -48,18 +61,84 @@ abstract class BaseAppMojo extends AbstractMojo {
 
     protected SdkConfigurationService sdkConfigurationService = new DefaultSdkConfigurationService();
 
+    /**
+     * Shares the Okta configuration, client, and lookups between executions in the same Maven session.
+     */
+    @Component
+    protected OktaSessionCache sessionCache;
+
     /**
      * The id of the authorization server.
      */
     @Parameter(property = "authorizationServerId", defaultValue = "default")
     protected String authorizationServerId = "default";
 
+    /**
+     * Write progress events as JSON (one per line) to {@code eventsFile}, e.g. to track provisioning latency in a CI
+     * pipeline.
+     */
+    @Parameter(property = "okta.events", defaultValue = "false")
+    protected boolean writeEvents = false;
+
+    /**
+     * The file progress events are appended to, when {@code writeEvents} is enabled.
+     */
+    @Parameter(property = "okta.eventsFile", defaultValue = "${project.build.directory}/okta-events.jsonl")
+    protected File eventsFile;
+
+    /**
+     * Write a JSON summary of the time spent in each remote call and file write to {@code metricsFile}.
+     */
+    @Parameter(property = "okta.metrics", defaultValue = "false")
+    protected boolean writeMetrics = false;
+
+    /**
+     * The file the metrics summary is written to, when {@code writeMetrics} is enabled.
+     */
+    @Parameter(property = "okta.metricsFile", defaultValue = "${project.build.directory}/okta-metrics.json")
+    protected File metricsFile;
+
+    /**
+     * Write a timeline of each phase and remote call to {@code traceFile}, in the Chrome trace-event format (open it
+     * with <a href="https://ui.perfetto.dev">Perfetto</a> or {@code chrome://tracing}).
+     */
+    @Parameter(property = "okta.trace", defaultValue = "false")
+    protected boolean writeTrace = false;
+
+    /**
+     * The file the trace is written to, when {@code writeTrace} is enabled.
+     */
+    @Parameter(property = "okta.traceFile", defaultValue = "${project.build.directory}/okta-trace.json")
+    protected File traceFile;
+
+    /**
+     * The maximum time, in seconds, for all the calls to Okta made by this goal, each call is given the time remaining
+     * as its timeout. Set to {@code 0} to disable.
+     */
+    @Parameter(property = "okta.timeout", defaultValue = "300")
+    protected int timeout = 300;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    protected MojoExecution mojoExecution;
+
+    protected final MetricsRegistry metrics = new MetricsRegistry();
+
+    /**
+     * The time budget of this execution, it is canceled when the build is interrupted (e.g. Ctrl-C).
+     */
+    protected Deadline deadline = Deadline.none();
+
     protected PrintStream out = System.out;
 
     void createWebApplication(String springPropertyKey, String groupClaimName, String redirectUri) throws MojoExecutionException {
-        try {
-            MutablePropertySource propertySource = getPropertySource();
-            String baseUrl = sdkConfigurationService.loadUnvalidatedConfiguration().getBaseUrl();
+        deadline = Deadline.after(Duration.ofSeconds(timeout));
+        try (TraceRecorder.Span ignored = metrics.span("createWebApplication").arg("app", oidcAppName);
+             Deadline.Registration shutdownHook = deadline.cancelOnShutdown()) {
+            MutablePropertySource propertySource;
+            try (TraceRecorder.Span span = metrics.span("locatePropertySource")) {
+                propertySource = getPropertySource();
+            }
+            String baseUrl = metrics.record("config.load", () -> sessionCache.getClientConfiguration(sdkConfigurationService)).getBaseUrl();
 
             SetupService setupService = createSetupService(springPropertyKey);
             setupService.createOidcApplication(propertySource, oidcAppName, baseUrl, groupClaimName, null, authorizationServerId, interactiveMode, OpenIdConnectApplicationType.WEB, redirectUri);
@@ -68,6 +147,8 @@ abstract class BaseAppMojo extends AbstractMojo {
 
         } catch (IOException | ClientConfigurationException e) {
             throw new MojoExecutionException("Failed to setup environment", e);
+        } catch (DeadlineExceededException e) {
+            throw new MojoExecutionException("Failed to setup environment: " + e.getMessage(), e);
         }
     }
 
@@ -76,6 +157,35 @@ abstract class BaseAppMojo extends AbstractMojo {
     }
 
     SetupService createSetupService(String springPropertyKey) {
-        return new DefaultSetupService(springPropertyKey);
+        ProgressBarFactory progressBarFactory = writeEvents
+                ? ProgressBarFactory.withJsonEvents(eventsFile)
+                : ProgressBar::create;
+        return new DefaultSetupService(springPropertyKey, sessionCache::getClient, sessionCache.getReferenceDataCache(), progressBarFactory, metrics, deadline);
+    }
+
+    /**
+     * Writes the metrics summary and trace, when enabled.
+     */
+    void writeMetrics() {
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("plugin", "okta-maven-plugin");
+        header.put("version", ApplicationInfo.get().get("okta-maven-plugin"));
+        header.put("goal", mojoExecution != null ? mojoExecution.getGoal() : null);
+
+        if (writeMetrics && metricsFile != null) {
+            try {
+                metrics.writeJson(metricsFile, header);
+            } catch (IOException e) {
+                getLog().warn("Failed to write metrics to: " + metricsFile.getAbsolutePath(), e);
+            }
+        }
+        if (writeTrace && traceFile != null) {
+            try {
+                metrics.trace().writeJson(traceFile, header);
+                getLog().info("Trace written to: " + traceFile.getAbsolutePath());
+            } catch (IOException e) {
+                getLog().warn("Failed to write trace to: " + traceFile.getAbsolutePath(), e);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -27,7 +27,7 @@ import org.apache.maven.plugins.annotations.Parameter;
  * <p>
  * To create other types of applications on the command line see the <a href="https://github.com/oktadeveloper/okta-maven-plugin">Okta CLI</a>.
  */
-@Mojo(name = "jhipster", defaultPhase = LifecyclePhase.NONE, threadSafe = false, aggregator = true, requiresProject=false)
+@Mojo(name = "jhipster", defaultPhase = LifecyclePhase.NONE, threadSafe = true, aggregator = true, requiresProject=false)
 public class JHipsterMojo extends BaseAppMojo {
 
     /**
@@ -38,6 +38,10 @@ public class JHipsterMojo extends BaseAppMojo {
 
     @Override
     public void execute() throws MojoExecutionException {
-        createWebApplication("oidc", "groups", redirectUri);
+        try {
+            createWebApplication("oidc", "groups", redirectUri);
+        } finally {
+            writeMetrics();
+        }
     }
 }
\ No newline at end of file
@@ -27,11 +27,12 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.plexus.components.interactivity.Prompter;
 
 import java.io.File;
+import java.time.Duration;
 
 /**
  * Signs up for a free Okta Developer Account.  Prompts for basic user info, accounts will be activated via email.
  */
-@Mojo(name = "register", defaultPhase = LifecyclePhase.NONE, threadSafe = false, aggregator = true, requiresProject=false)
+@Mojo(name = "register", defaultPhase = LifecyclePhase.NONE, threadSafe = true, aggregator = true, requiresProject=false)
 public class RegisterMojo extends AbstractMojo {
 
     /**
@@ -66,6 +67,13 @@ public class RegisterMojo extends AbstractMojo {
     @Parameter(property = "okta.demo", defaultValue = "false")
     protected boolean demo = false;
 
+    /**
+     * The maximum time, in seconds, to register and then to verify the new account, not including the time waiting for
+     * input. Each call to Okta is given the time remaining as its timeout. Set to {@code 0} to disable.
+     */
+    @Parameter(property = "okta.timeout", defaultValue = "300")
+    protected int timeout = 300;
+
     @Parameter(defaultValue = "${settings.interactiveMode}", readonly = true)
     protected boolean interactiveMode;
 
@@ -77,7 +85,7 @@ public class RegisterMojo extends AbstractMojo {
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        DefaultMavenRegistrationService registrationService = new DefaultMavenRegistrationService(prompter, oktaPropsFile, demo, interactiveMode);
+        DefaultMavenRegistrationService registrationService = new DefaultMavenRegistrationService(prompter, oktaPropsFile, demo, interactiveMode, Duration.ofSeconds(timeout));
         OrganizationResponse response = registrationService.register(firstName, lastName, email, company);
         registrationService.verify(response.getId(), null);
     }
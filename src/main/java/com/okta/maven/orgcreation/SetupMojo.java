@@ -33,7 +33,7 @@ import org.apache.maven.plugins.annotations.Mojo;
  * <b>NOTE:</b> TO use the previous version of the plugin with this goal run {@code mvn com.okta:okta-maven-plugin:0.2.0:setup}
  * @deprecated Use okta:register, okta:spring-boot, okta:web-app, and okta:jhipster instead.
  */
-@Mojo(name = "setup", defaultPhase = LifecyclePhase.NONE, threadSafe = false, aggregator = true, requiresProject=false)
+@Mojo(name = "setup", defaultPhase = LifecyclePhase.NONE, threadSafe = true, aggregator = true, requiresProject=false)
 @Deprecated
 public class SetupMojo extends AbstractMojo {
 
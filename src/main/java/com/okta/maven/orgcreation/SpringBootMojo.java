@@ -16,12 +16,13 @@
 package com.okta.maven.orgcreation;
 
 import com.okta.maven.orgcreation.common.config.MutablePropertySource;
+import com.okta.maven.orgcreation.common.metrics.Sample;
+import com.okta.maven.orgcreation.common.metrics.TraceRecorder;
 import com.okta.maven.orgcreation.common.service.ConfigFileLocatorService;
 import com.okta.commons.lang.ApplicationInfo;
 import com.okta.maven.orgcreation.service.DependencyAddService;
 import com.okta.maven.orgcreation.service.LatestVersionService;
 import com.okta.maven.orgcreation.service.PomUpdateException;
-import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -29,9 +30,11 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.apache.maven.repository.legacy.metadata.ArtifactMetadataRetrievalException;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -42,7 +45,7 @@ import java.util.List;
  * <p>
  * To create other types of applications on the command line see the <a href="https://github.com/oktadeveloper/okta-maven-plugin">Okta CLI</a>.
  */
-@Mojo(name = "spring-boot", defaultPhase = LifecyclePhase.NONE, threadSafe = false, aggregator = true, requiresProject=false)
+@Mojo(name = "spring-boot", defaultPhase = LifecyclePhase.NONE, threadSafe = true, aggregator = true, requiresProject=false)
 public class SpringBootMojo extends BaseAppMojo {
 
     private static final String GROUP_ID = "com.okta.spring";
@@ -72,11 +75,11 @@ public class SpringBootMojo extends BaseAppMojo {
     @Component
     protected LatestVersionService latestVersionService;
 
-    @Parameter(defaultValue = "${localRepository}", readonly = true)
-    protected ArtifactRepository localRepository;
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    protected RepositorySystemSession repositorySession;
 
-    @Parameter(defaultValue = "${project.remoteArtifactRepositories}", readonly = true)
-    protected List<ArtifactRepository> remoteArtifactRepositories;
+    @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
+    protected List<RemoteRepository> remoteRepositories;
 
     /**
      * The redirect URI used for the OIDC application.
@@ -86,13 +89,17 @@ public class SpringBootMojo extends BaseAppMojo {
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        createWebApplication(null, groupClaimName, redirectUri);
-
-        // add okta-spring-boot-starter to the pom.xml
-        if (project != null && project.getFile() != null) {
-            updatePomFileWithOktaDependency();
-        } else {
-            getLog().warn("This project has no pom.xml file, see https://github.com/okta/okta-spring-boot for setup instructions.");
+        try {
+            createWebApplication(null, groupClaimName, redirectUri);
+
+            // add okta-spring-boot-starter to the pom.xml
+            if (project != null && project.getFile() != null) {
+                updatePomFileWithOktaDependency();
+            } else {
+                getLog().warn("This project has no pom.xml file, see https://github.com/okta/okta-spring-boot for setup instructions.");
+            }
+        } finally {
+            writeMetrics();
         }
     }
 
@@ -101,19 +108,28 @@ public class SpringBootMojo extends BaseAppMojo {
         return new ConfigFileLocatorService().findApplicationConfig(baseDir, applicationConfigFile);
     }
 
-    private void updatePomFileWithOktaDependency() throws MojoExecutionException, MojoFailureException {
+    private void updatePomFileWithOktaDependency() throws MojoFailureException {
+        try (TraceRecorder.Span ignored = metrics.span("updatePomFileWithOktaDependency")) {
+            addOktaDependency();
+        }
+    }
+
+    private void addOktaDependency() throws MojoFailureException {
         if (!hasOktaDependency() && isSpringBoot()) {
 
-            String version;
-            try {
-                version = latestVersionService.getLatestVersion(GROUP_ID, ARTIFACT_ID, DEFAULT_VERSION, localRepository, remoteArtifactRepositories).toString();
-                getLog().debug("latest version: " + version);
+            String version = sessionCache.getLatestVersion(Arrays.asList(GROUP_ID, ARTIFACT_ID, remoteRepositories),
+                    () -> metrics.record("maven.latestVersion", () ->
+                            latestVersionService.getLatestVersion(GROUP_ID, ARTIFACT_ID, DEFAULT_VERSION, repositorySession, remoteRepositories, metrics))).toString();
+            getLog().debug("latest version: " + version);
 
+            Sample sample = metrics.start("pom.addDependency");
+            try {
                 // add dependency to pom and write
                 dependencyAddService.addDependencyToPom(GROUP_ID, ARTIFACT_ID, version, project);
-            } catch (ArtifactMetadataRetrievalException e) {
-                throw new MojoExecutionException("Failed to lookup latest version of '" + GROUP_ID + ":" + ARTIFACT_ID + "', see https://github.com/okta/okta-spring-boot for instructions.", e);
+                sample.bytes(project.getFile().length());
+                sample.stop();
             } catch (PomUpdateException e) {
+                sample.failed(e);
                 logErrorManualWorkAround(DEFAULT_VERSION);
                 throw new MojoFailureException("Failed to add dependency to Maven pom.xml, see log or more details.", e);
             }
@@ -27,7 +27,7 @@ import org.apache.maven.plugins.annotations.Parameter;
  * <p>
  * To create other types of applications on the command line see the <a href="https://github.com/oktadeveloper/okta-maven-plugin">Okta CLI</a>.
  */
-@Mojo(name = "web-app", defaultPhase = LifecyclePhase.NONE, threadSafe = false, aggregator = true, requiresProject=false)
+@Mojo(name = "web-app", defaultPhase = LifecyclePhase.NONE, threadSafe = true, aggregator = true, requiresProject=false)
 public class WebAppMojo extends BaseAppMojo {
 
     /**
@@ -38,6 +38,10 @@ public class WebAppMojo extends BaseAppMojo {
 
     @Override
     public void execute() throws MojoExecutionException {
-        createWebApplication(null, null, redirectUri);
+        try {
+            createWebApplication(null, null, redirectUri);
+        } finally {
+            writeMetrics();
+        }
     }
 }
\ No newline at end of file
@@ -55,17 +55,20 @@ public class EnvFilePropertiesSource implements MutablePropertySource {
     @Override
     public void addProperties(Map<String, String> properties) throws IOException {
 
-        Map<String, String> allProperties = new LinkedHashMap<>(getProperties()); // start with existing properties
-        properties.forEach((key, value) -> {
-            String upperKey = dottedCamelToUpperUnderscore(key);
-            allProperties.put(upperKey, value);
-        });
-
-        try(Writer writer = new OutputStreamWriter(new FileOutputStream(envFile), UTF_8)) {
-            for(Map.Entry<String, String> entry : allProperties.entrySet()) {
-                writer.write("export "+ entry.getKey() + "=\"" + entry.getValue() + "\"\n");
+        LockedFiles.withLock(envFile, () -> {
+            Map<String, String> allProperties = new LinkedHashMap<>(getProperties()); // start with existing properties
+            properties.forEach((key, value) -> {
+                String upperKey = dottedCamelToUpperUnderscore(key);
+                allProperties.put(upperKey, value);
+            });
+
+            try(Writer writer = new OutputStreamWriter(new FileOutputStream(envFile), UTF_8)) {
+                for(Map.Entry<String, String> entry : allProperties.entrySet()) {
+                    writer.write("export "+ entry.getKey() + "=\"" + entry.getValue() + "\"\n");
+                }
             }
-        }
+            return null;
+        });
     }
 
     @Override
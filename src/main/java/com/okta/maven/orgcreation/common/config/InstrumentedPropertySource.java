@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.config;
+
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
+import com.okta.maven.orgcreation.common.metrics.Sample;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Records the latency of each read, and the latency and size of each write, of the wrapped
+ * {@link MutablePropertySource}.
+ */
+public class InstrumentedPropertySource implements MutablePropertySource {
+
+    private final MutablePropertySource delegate;
+
+    private final MetricsRegistry metrics;
+
+    private final String writeOperation;
+
+    private final String readOperation;
+
+    public InstrumentedPropertySource(MutablePropertySource delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.writeOperation = "config.write." + delegate.getClass().getSimpleName();
+        this.readOperation = "config.read." + delegate.getClass().getSimpleName();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public void addProperties(Map<String, String> properties) throws IOException {
+        Sample sample = metrics.start(writeOperation);
+        try {
+            delegate.addProperties(properties);
+            String name = delegate.getName();
+            if (name != null) {
+                sample.bytes(new File(name).length());
+            }
+            sample.stop();
+        } catch (IOException | RuntimeException e) {
+            sample.failed(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public String getProperty(String key) {
+        return metrics.record(readOperation, () -> delegate.getProperty(key));
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+        return metrics.record(readOperation, delegate::getProperties);
+    }
+}
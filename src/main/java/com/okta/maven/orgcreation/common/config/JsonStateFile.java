@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Entries (by name) that are shared by every build on the machine, stored as JSON in a file in {@code ~/.okta}. Each
+ * update reads the file, applies the change, and writes it back atomically while holding the file's process lock (see
+ * {@link LockedFiles}). Expired entries are removed on every update, and the file is deleted once it is empty.
+ * <p>
+ * Without a file, the entries are kept in memory and only shared within this JVM.
+ *
+ * @param <T> the type of the entries, a Jackson bean
+ */
+public final class JsonStateFile<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JsonStateFile.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final File file;
+
+    private final String description;
+
+    private final JavaType entriesType;
+
+    private final Predicate<T> expired;
+
+    private final Map<String, T> memory = new TreeMap<>();
+
+    /**
+     * @param file the file the entries are stored in, or {@code null} to keep them in memory
+     * @param description what the entries are, used in log messages (e.g. "pending registrations")
+     * @param entryType the type of the entries
+     * @param expired returns {@code true} for an entry that must be removed
+     */
+    public JsonStateFile(File file, String description, Class<T> entryType, Predicate<T> expired) {
+        this.file = file;
+        this.description = description;
+        this.entriesType = objectMapper.getTypeFactory().constructMapType(TreeMap.class, String.class, entryType);
+        this.expired = expired;
+    }
+
+    /**
+     * Returns the file {@code name} in {@code ~/.okta}.
+     */
+    public static File inUserHome(String name) {
+        return new File(System.getProperty("user.home"), ".okta/" + name);
+    }
+
+    /**
+     * Applies {@code update} to the current entries and stores the result.
+     */
+    public synchronized <R> R update(Update<T, R> update) throws IOException {
+        if (file == null) {
+            memory.values().removeIf(expired);
+            return update.apply(memory);
+        }
+
+        return LockedFiles.withProcessLock(file, () -> {
+            Map<String, T> entries = read();
+            entries.values().removeIf(expired);
+            R result = update.apply(entries);
+            if (entries.isEmpty()) {
+                if (file.exists() && !file.delete()) {
+                    LOG.debug("Unable to delete: {}", file);
+                }
+            } else {
+                LockedFiles.writeAtomically(file, writer -> objectMapper.writeValue(writer, entries));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Applies {@code update} after a request completed, a failure is logged instead of failing the completed request.
+     */
+    public void updateQuietly(Update<T, ?> update) {
+        try {
+            update(update);
+        } catch (IOException e) {
+            LOG.warn("Failed to update {}: {}", description, e.getMessage());
+        }
+    }
+
+    private Map<String, T> read() {
+        if (file.isFile()) {
+            try {
+                return objectMapper.readValue(file, entriesType);
+            } catch (IOException e) {
+                LOG.warn("Ignoring invalid {} file: {}", description, file.getAbsolutePath());
+            }
+        }
+        return new TreeMap<>();
+    }
+
+    @FunctionalInterface
+    public interface Update<T, R> {
+        R apply(Map<String, T> entries) throws IOException;
+    }
+}
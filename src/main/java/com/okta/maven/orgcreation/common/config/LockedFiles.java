@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serializes read-modify-write access to configuration files when multiple mojos run in parallel ({@code mvn -T}).
+ */
+public final class LockedFiles {
+
+    private static final ConcurrentMap<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+    private LockedFiles() {}
+
+    /**
+     * Runs {@code action} while holding a lock for {@code file}, the lock is only shared within this JVM.
+     */
+    public static <T> T withLock(File file, IOCallable<T> action) throws IOException {
+        ReentrantLock lock = LOCKS.computeIfAbsent(key(file), path -> new ReentrantLock());
+        lock.lock();
+        try {
+            return action.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs {@code action} while holding a lock for {@code file} that is also visible to other processes, the lock is
+     * held on a sibling {@code .<name>.lock} file.
+     */
+    public static <T> T withProcessLock(File file, IOCallable<T> action) throws IOException {
+        return withLock(file, () -> {
+            File lockFile = new File(parentDir(file), "." + file.getName() + ".lock");
+            try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                return action.call();
+            }
+        });
+    }
+
+    /**
+     * Writes {@code file} by writing to a temporary file in the same directory and then moving it into place, readers
+     * will see either the old or the new content, never a partially written file.
+     */
+    public static void writeAtomically(File file, IOConsumer<Writer> content) throws IOException {
+        File parentDir = parentDir(file);
+        Path tempFile = Files.createTempFile(parentDir.toPath(), "." + file.getName(), ".tmp");
+        try {
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(tempFile), UTF_8)) {
+                content.accept(writer);
+            }
+            try {
+                Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static File parentDir(File file) throws IOException {
+        File parentDir = file.getAbsoluteFile().getParentFile();
+        if (!(parentDir.exists() || parentDir.mkdirs())) {
+            throw new IOException("Unable to create directory: " + parentDir.getAbsolutePath());
+        }
+        return parentDir;
+    }
+
+    private static Path key(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
+    @FunctionalInterface
+    public interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface IOConsumer<T> {
+        void accept(T value) throws IOException;
+    }
+}
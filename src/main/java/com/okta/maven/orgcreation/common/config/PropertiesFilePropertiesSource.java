@@ -41,12 +41,15 @@ public class PropertiesFilePropertiesSource extends WrappedMutablePropertiesSour
     @Override
     public void addProperties(Map<String, String> properties) throws IOException {
 
-        Properties existingProps = new Properties();
-        existingProps.putAll(getProperties());
-        existingProps.putAll(properties);
-
-        try (Writer writer = fileWriter(propertiesFile)) {
-            existingProps.store(writer, null);
-        }
+        LockedFiles.withLock(propertiesFile, () -> {
+            Properties existingProps = new Properties();
+            existingProps.putAll(getProperties());
+            existingProps.putAll(properties);
+
+            try (Writer writer = fileWriter(propertiesFile)) {
+                existingProps.store(writer, null);
+            }
+            return null;
+        });
     }
 }
\ No newline at end of file
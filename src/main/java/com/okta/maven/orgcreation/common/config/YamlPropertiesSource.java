@@ -46,6 +46,13 @@ public class YamlPropertiesSource extends WrappedMutablePropertiesSource {
 
     @Override
     public void addProperties(Map<String, String> properties) throws IOException {
+        LockedFiles.withLock(yamlFile, () -> {
+            writeProperties(properties);
+            return null;
+        });
+    }
+
+    private void writeProperties(Map<String, String> properties) throws IOException {
 
         Yaml springAppYaml = new Yaml(yamlOptions());
         Map<String, Object> existingProperties = new HashMap<>();
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A transport on Apache HttpClient 4 (HTTP/1.1), requests are made on a pool of daemon threads and share a pool of
+ * connections.
+ */
+final class ApacheHttpTransport implements HttpTransport {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService REQUESTS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "okta-http-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CloseableHttpClient httpClient = HttpClients.custom()
+            .setMaxConnPerRoute(20)
+            .setMaxConnTotal(50)
+            .build();
+
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request) {
+
+        RequestBuilder builder = RequestBuilder.create(request.getMethod())
+                .setUri(request.getUrl())
+                .setConfig(RequestConfig.custom()
+                        .setConnectTimeout(request.getConnectTimeoutMillis())
+                        .setConnectionRequestTimeout(request.getTimeoutMillis())
+                        .setSocketTimeout(request.getTimeoutMillis())
+                        .build());
+        request.getHeaders().forEach(builder::setHeader);
+        if (request.getBody() != null) {
+            builder.setEntity(new ByteArrayEntity(request.getBody()));
+        }
+        HttpUriRequest httpRequest = builder.build();
+
+        CompletableFuture<Response> future = new CompletableFuture<Response>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                // cancel first, so the failure of the aborted request does not complete the future
+                boolean canceled = super.cancel(mayInterruptIfRunning);
+                httpRequest.abort();
+                return canceled;
+            }
+        };
+        REQUESTS.execute(() -> {
+            try {
+                CloseableHttpResponse response = httpClient.execute(httpRequest);
+                if (!future.complete(new ApacheResponse(response))) {
+                    // canceled while the response was received
+                    response.close();
+                }
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static final class ApacheResponse implements Response {
+
+        private final CloseableHttpResponse response;
+
+        private ApacheResponse(CloseableHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public int status() {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public String header(String name) {
+            Header header = response.getFirstHeader(name);
+            return header != null ? header.getValue() : null;
+        }
+
+        @Override
+        public InputStream body() throws IOException {
+            HttpEntity entity = response.getEntity();
+            return entity != null ? entity.getContent() : new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public long contentLength() {
+            HttpEntity entity = response.getEntity();
+            return entity != null ? entity.getContentLength() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.http;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends HTTP requests to the registration service. The transport used by default is chosen by {@link HttpTransports},
+ * other implementations can be used in tests and embedded setups.
+ * <p>
+ * Implementations are thread safe, and share their connections between requests.
+ */
+public interface HttpTransport {
+
+    /**
+     * Sends a request, the returned future completes with the response (once its headers are received), or fails with
+     * an {@link IOException}. Canceling the future aborts the request, except with the {@link HttpTransports#jdk() jdk}
+     * transport before Java 16, where the request runs until its timeout.
+     */
+    CompletableFuture<Response> sendAsync(Request request);
+
+    /**
+     * Sends a request and waits for the response.
+     */
+    default Response send(Request request) throws IOException {
+        return HttpTransports.await(sendAsync(request));
+    }
+
+    /**
+     * A request, {@code connectTimeoutMillis} is ignored by the {@link HttpTransports#jdk() jdk} transport, which uses
+     * the same connect timeout (5 seconds) for every request.
+     */
+    @Data
+    @Accessors(chain = true)
+    class Request {
+        private String method = "GET";
+        private String url;
+        private Map<String, String> headers = new LinkedHashMap<>();
+        private byte[] body;
+        private int connectTimeoutMillis;
+        private int timeoutMillis;
+
+        public Request header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    /**
+     * A response, it must be closed once its body has been read.
+     */
+    interface Response extends Closeable {
+
+        int status();
+
+        /**
+         * Returns the first value of the header {@code name} (case insensitive), or {@code null}.
+         */
+        String header(String name);
+
+        InputStream body() throws IOException;
+
+        /**
+         * Returns the length of the body, or -1 if it is not known.
+         */
+        long contentLength();
+    }
+}
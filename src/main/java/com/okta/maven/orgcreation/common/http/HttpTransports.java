@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The available {@link HttpTransport}s. The plugin is a multi-release JAR, on Java 11+ it contains a transport on
+ * {@code java.net.http.HttpClient} (HTTP/2, concurrent requests share a connection), which is used by default on Java
+ * 16+. Before Java 16, canceling a {@code java.net.http} request does not abort it, so the Apache HttpClient transport
+ * is used by default on Java 8 to 15. The transport can be chosen with {@code -Dokta.maven.http.transport=apache|jdk}.
+ */
+public final class HttpTransports {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpTransports.class);
+
+    static final String TRANSPORT_PROPERTY = "okta.maven.http.transport";
+
+    /**
+     * Only found on Java 11+, in {@code META-INF/versions/11}.
+     */
+    private static final String JDK_TRANSPORT_CLASS = "com.okta.maven.orgcreation.common.http.JdkHttpTransport";
+
+    /**
+     * The first Java version that aborts a {@code java.net.http} request when its future is canceled.
+     */
+    private static final int JDK_TRANSPORT_DEFAULT_VERSION = 16;
+
+    private static volatile HttpTransport defaultTransport;
+
+    private HttpTransports() {}
+
+    /**
+     * Returns the transport shared by every call in this JVM.
+     */
+    public static HttpTransport getDefault() {
+        if (defaultTransport == null) {
+            synchronized (HttpTransports.class) {
+                if (defaultTransport == null) {
+                    defaultTransport = create(System.getProperty(TRANSPORT_PROPERTY, ""));
+                }
+            }
+        }
+        return defaultTransport;
+    }
+
+    static HttpTransport create(String name) {
+        switch (name.toLowerCase(Locale.ENGLISH)) {
+            case "apache":
+                return apache();
+            case "jdk":
+                return jdk().orElseThrow(() -> new IllegalStateException(
+                        "The 'jdk' HTTP transport (" + TRANSPORT_PROPERTY + ") requires Java 11 or later"));
+            case "":
+                return javaVersion(System.getProperty("java.specification.version")) >= JDK_TRANSPORT_DEFAULT_VERSION
+                        ? jdk().orElseGet(HttpTransports::apache)
+                        : apache();
+            default:
+                throw new IllegalArgumentException("Unknown HTTP transport (" + TRANSPORT_PROPERTY + "): '" + name
+                        + "', expected 'apache' or 'jdk'");
+        }
+    }
+
+    /**
+     * Returns a new Apache HttpClient 4 transport.
+     */
+    public static HttpTransport apache() {
+        return new ApacheHttpTransport();
+    }
+
+    /**
+     * Returns a new {@code java.net.http.HttpClient} transport, or empty when running on Java 8. Before Java 16,
+     * canceling a request does not abort it, the request runs until its timeout.
+     */
+    public static Optional<HttpTransport> jdk() {
+        try {
+            return Optional.of((HttpTransport) Class.forName(JDK_TRANSPORT_CLASS).getDeclaredConstructor().newInstance());
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOG.debug("The 'jdk' HTTP transport is not available: {}", e.toString());
+            return Optional.empty();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create the 'jdk' HTTP transport", e);
+        }
+    }
+
+    /**
+     * Returns the major version from {@code java.specification.version}, e.g. 8 for "1.8", 11 for "11".
+     */
+    static int javaVersion(String specificationVersion) {
+        String version = specificationVersion.startsWith("1.") ? specificationVersion.substring(2) : specificationVersion;
+        int end = version.indexOf('.');
+        try {
+            return Integer.parseInt(end >= 0 ? version.substring(0, end) : version);
+        } catch (NumberFormatException e) {
+            return 8;
+        }
+    }
+
+    /**
+     * Waits for the response of {@link HttpTransport#sendAsync(HttpTransport.Request)}.
+     */
+    public static HttpTransport.Response await(CompletableFuture<HttpTransport.Response> response) throws IOException {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.cancel(true);
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (CancellationException e) {
+            throw new IOException("The request was aborted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
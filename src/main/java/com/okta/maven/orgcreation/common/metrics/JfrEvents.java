@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics;
+
+/**
+ * Emits JDK Flight Recorder events for {@link Sample}s. The JFR classes are only loaded when they are available
+ * ({@code jdk.jfr} is missing on older Java 8 runtimes), and an event is only created while a recording that enables
+ * it is active, e.g. {@code MAVEN_OPTS=-XX:StartFlightRecording}.
+ */
+final class JfrEvents {
+
+    private static final Recorder RECORDER = loadRecorder();
+
+    private JfrEvents() {}
+
+    /**
+     * Returns a started event, or {@code null} if no recording is active.
+     */
+    static Object begin() {
+        return RECORDER != null ? RECORDER.begin() : null;
+    }
+
+    static void commit(Object event, String operation, String appLabel, int httpStatus, long bytes, boolean failed) {
+        if (event != null) {
+            RECORDER.commit(event, operation, appLabel, httpStatus, bytes, failed);
+        }
+    }
+
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            // referenced by name, so this class can be loaded without the jdk.jfr module
+            return (Recorder) Class.forName(JfrEvents.class.getPackage().getName() + ".JfrRecorder")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    interface Recorder {
+
+        Object begin();
+
+        void commit(Object event, String operation, String appLabel, int httpStatus, long bytes, boolean failed);
+    }
+}
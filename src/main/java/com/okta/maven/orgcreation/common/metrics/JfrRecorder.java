@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Creates {@link OperationEvent}s, only loaded by {@link JfrEvents} when the JFR API is available.
+ */
+class JfrRecorder implements JfrEvents.Recorder {
+
+    @Override
+    public Object begin() {
+        OperationEvent event = new OperationEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commit(Object event, String operation, String appLabel, int httpStatus, long bytes, boolean failed) {
+        OperationEvent operationEvent = (OperationEvent) event;
+        operationEvent.end();
+        if (operationEvent.shouldCommit()) {
+            operationEvent.operation = operation;
+            operationEvent.appLabel = appLabel;
+            operationEvent.httpStatus = httpStatus;
+            operationEvent.bytes = bytes;
+            operationEvent.failed = failed;
+            operationEvent.commit();
+        }
+    }
+
+    @Name("com.okta.maven.Operation")
+    @Label("Okta Operation")
+    @Category({"Okta", "Maven Plugin"})
+    @Description("A remote call to Okta, or a configuration or POM file read/write")
+    static class OperationEvent extends Event {
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Application Label")
+        String appLabel;
+
+        @Label("HTTP Status")
+        @Description("HTTP status of the response, 0 if unknown")
+        int httpStatus;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Failed")
+        boolean failed;
+    }
+}
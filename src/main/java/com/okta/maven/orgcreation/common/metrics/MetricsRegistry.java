@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.okta.maven.orgcreation.common.config.LockedFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records the count, latency, bytes, errors, and retries of each operation (remote calls, file writes) made during a
+ * mojo execution, and writes a JSON summary.
+ * <pre>
+ * Sample sample = metrics.start("okta.createApplication");
+ * try {
+ *     ...
+ *     sample.stop();
+ * } catch (RuntimeException e) {
+ *     sample.failed(e);
+ *     throw e;
+ * }
+ * </pre>
+ * or more simply: {@code metrics.record("okta.createApplication", () -> ...)}.
+ * <p>
+ * Each sample, along with the {@link #span(String) spans} around them, is also added to a {@link #trace() timeline}.
+ */
+public final class MetricsRegistry {
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private final TraceRecorder trace = new TraceRecorder();
+
+    public Sample start(String operation) {
+        return new Sample(operation(operation), trace, operation, System.nanoTime());
+    }
+
+    /**
+     * Starts a span around a phase of work, spans are only added to the trace and not to the summary.
+     */
+    public TraceRecorder.Span span(String name) {
+        return trace.span(name);
+    }
+
+    public TraceRecorder trace() {
+        return trace;
+    }
+
+    /**
+     * Runs {@code call} and records its latency, or an error if it throws an exception.
+     */
+    public <T, E extends Exception> T record(String operation, Call<T, E> call) throws E {
+        return record(operation, null, call);
+    }
+
+    /**
+     * Runs {@code call} for the application {@code appLabel} and records its latency, or an error if it throws an
+     * exception.
+     */
+    public <T, E extends Exception> T record(String operation, String appLabel, Call<T, E> call) throws E {
+        Sample sample = start(operation).appLabel(appLabel);
+        try {
+            T result = call.call();
+            sample.stop();
+            return result;
+        } catch (Exception | Error e) {
+            sample.failed(e);
+            throw e;
+        }
+    }
+
+    public void bytes(String operation, long bytes) {
+        operation(operation).bytes(bytes);
+    }
+
+    public void retry(String operation) {
+        operation(operation).retry();
+    }
+
+    /**
+     * Returns a summary of every operation, sorted by name.
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        operations.forEach((name, metrics) -> result.put(name, metrics.toMap()));
+        return result;
+    }
+
+    /**
+     * Writes the summary as JSON to {@code file}, replacing any existing file.
+     */
+    public void writeJson(File file, Map<String, Object> header) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>(header);
+        report.put("timestamp", Instant.now().toString());
+        report.put("operations", snapshot());
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        LockedFiles.withLock(file, () -> {
+            LockedFiles.writeAtomically(file, writer -> objectMapper.writeValue(writer, report));
+            return null;
+        });
+    }
+
+    private OperationMetrics operation(String operation) {
+        return operations.computeIfAbsent(operation, name -> new OperationMetrics());
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and a latency histogram for a single operation.
+ */
+class OperationMetrics {
+
+    /**
+     * Upper bounds (inclusive) of the latency histogram buckets, in milliseconds; the last bucket is unbounded.
+     */
+    static final long[] BUCKETS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000};
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS_MS.length + 1);
+
+    void record(long nanos, boolean error) {
+        count.increment();
+        if (error) {
+            errors.increment();
+        }
+        totalNanos.add(nanos);
+        minNanos.accumulateAndGet(nanos, Math::min);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        histogram.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMillis(nanos)));
+    }
+
+    void bytes(long value) {
+        bytes.add(value);
+    }
+
+    void retry() {
+        retries.increment();
+    }
+
+    Map<String, Object> toMap() {
+        long samples = count.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", samples);
+        result.put("errors", errors.sum());
+        result.put("retries", retries.sum());
+        result.put("bytes", bytes.sum());
+        result.put("totalMs", millis(totalNanos.sum()));
+        if (samples > 0) {
+            result.put("meanMs", millis(totalNanos.sum() / samples));
+            result.put("minMs", millis(minNanos.get()));
+            result.put("maxMs", millis(maxNanos.get()));
+        }
+
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int ii = 0; ii < histogram.length(); ii++) {
+            long value = histogram.get(ii);
+            if (value > 0) {
+                buckets.put(ii < BUCKETS_MS.length ? "<=" + BUCKETS_MS[ii] : ">" + BUCKETS_MS[BUCKETS_MS.length - 1], value);
+            }
+        }
+        result.put("latencyHistogramMs", buckets);
+        return result;
+    }
+
+    private static int bucket(long millis) {
+        for (int ii = 0; ii < BUCKETS_MS.length; ii++) {
+            if (millis <= BUCKETS_MS[ii]) {
+                return ii;
+            }
+        }
+        return BUCKETS_MS.length;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
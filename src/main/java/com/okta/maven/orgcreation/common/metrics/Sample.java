@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics;
+
+import com.okta.sdk.resource.ResourceException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single, in progress, operation. The operation is recorded once, when {@link #stop()} or
+ * {@link #failed(Throwable)} is first called.
+ * <p>
+ * Each sample is also added to the {@link TraceRecorder trace}, and when a JDK Flight Recorder recording is active,
+ * committed as a JFR event.
+ */
+public final class Sample {
+
+    private final OperationMetrics metrics;
+    private final TraceRecorder trace;
+    private final Thread thread = Thread.currentThread();
+    private final String operation;
+    private final long startNanos;
+    private final Object jfrEvent;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private volatile String appLabel;
+    private volatile int httpStatus;
+
+    Sample(OperationMetrics metrics, TraceRecorder trace, String operation, long startNanos) {
+        this.metrics = metrics;
+        this.trace = trace;
+        this.operation = operation;
+        this.startNanos = startNanos;
+        this.jfrEvent = JfrEvents.begin();
+    }
+
+    public Sample appLabel(String appLabel) {
+        this.appLabel = appLabel;
+        return this;
+    }
+
+    public Sample httpStatus(int httpStatus) {
+        this.httpStatus = httpStatus;
+        return this;
+    }
+
+    public void bytes(long count) {
+        bytes.addAndGet(count);
+        metrics.bytes(count);
+    }
+
+    public void stop() {
+        if (stopped.compareAndSet(false, true)) {
+            long endNanos = System.nanoTime();
+            metrics.record(endNanos - startNanos, false);
+            trace.complete(operation, "operation", thread, startNanos, endNanos, traceArgs(false));
+            JfrEvents.commit(jfrEvent, operation, appLabel, httpStatus, bytes.get(), false);
+        }
+    }
+
+    public void failed(Throwable cause) {
+        if (stopped.compareAndSet(false, true)) {
+            if (httpStatus == 0 && cause instanceof ResourceException) {
+                httpStatus = ((ResourceException) cause).getStatus();
+            }
+            long endNanos = System.nanoTime();
+            metrics.record(endNanos - startNanos, true);
+            trace.complete(operation, "operation", thread, startNanos, endNanos, traceArgs(true));
+            JfrEvents.commit(jfrEvent, operation, appLabel, httpStatus, bytes.get(), true);
+        }
+    }
+
+    private Map<String, Object> traceArgs(boolean failed) {
+        Map<String, Object> args = new LinkedHashMap<>();
+        if (appLabel != null) {
+            args.put("appLabel", appLabel);
+        }
+        if (httpStatus != 0) {
+            args.put("httpStatus", httpStatus);
+        }
+        if (bytes.get() != 0) {
+            args.put("bytes", bytes.get());
+        }
+        if (failed) {
+            args.put("failed", true);
+        }
+        return args;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.okta.maven.orgcreation.common.config.LockedFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records a timeline of the spans (phases) and {@link Sample operations} of a mojo execution, and writes it in the
+ * Chrome trace-event format, which can be opened with <a href="https://ui.perfetto.dev">Perfetto</a> or
+ * {@code chrome://tracing}.
+ * <p>
+ * Spans started on the same thread are nested by the viewer, spans from other threads (e.g. a parallel build) are shown
+ * on their own track.
+ * <pre>
+ * try (TraceRecorder.Span span = metrics.span("createWebApplication")) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class TraceRecorder {
+
+    private static final int PID = 1;
+
+    private final long originNanos = System.nanoTime();
+
+    private final Queue<Map<String, Object>> events = new ConcurrentLinkedQueue<>();
+
+    private final Map<Long, String> threadNames = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public Span span(String name) {
+        return new Span(name, System.nanoTime());
+    }
+
+    /**
+     * Records a completed span that started on {@code thread}.
+     */
+    void complete(String name, String category, Thread thread, long startNanos, long endNanos, Map<String, Object> args) {
+        threadNames.putIfAbsent(thread.getId(), thread.getName());
+
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("name", name);
+        event.put("cat", category);
+        event.put("ph", "X");
+        event.put("ts", micros(startNanos - originNanos));
+        event.put("dur", micros(endNanos - startNanos));
+        event.put("pid", PID);
+        event.put("tid", thread.getId());
+        if (args != null && !args.isEmpty()) {
+            event.put("args", args);
+        }
+        events.add(event);
+    }
+
+    /**
+     * Returns the recorded trace events, and a metadata event naming each thread.
+     */
+    public List<Map<String, Object>> events() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (threadNames) {
+            threadNames.forEach((id, name) -> {
+                Map<String, Object> event = new LinkedHashMap<>();
+                event.put("name", "thread_name");
+                event.put("ph", "M");
+                event.put("pid", PID);
+                event.put("tid", id);
+                event.put("args", Collections.singletonMap("name", name));
+                result.add(event);
+            });
+        }
+        result.addAll(events);
+        return result;
+    }
+
+    /**
+     * Writes the trace to {@code file}, replacing any existing file.
+     */
+    public void writeJson(File file, Map<String, Object> header) throws IOException {
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", events());
+        trace.put("displayTimeUnit", "ms");
+        trace.put("otherData", header);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        LockedFiles.withLock(file, () -> {
+            LockedFiles.writeAtomically(file, writer -> objectMapper.writeValue(writer, trace));
+            return null;
+        });
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    /**
+     * A phase of a mojo execution, the span is recorded when it is closed.
+     */
+    public final class Span implements AutoCloseable {
+
+        private final String name;
+        private final long startNanos;
+        private final Thread thread = Thread.currentThread();
+        private final Map<String, Object> args = new LinkedHashMap<>();
+        private boolean closed;
+
+        private Span(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+
+        public Span arg(String key, Object value) {
+            if (value != null) {
+                args.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                complete(name, "phase", thread, startNanos, System.nanoTime(), args);
+            }
+        }
+    }
+}
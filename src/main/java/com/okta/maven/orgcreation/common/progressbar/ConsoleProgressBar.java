@@ -17,93 +17,75 @@ package com.okta.maven.orgcreation.common.progressbar;
 
 import java.io.PrintStream;
 import java.time.Duration;
-import java.util.Arrays;
-import java.util.List;
 
+/**
+ * Writes messages to the console, and animates a spinner while an operation is running. Progress bars writing to the
+ * same stream share a {@link ConsoleRenderer}, so concurrent operations are drawn on their own lines instead of
+ * interleaving. The spinner is not animated when the output is not a terminal (e.g. redirected to a file).
+ */
 class ConsoleProgressBar implements ProgressBar {
 
-    private final ProgressBarWriter progressBarWriter;
+    private final ConsoleRenderer renderer;
     private final PrintStream stream;
-    private final Thread thread;
+    private final boolean animate;
+    private final ConsoleRenderer.Task task = new ConsoleRenderer.Task();
+
+    private boolean started = false;
 
     ConsoleProgressBar() {
-        this(System.out, Duration.ofMillis(500)); // half second
+        this(System.out, Duration.ofMillis(500), System.console() != null); // half second
     }
 
     ConsoleProgressBar(PrintStream stream, Duration updateInterval) {
+        this(stream, updateInterval, true);
+    }
+
+    ConsoleProgressBar(PrintStream stream, Duration updateInterval, boolean animate) {
+        this(ConsoleRenderer.forStream(stream, updateInterval), stream, animate);
+    }
+
+    ConsoleProgressBar(ConsoleRenderer renderer, PrintStream stream, boolean animate) {
+        this.renderer = renderer;
         this.stream = stream;
-        this.progressBarWriter = new ProgressBarWriter(stream, updateInterval);
-        this.thread = new Thread(progressBarWriter, ConsoleProgressBar.class.getName());
+        this.animate = animate;
     }
 
     @Override
-    public ProgressBar start() {
-        this.thread.start();
+    public synchronized ProgressBar start() {
+        if (animate && !started) {
+            started = true;
+            renderer.add(task);
+        }
         return this;
     }
 
     @Override
     public ProgressBar start(CharSequence message) {
-        stream.println(message);
+        task.label(message);
+        renderer.write(() -> stream.println(message));
         return start();
     }
 
     @Override
     public void info(CharSequence message) {
-        stream.println("\r" + message);
+        renderer.write(() -> stream.println("\r" + message));
     }
 
     @Override
-    public void close() {
-        progressBarWriter.stop();
-
-        thread.interrupt();
-        try {
-            thread.join();
-        }
-        catch (InterruptedException ignored) { }
+    public void status(CharSequence message) {
+        task.status(message);
     }
 
-    static class ProgressBarWriter implements Runnable {
-
-        private final PrintStream stream;
-        private final Duration updateInterval;
-
-        private final List<Character> animationChars = Arrays.asList('/', '-', '\\', '|');
-
-        private boolean running = true;
-
-        ProgressBarWriter(PrintStream stream, Duration updateInterval) {
-            this.stream = stream;
-            this.updateInterval = updateInterval;
-        }
-
-        @Override
-        public void run() {
-
-            int ii = 0;
-            do {
-                stream.print('\r');
-
-                char nextChar = animationChars.get(ii++ % animationChars.size());
-                stream.print(nextChar);
-
-                try {
-                    Thread.sleep(updateInterval.toMillis());
-                } catch (InterruptedException e) {
-                    finish();
-                }
-
-            } while (running && !Thread.interrupted());
-        }
-
-        void stop() {
-            running = false;
-        }
+    @Override
+    public void requestCompleted() {
+        task.requestCompleted();
+    }
 
-        void finish() {
-            stream.println("\r");
-            stream.flush();
+    @Override
+    public synchronized void close() {
+        if (started) {
+            started = false;
+            renderer.remove(task);
         }
     }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.progressbar;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Draws every running {@link ConsoleProgressBar} that writes to the same stream. A single task is drawn as a spinner
+ * on the current line. When multiple tasks run at the same time, and the terminal supports ANSI escape codes, each
+ * task gets its own line (status, elapsed time, and request count) which is redrawn in place. Messages are written
+ * above these lines.
+ * <p>
+ * All renderers are animated from a single shared daemon thread.
+ */
+final class ConsoleRenderer implements Runnable {
+
+    private static final Map<PrintStream, ConsoleRenderer> RENDERERS = new WeakHashMap<>();
+
+    private static final List<Character> ANIMATION_CHARS = Arrays.asList('/', '-', '\\', '|');
+
+    private static final String CSI = "\u001B[";
+
+    private final PrintStream stream;
+    private final Duration updateInterval;
+    private final boolean ansi;
+    private final int maxWidth;
+    private final ScheduledExecutorService scheduler;
+
+    // guarded by 'stream'
+    private final List<Task> tasks = new ArrayList<>();
+    private int frame = 0;
+    private int linesDrawn = 0;
+    private ScheduledFuture<?> animation;
+
+    ConsoleRenderer(PrintStream stream, Duration updateInterval, boolean ansi) {
+        this(stream, updateInterval, ansi, terminalWidth(), Scheduler.EXECUTOR);
+    }
+
+    /**
+     * @param scheduler runs the animation, every {@code updateInterval} while tasks are running
+     */
+    ConsoleRenderer(PrintStream stream, Duration updateInterval, boolean ansi, int maxWidth, ScheduledExecutorService scheduler) {
+        this.stream = stream;
+        this.updateInterval = updateInterval;
+        this.ansi = ansi;
+        this.maxWidth = maxWidth;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns the renderer for {@code stream}, progress bars writing to the same stream must share a renderer.
+     */
+    static ConsoleRenderer forStream(PrintStream stream, Duration updateInterval) {
+        synchronized (RENDERERS) {
+            return RENDERERS.computeIfAbsent(stream, it -> new ConsoleRenderer(it, updateInterval, ansiSupported()));
+        }
+    }
+
+    void add(Task task) {
+        synchronized (stream) {
+            tasks.add(task);
+            if (animation == null) {
+                animation = scheduler.scheduleWithFixedDelay(this, 0, updateInterval.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    void remove(Task task) {
+        synchronized (stream) {
+            if (!tasks.remove(task)) {
+                return;
+            }
+            if (linesDrawn > 0) {
+                clearLines();
+                stream.println(truncate(task.summary(System.nanoTime())));
+            } else {
+                stream.println("\r");
+            }
+            stream.flush();
+
+            if (tasks.isEmpty()) {
+                // no interrupt or join needed, the next run (if any) finds nothing to draw
+                animation.cancel(false);
+                animation = null;
+            }
+        }
+    }
+
+    /**
+     * Writes output above the task lines, the task lines are redrawn on the next update.
+     */
+    void write(Runnable output) {
+        synchronized (stream) {
+            clearLines();
+            output.run();
+        }
+    }
+
+    @Override
+    public void run() {
+        // other threads (e.g. parallel mojo executions) may be writing to the same stream
+        synchronized (stream) {
+            if (tasks.isEmpty()) {
+                return;
+            }
+            char nextChar = ANIMATION_CHARS.get(frame++ % ANIMATION_CHARS.size());
+            if (ansi && tasks.size() > 1) {
+                drawLines(nextChar);
+            } else {
+                clearLines();
+                stream.print('\r');
+                stream.print(nextChar);
+            }
+            stream.flush();
+        }
+    }
+
+    private void drawLines(char nextChar) {
+        long now = System.nanoTime();
+        StringBuilder output = new StringBuilder();
+        if (linesDrawn > 0) {
+            output.append(CSI).append(linesDrawn).append('A');
+        }
+        output.append('\r');
+        for (Task task : tasks) {
+            output.append(CSI).append("2K")
+                  .append(truncate(nextChar + " " + task.line(now)))
+                  .append('\n');
+        }
+        // clear lines left over from removed tasks
+        output.append(CSI).append('J');
+        stream.print(output);
+        linesDrawn = tasks.size();
+    }
+
+    private void clearLines() {
+        if (linesDrawn > 0) {
+            stream.print(CSI + linesDrawn + "A\r" + CSI + "J");
+            linesDrawn = 0;
+        }
+    }
+
+    private String truncate(String line) {
+        // a wrapped line would break moving the cursor back up
+        return line.length() < maxWidth ? line : line.substring(0, Math.max(0, maxWidth - 1));
+    }
+
+    static boolean ansiSupported() {
+        if (System.console() == null) {
+            return false;
+        }
+        String term = System.getenv("TERM");
+        if (System.getProperty("os.name", "").toLowerCase(Locale.ENGLISH).contains("windows")) {
+            return term != null || System.getenv("WT_SESSION") != null || System.getenv("ANSICON") != null;
+        }
+        return term != null && !"dumb".equals(term);
+    }
+
+    private static int terminalWidth() {
+        try {
+            return Integer.parseInt(System.getenv().getOrDefault("COLUMNS", "80"));
+        } catch (NumberFormatException e) {
+            return 80;
+        }
+    }
+
+    /**
+     * The state of a single progress bar.
+     */
+    static final class Task {
+
+        private final AtomicInteger requests = new AtomicInteger();
+        private final long startNanos = System.nanoTime();
+        private volatile String label = "";
+        private volatile String status = "";
+
+        void label(CharSequence label) {
+            // messages like "Creating something, this may take a minute:" are followed by the spinner
+            this.label = label == null ? "" : label.toString().trim().replaceAll(":$", "");
+        }
+
+        void status(CharSequence status) {
+            this.status = status == null ? "" : status.toString().trim();
+        }
+
+        void requestCompleted() {
+            requests.incrementAndGet();
+        }
+
+        String line(long nowNanos) {
+            StringBuilder line = new StringBuilder(label);
+            if (!status.isEmpty()) {
+                line.append(label.isEmpty() ? "" : " - ").append(status);
+            }
+            return line.append(' ').append(stats(nowNanos)).toString();
+        }
+
+        String summary(long nowNanos) {
+            return label + " - done " + stats(nowNanos);
+        }
+
+        private String stats(long nowNanos) {
+            int count = requests.get();
+            double seconds = (nowNanos - startNanos) / 1_000_000_000.0;
+            return String.format(Locale.ENGLISH, "(%.1fs, %d request%s)", seconds, count, count == 1 ? "" : "s");
+        }
+    }
+
+    /**
+     * Holds the thread shared by all renderers, created when the first progress bar is started.
+     */
+    private static final class Scheduler {
+
+        private static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder()
+                        .setNameFormat(ConsoleProgressBar.class.getName() + "-%d")
+                        .setDaemon(true)
+                        .build());
+
+        static {
+            EXECUTOR.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
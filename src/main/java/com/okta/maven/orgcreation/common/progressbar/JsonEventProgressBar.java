@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.progressbar;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reports progress to another {@link ProgressBar} and emits a structured event for each phase: {@code start},
+ * {@code status}, and {@code end} (with the duration, request count, and outcome). The events are written
+ * asynchronously by a {@link JsonEventWriter}.
+ * <p>
+ * Messages passed to {@link #info(CharSequence)} are NOT emitted, as they may contain links or other values that
+ * should not end up in a log pipeline.
+ */
+class JsonEventProgressBar implements ProgressBar {
+
+    private final ProgressBar delegate;
+    private final JsonEventWriter writer;
+
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile String phase;
+    private volatile long startNanos = System.nanoTime();
+    private volatile boolean succeeded = false;
+    private boolean closed = false;
+
+    JsonEventProgressBar(ProgressBar delegate, JsonEventWriter writer) {
+        this.delegate = delegate;
+        this.writer = writer;
+    }
+
+    @Override
+    public ProgressBar start() {
+        startNanos = System.nanoTime();
+        emit("start");
+        delegate.start();
+        return this;
+    }
+
+    @Override
+    public ProgressBar start(CharSequence message) {
+        if (message != null) {
+            phase = message.toString().trim().replaceAll(":$", "");
+        }
+        startNanos = System.nanoTime();
+        emit("start");
+        delegate.start(message);
+        return this;
+    }
+
+    @Override
+    public void info(CharSequence message) {
+        delegate.info(message);
+    }
+
+    @Override
+    public void status(CharSequence message) {
+        delegate.status(message);
+        Map<String, Object> event = event("status");
+        event.put("status", String.valueOf(message));
+        writer.submit(event);
+    }
+
+    @Override
+    public void requestCompleted() {
+        requests.incrementAndGet();
+        delegate.requestCompleted();
+    }
+
+    @Override
+    public void attribute(String name, String value) {
+        synchronized (attributes) {
+            attributes.put(name, value);
+        }
+        delegate.attribute(name, value);
+    }
+
+    @Override
+    public void succeeded() {
+        succeeded = true;
+        delegate.succeeded();
+    }
+
+    @Override
+    public synchronized void close() {
+        delegate.close();
+        if (!closed) {
+            closed = true;
+            Map<String, Object> event = event("end");
+            event.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            event.put("requests", requests.get());
+            event.put("outcome", succeeded ? "success" : "failure");
+            writer.submit(event);
+        }
+    }
+
+    private void emit(String type) {
+        writer.submit(event(type));
+    }
+
+    private Map<String, Object> event(String type) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("timestamp", Instant.now().toString());
+        event.put("event", type);
+        event.put("phase", phase);
+        synchronized (attributes) {
+            event.putAll(attributes);
+        }
+        return event;
+    }
+}
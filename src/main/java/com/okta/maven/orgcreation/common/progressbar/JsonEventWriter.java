@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.progressbar;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Appends events to a file as JSON, one event per line. Events are queued and written by a background thread, so
+ * submitting an event never blocks. If the queue is full the event is dropped, and the number of dropped events is
+ * written as its own event.
+ * <p>
+ * The thread is started when an event is submitted and stops once no events were submitted for a while, so writers do
+ * not keep threads running in a long-lived JVM (e.g. the Maven Daemon). A single shutdown hook writes out the events
+ * queued by every writer before the JVM exits.
+ */
+final class JsonEventWriter implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JsonEventWriter.class);
+
+    private static final ConcurrentMap<Path, JsonEventWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final Duration SHUTDOWN_FLUSH_TIMEOUT = Duration.ofSeconds(2);
+
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path file;
+    private final BlockingQueue<Map<String, Object>> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final long idleTimeoutNanos;
+
+    /**
+     * The thread writing the events, {@code null} while it is not running.
+     */
+    private Thread thread;
+
+    JsonEventWriter(Path file, int capacity) {
+        this(file, capacity, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    JsonEventWriter(Path file, int capacity, Duration idleTimeout) {
+        this.file = file;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * Returns the writer for {@code file}, all events for the same file in this JVM go through the same writer.
+     */
+    static JsonEventWriter forFile(File file) {
+        ShutdownHook.register();
+        return WRITERS.computeIfAbsent(file.toPath().toAbsolutePath().normalize(), path -> new JsonEventWriter(path, DEFAULT_CAPACITY));
+    }
+
+    void submit(Map<String, Object> event) {
+        pending.incrementAndGet();
+        if (!queue.offer(event)) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+        synchronized (this) {
+            if (thread == null) {
+                thread = new Thread(this, JsonEventWriter.class.getName() + "-" + file.getFileName());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Waits until all submitted events have been written, or {@code timeout} has elapsed.
+     */
+    boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        List<Map<String, Object>> batch = new ArrayList<>();
+        long idleSince = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Map<String, Object> first = queue.poll(Math.min(idleTimeoutNanos, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    idleSince = System.nanoTime();
+                } else if (System.nanoTime() - idleSince >= idleTimeoutNanos && stopIfIdle()) {
+                    return;
+                }
+                long droppedEvents = dropped.getAndSet(0);
+                if (droppedEvents > 0) {
+                    batch.add(Collections.singletonMap("droppedEvents", droppedEvents));
+                }
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // the dropped events marker was never counted as pending
+                long written = batch.stream().filter(it -> !it.containsKey("droppedEvents")).count();
+                pending.addAndGet(-written);
+                batch.clear();
+            }
+        }
+        synchronized (this) {
+            thread = null;
+        }
+    }
+
+    /**
+     * Stops the thread unless an event was submitted since the queue was last checked, {@link #submit(Map)} starts a
+     * new thread for the next event.
+     */
+    private synchronized boolean stopIfIdle() {
+        if (queue.isEmpty() && dropped.get() == 0) {
+            thread = null;
+            return true;
+        }
+        return false;
+    }
+
+    private void write(List<Map<String, Object>> batch) {
+        try {
+            Files.createDirectories(file.getParent());
+            // open the file for each batch, the file may have been removed (e.g. 'mvn clean') between builds
+            try (Writer writer = Files.newBufferedWriter(file, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Map<String, Object> event : batch) {
+                    writer.write(objectMapper.writeValueAsString(event));
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to write events to: {}", file, e);
+        }
+    }
+
+    /**
+     * Writes out the events queued by every writer before the JVM exits, registered once per JVM.
+     */
+    private static final class ShutdownHook {
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                    WRITERS.values().forEach(writer -> writer.flush(SHUTDOWN_FLUSH_TIMEOUT)), "okta-events-flush"));
+        }
+
+        private ShutdownHook() {}
+
+        static void register() {
+            // registered when the class is initialized
+        }
+    }
+}
@@ -18,19 +18,50 @@ package com.okta.maven.orgcreation.common.progressbar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes progress to the log, used for non-interactive builds. Status updates are batched: at most one is logged per
+ * interval, and a summary line with the elapsed time and request count is logged when the operation finishes.
+ */
 class LoggerProgressBar implements ProgressBar {
 
-    private static Logger LOG = LoggerFactory.getLogger(LoggerProgressBar.class);
+    private static final Logger LOG = LoggerFactory.getLogger(LoggerProgressBar.class);
+
+    private static final Duration STATUS_INTERVAL = Duration.ofSeconds(5);
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong lastStatusNanos = new AtomicLong();
+    private final long statusIntervalNanos;
+
+    private volatile String label;
+    private volatile long startNanos;
+
+    LoggerProgressBar() {
+        this(STATUS_INTERVAL);
+    }
+
+    LoggerProgressBar(Duration statusInterval) {
+        this.statusIntervalNanos = statusInterval.toNanos();
+    }
 
     @Override
     public ProgressBar start() {
+        startNanos = System.nanoTime();
+        lastStatusNanos.set(startNanos - statusIntervalNanos);
         return this;
     }
 
     @Override
     public ProgressBar start(CharSequence message) {
         info(message);
-        return this;
+        if (message != null) {
+            label = message.toString().trim().replaceAll(":$", "");
+        }
+        return start();
     }
 
     @Override
@@ -41,7 +72,30 @@ class LoggerProgressBar implements ProgressBar {
     }
 
     @Override
-    public void close() {
+    public void status(CharSequence message) {
+        if (message == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastStatusNanos.get();
+        if (now - last >= statusIntervalNanos && lastStatusNanos.compareAndSet(last, now)) {
+            LOG.info(message.toString());
+        } else {
+            LOG.debug(message.toString());
+        }
+    }
 
+    @Override
+    public void requestCompleted() {
+        requests.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        if (label != null) {
+            double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+            LOG.info(String.format(Locale.ENGLISH, "%s - done (%.1fs, %d requests)", label, seconds, requests.get()));
+            label = null;
+        }
     }
 }
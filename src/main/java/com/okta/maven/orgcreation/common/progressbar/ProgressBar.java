@@ -23,6 +23,27 @@ public interface ProgressBar extends AutoCloseable {
 
     void info(CharSequence message);
 
+    /**
+     * Updates the status of the running operation (e.g. the current step), shown next to the progress bar.
+     */
+    default void status(CharSequence message) {}
+
+    /**
+     * Records that a request to a remote service, made by the running operation, has completed.
+     */
+    default void requestCompleted() {}
+
+    /**
+     * Describes the running operation (e.g. the Okta Organization URL or application name), used by progress bars that
+     * report structured events.
+     */
+    default void attribute(String name, String value) {}
+
+    /**
+     * Marks the running operation as successful, an operation that is closed without calling this method failed.
+     */
+    default void succeeded() {}
+
     @Override
     void close();
 
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.progressbar;
+
+import java.io.File;
+
+/**
+ * Creates the {@link ProgressBar} used for each operation.
+ */
+@FunctionalInterface
+public interface ProgressBarFactory {
+
+    ProgressBar create(boolean interactive);
+
+    /**
+     * Returns a factory that creates the default progress bars, which also write progress events as JSON (one per
+     * line) to {@code eventsFile}.
+     */
+    static ProgressBarFactory withJsonEvents(File eventsFile) {
+        JsonEventWriter writer = JsonEventWriter.forFile(eventsFile);
+        return interactive -> new JsonEventProgressBar(ProgressBar.create(interactive), writer);
+    }
+}
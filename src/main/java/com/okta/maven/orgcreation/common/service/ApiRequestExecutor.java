@@ -0,0 +1,275 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import com.okta.commons.http.HttpException;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
+import com.okta.maven.orgcreation.common.metrics.Sample;
+import com.okta.sdk.client.Client;
+import com.okta.sdk.resource.ResourceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Makes calls to the Okta management API (SDK and {@code client.http()} calls), records their metrics, and retries
+ * them:
+ * <ul>
+ *     <li>when the org's rate limit was reached (HTTP 429), after waiting until the time in the
+ *     {@code X-Rate-Limit-Reset} header. The request was not processed, so any call is retried.</li>
+ *     <li>on a transient error (HTTP 500, 502, 503, 504, or an IO error), after a jittered exponential backoff. Only
+ *     {@link #retryable(Client, String, String, Supplier) idempotent} calls are retried, a failed create may have
+ *     been processed.</li>
+ * </ul>
+ * The Okta SDK's own retries are turned off by {@link OktaClients}, so this is the only layer that retries a call.
+ * <p>
+ * Every attempt waits for the org's {@link RequestGovernor}, which limits the rate and concurrency of the calls. Calls
+ * are bounded by the mojo's {@link Deadline}, a call is not retried if the delay would exceed it. A call that exceeds
+ * the deadline is aborted, but a create that already reached Okta may still be processed after the call has failed.
+ */
+public class ApiRequestExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApiRequestExecutor.class);
+
+    static final String RATE_LIMIT_RESET = "X-Rate-Limit-Reset";
+    static final String RATE_LIMIT_REMAINING = "X-Rate-Limit-Remaining";
+    static final String RATE_LIMIT_LIMIT = "X-Rate-Limit-Limit";
+    private static final String DATE = "Date";
+
+    private static final Set<Integer> TRANSIENT_STATUS = new HashSet<>(Arrays.asList(500, 502, 503, 504));
+
+    private final MetricsRegistry metrics;
+
+    private final int maxAttempts;
+
+    private final Duration baseDelay;
+
+    private final Duration maxDelay;
+
+    private final Duration maxRateLimitWait;
+
+    private final Sleeper sleeper;
+
+    private final Function<Object, RequestGovernor> governors;
+
+    private final Deadline deadline;
+
+    public ApiRequestExecutor(MetricsRegistry metrics) {
+        this(metrics, Deadline.none());
+    }
+
+    public ApiRequestExecutor(MetricsRegistry metrics, Deadline deadline) {
+        this(metrics, 4, Duration.ofMillis(500), Duration.ofSeconds(8), Duration.ofMinutes(2), Thread::sleep, RequestGovernor::forOrg, deadline);
+    }
+
+    /**
+     * @param maxAttempts the maximum number of attempts of each call, including the first
+     * @param baseDelay the delay before the first retry of a transient error, it doubles for each retry
+     * @param maxDelay the maximum delay between retries of a transient error
+     * @param maxRateLimitWait calls are not retried if the rate limit resets further in the future
+     * @param governors returns the governor of an org, from its {@link SingleFlight#orgKey(Client) key}
+     * @param deadline bounds every call and retry
+     */
+    ApiRequestExecutor(MetricsRegistry metrics, int maxAttempts, Duration baseDelay, Duration maxDelay, Duration maxRateLimitWait, Sleeper sleeper,
+                       Function<Object, RequestGovernor> governors, Deadline deadline) {
+        this.metrics = metrics;
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.maxRateLimitWait = maxRateLimitWait;
+        this.sleeper = sleeper;
+        this.governors = governors;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Makes an idempotent call (e.g. a GET or PUT), the call is retried on rate limit and transient errors.
+     */
+    public <T> T retryable(Client client, String operation, String appLabel, Supplier<T> call) {
+        return execute(client, operation, appLabel, true, call);
+    }
+
+    /**
+     * Makes a call that is not idempotent (e.g. a POST that creates a resource), the call is only retried when the
+     * rate limit was reached.
+     */
+    public <T> T execute(Client client, String operation, String appLabel, Supplier<T> call) {
+        return execute(client, operation, appLabel, false, call);
+    }
+
+    private <T> T execute(Client client, String operation, String appLabel, boolean idempotent, Supplier<T> call) {
+        RequestGovernor governor = governors.apply(SingleFlight.orgKey(client));
+        Sample sample = metrics.start(operation).appLabel(appLabel);
+        try {
+            T result = attempt(governor, operation, idempotent, call);
+            sample.stop();
+            return result;
+        } catch (RuntimeException | Error e) {
+            sample.failed(e);
+            throw e;
+        }
+    }
+
+    private <T> T attempt(RequestGovernor governor, String operation, boolean idempotent, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            deadline.check(operation);
+            try {
+                // the permit is held by the thread making the call, until the call completes, even if the deadline
+                // was exceeded and the caller stopped waiting for it
+                T result = deadline.call(operation, () -> {
+                    try (RequestGovernor.Permit permit = acquire(governor)) {
+                        return call.get();
+                    }
+                });
+                governor.succeeded();
+                return result;
+            } catch (RuntimeException e) {
+                rateLimited(governor, e);
+                long delay = attempt < maxAttempts ? retryDelay(e, idempotent, attempt) : -1;
+                if (delay < 0 || (deadline.isBounded() && delay >= deadline.remaining().toMillis())) {
+                    throw e;
+                }
+                LOG.debug("Retrying {} in {} ms (attempt {} of {}): {}", operation, delay, attempt + 1, maxAttempts, e.getMessage());
+                metrics.retry(operation);
+                sleep(delay, e);
+            }
+        }
+    }
+
+    private static RequestGovernor.Permit acquire(RequestGovernor governor) {
+        try {
+            return governor.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to call the Okta API", e);
+        }
+    }
+
+    /**
+     * Pauses every call to the org until its rate limit resets (unless it is too far in the future, the calls fail
+     * instead), whether or not this call is retried.
+     */
+    private void rateLimited(RequestGovernor governor, RuntimeException e) {
+        if (e instanceof ResourceException && ((ResourceException) e).getStatus() == 429) {
+            Map<String, List<String>> headers = ((ResourceException) e).getHeaders();
+            Long reset = longHeader(headers, RATE_LIMIT_RESET);
+            long delay = reset != null ? Math.max(0, reset * 1000 - dateHeader(headers)) : 0;
+            governor.rateLimited(Math.min(delay, maxRateLimitWait.toMillis()), longHeader(headers, RATE_LIMIT_LIMIT));
+        }
+    }
+
+    /**
+     * Returns the number of milliseconds to wait before retrying, or -1 if the call must not be retried.
+     */
+    long retryDelay(RuntimeException e, boolean idempotent, int attempt) {
+        if (e instanceof ResourceException) {
+            ResourceException resourceException = (ResourceException) e;
+            int status = resourceException.getStatus();
+            if (status == 429) {
+                return rateLimitDelay(resourceException.getHeaders(), attempt);
+            }
+            return idempotent && TRANSIENT_STATUS.contains(status) ? backoff(attempt) : -1;
+        }
+        return idempotent && e instanceof HttpException ? backoff(attempt) : -1;
+    }
+
+    private long rateLimitDelay(Map<String, List<String>> headers, int attempt) {
+        Long reset = longHeader(headers, RATE_LIMIT_RESET);
+        if (reset == null) {
+            return backoff(attempt);
+        }
+
+        // use the server's clock when possible, the reset time is relative to it
+        long now = dateHeader(headers);
+        long delay = Math.max(0, reset * 1000 - now);
+        if (delay > maxRateLimitWait.toMillis()) {
+            LOG.warn("Okta rate limit resets in {} seconds, not retrying", delay / 1000);
+            return -1;
+        }
+        LOG.info("Okta rate limit reached ({} remaining), waiting {} ms until it resets", longHeader(headers, RATE_LIMIT_REMAINING), delay);
+        return delay;
+    }
+
+    /**
+     * Exponential backoff with "full jitter", a random delay between zero and the exponential delay, so concurrent
+     * callers do not retry at the same time.
+     */
+    private long backoff(int attempt) {
+        long exponential = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(exponential + 1);
+    }
+
+    private void sleep(long millis, RuntimeException cause) {
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cause.addSuppressed(e);
+            throw cause;
+        }
+    }
+
+    private static Long longHeader(Map<String, List<String>> headers, String name) {
+        String value = header(headers, name);
+        try {
+            return value != null ? Long.parseLong(value.trim()) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long dateHeader(Map<String, List<String>> headers) {
+        String value = header(headers, DATE);
+        if (value != null) {
+            try {
+                return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                LOG.debug("Invalid Date header: {}", value);
+            }
+        }
+        return System.currentTimeMillis();
+    }
+
+    private static String header(Map<String, List<String>> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        return headers.entrySet().stream()
+                .filter(entry -> name.equalsIgnoreCase(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .filter(values -> values != null && !values.isEmpty())
+                .map(values -> values.get(0))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+}
@@ -25,4 +25,10 @@ public interface AuthorizationServerService {
     Map<String, AuthorizationServer> authorizationServersMap(Client client);
 
     void createGroupClaim(Client client, String groupClaimName, String authorizationServerId);
+
+    /**
+     * Starts the lookups needed to create a group claim in the background, a following
+     * {@link #createGroupClaim(Client, String, String)} call uses their results. Does nothing by default.
+     */
+    default void prefetchGroupClaim(Client client, String authorizationServerId) {}
 }
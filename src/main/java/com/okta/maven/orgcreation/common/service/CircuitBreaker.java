@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import com.okta.maven.orgcreation.common.config.JsonStateFile;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Fails calls to a service fast while it is down, instead of waiting for every call to time out. The state of each
+ * service (by base URL) is kept in {@code ~/.okta/circuit-breakers.json}, so it is shared by every build on the machine.
+ * <ul>
+ *     <li><b>closed</b>: calls are made, 3 calls in a row that fail because the service is unavailable (an IO error, a
+ *     timeout, or a 5xx response) open the circuit. A rate limited call (429) is not a failure, it is handled by
+ *     waiting for the rate limit to reset.</li>
+ *     <li><b>open</b>: calls fail immediately with a {@link CircuitOpenException}, for 30 seconds, doubling (up to 5
+ *     minutes) each time the service is still down</li>
+ *     <li><b>half-open</b>: once the open period has passed, a single call is made as a probe, it closes the circuit
+ *     if it succeeds, other calls fail fast until it completes</li>
+ * </ul>
+ */
+public final class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final JsonStateFile<State> stateFile;
+
+    private final int failureThreshold;
+
+    private final Duration openDuration;
+
+    private final Duration maxOpenDuration;
+
+    private final Duration probeTimeout;
+
+    private final Clock clock;
+
+    /**
+     * @param failureThreshold the number of failures in a row that open the circuit
+     */
+    CircuitBreaker(File file, int failureThreshold, Duration openDuration, Duration maxOpenDuration, Duration probeTimeout, Clock clock) {
+        // forget services that have not failed for a while, the next failure starts over
+        this.stateFile = new JsonStateFile<>(file, "circuit breaker state", State.class, state -> {
+            long expired = clock.millis() - maxOpenDuration.toMillis();
+            return state.getLastFailure() < expired && state.getOpenUntil() < expired && state.getProbeUntil() < expired;
+        });
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.maxOpenDuration = maxOpenDuration;
+        this.probeTimeout = probeTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * A circuit breaker that is kept in {@code ~/.okta}, shared by every build on the machine.
+     */
+    public static CircuitBreaker inUserHome() {
+        return file(JsonStateFile.inUserHome("circuit-breakers.json"));
+    }
+
+    public static CircuitBreaker file(File file) {
+        return new CircuitBreaker(file, 3, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofMinutes(2), Clock.systemUTC());
+    }
+
+    /**
+     * A circuit breaker that is kept in memory, it is only shared within this JVM.
+     */
+    public static CircuitBreaker inMemory() {
+        return file(null);
+    }
+
+    /**
+     * Called before a call to {@code service}, throws a {@link CircuitOpenException} if the call must not be made.
+     */
+    public void acquire(String service) throws IOException {
+        String error = stateFile.update(states -> {
+            State state = states.get(service);
+            long now = clock.millis();
+            if (state == null || state.getOpenUntil() == 0) {
+                return null;
+            }
+            if (now < state.getOpenUntil()) {
+                return "The service has failed " + state.getFailures() + " time(s) in a row, not retrying for "
+                        + seconds(state.getOpenUntil() - now) + " seconds";
+            }
+            if (now < state.getProbeUntil()) {
+                return "Another build is checking if the service is available";
+            }
+            // half-open, this call is the probe
+            LOG.debug("Checking if {} is available", service);
+            state.setProbeUntil(now + probeTimeout.toMillis());
+            return null;
+        });
+        if (error != null) {
+            throw new CircuitOpenException(service + " is unavailable. " + error + ". Check your network connection, "
+                    + "or try again later.");
+        }
+    }
+
+    /**
+     * Called after a successful call to {@code service} (or a call the service rejected, it is available), closes the
+     * circuit.
+     */
+    public void succeeded(String service) {
+        stateFile.updateQuietly(states -> {
+            states.remove(service);
+            return null;
+        });
+    }
+
+    /**
+     * Called after a call to {@code service} failed because it is unavailable, opens the circuit once the service has
+     * failed {@code failureThreshold} times in a row.
+     */
+    public void failed(String service) {
+        stateFile.updateQuietly(states -> {
+            State state = states.computeIfAbsent(service, key -> new State());
+            state.setFailures(state.getFailures() + 1);
+            state.setLastFailure(clock.millis());
+            if (state.getFailures() < failureThreshold) {
+                LOG.debug("{} is unavailable ({} failure(s) in a row)", service, state.getFailures());
+                return null;
+            }
+            long open = Math.min(maxOpenDuration.toMillis(), openDuration.toMillis() << Math.min(state.getFailures() - failureThreshold, 10));
+            state.setOpenUntil(clock.millis() + open);
+            state.setProbeUntil(0);
+            LOG.debug("{} is unavailable, failing calls for {} seconds", service, seconds(open));
+            return null;
+        });
+    }
+
+    private static long seconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    @Data
+    @Accessors(chain = true)
+    static class State {
+        private int failures;
+        private long lastFailure;
+        private long openUntil;
+        private long probeUntil;
+    }
+}
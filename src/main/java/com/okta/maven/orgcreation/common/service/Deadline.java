@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The time budget of a mojo execution, shared by every step and remote call it makes. Each call is given the remaining
+ * time as its timeout, and a deadline can be canceled (e.g. on Ctrl-C), which aborts the running calls and closes the
+ * progress bars registered with {@link #onCancel(Runnable)}. The time spent waiting for the user is excluded with
+ * {@link #paused(Supplier)}.
+ * <pre>
+ * Deadline deadline = Deadline.after(Duration.ofMinutes(5));
+ * try (Deadline.Registration hook = deadline.cancelOnShutdown()) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class Deadline {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Runs the calls made with {@link #call(String, Supplier)}, the caller stops waiting when the deadline expires or
+     * is canceled, and the call is aborted. The threads are daemons, so they never keep the JVM running.
+     */
+    private static final ExecutorService CALLS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "okta-call-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The call made by {@link #call(String, Supplier)} on each of the {@link #CALLS} threads.
+     */
+    private static final ThreadLocal<RunningCall> RUNNING = new ThreadLocal<>();
+
+    private final Duration timeout;
+
+    private final AtomicLong deadlineNanos = new AtomicLong();
+
+    private final List<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean canceled;
+
+    private Deadline(Duration timeout) {
+        this.timeout = timeout;
+        this.deadlineNanos.set(timeout != null ? System.nanoTime() + timeout.toNanos() : 0);
+    }
+
+    /**
+     * A deadline that never expires, it can still be canceled.
+     */
+    public static Deadline none() {
+        return new Deadline(null);
+    }
+
+    /**
+     * A deadline that expires after {@code timeout}, or never if the timeout is {@code null}, zero, or negative.
+     */
+    public static Deadline after(Duration timeout) {
+        return timeout != null && !timeout.isNegative() && !timeout.isZero() ? new Deadline(timeout) : none();
+    }
+
+    public boolean isBounded() {
+        return timeout != null;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    public boolean isExpired() {
+        return canceled || (isBounded() && deadlineNanos.get() - System.nanoTime() <= 0);
+    }
+
+    /**
+     * Returns the time left, or {@code null} if this deadline is not bounded.
+     */
+    public Duration remaining() {
+        return isBounded() ? Duration.ofNanos(Math.max(0, deadlineNanos.get() - System.nanoTime())) : null;
+    }
+
+    /**
+     * Returns the time left in milliseconds (at least 1), to be used as the timeout of a call, or
+     * {@code defaultMillis} if this deadline is not bounded.
+     */
+    public int timeoutMillis(int defaultMillis) {
+        if (!isBounded()) {
+            return defaultMillis;
+        }
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos.get() - System.nanoTime());
+        return (int) Math.max(1, Math.min(remaining, defaultMillis > 0 ? defaultMillis : Integer.MAX_VALUE));
+    }
+
+    /**
+     * Runs {@code prompt} (e.g. waiting for the user to type a verification code), the time it takes does not count
+     * against this deadline. Canceling the deadline still works while paused.
+     */
+    public <T> T paused(Supplier<T> prompt) {
+        long start = System.nanoTime();
+        try {
+            return prompt.get();
+        } finally {
+            deadlineNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Throws a {@link DeadlineExceededException} if this deadline was canceled or has expired.
+     */
+    public void check(String operation) {
+        if (isExpired()) {
+            throw exceeded(operation, null);
+        }
+    }
+
+    /**
+     * Returns the exception thrown when {@code operation} was canceled or did not complete in time.
+     */
+    public DeadlineExceededException exceeded(String operation, Throwable cause) {
+        if (canceled) {
+            return new DeadlineExceededException("'" + operation + "' was canceled", cause);
+        }
+        return new DeadlineExceededException("'" + operation + "' did not complete within the timeout of "
+                + timeout.getSeconds() + " seconds (okta.timeout)", cause);
+    }
+
+    /**
+     * Makes a blocking call, waiting at most the remaining time for it to complete. The wait is abandoned when the
+     * deadline expires, is canceled, or the calling thread is interrupted, the thread making the call is then
+     * interrupted and the requests registered with {@link #onAbort(Runnable)} are aborted. Calls are always made on
+     * another thread, so a deadline that is not bounded can still be canceled.
+     * <p>
+     * A call that is not idempotent (e.g. creating an application) may have reached the server before it was
+     * aborted, and so may still take effect after this method has thrown a {@link DeadlineExceededException}.
+     */
+    public <T> T call(String operation, Supplier<T> call) {
+        check(operation);
+
+        RunningCall running = new RunningCall(this);
+        Future<T> future = CALLS.submit(() -> {
+            RUNNING.set(running);
+            try {
+                return call.get();
+            } finally {
+                RUNNING.remove();
+            }
+        });
+        try (Registration ignored = onCancel(() -> abort(future, running))) {
+            return isBounded()
+                    ? future.get(Math.max(0, deadlineNanos.get() - System.nanoTime()), TimeUnit.NANOSECONDS)
+                    : future.get();
+        } catch (TimeoutException e) {
+            abort(future, running);
+            throw exceeded(operation, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(future, running);
+            throw new DeadlineExceededException("'" + operation + "' was interrupted", e);
+        } catch (CancellationException e) {
+            throw exceeded(operation, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Returns the deadline of the {@link #call(String, Supplier) call} running on the current thread, or {@code null}
+     * if this thread is not making one.
+     */
+    static Deadline current() {
+        RunningCall running = RUNNING.get();
+        return running != null ? running.deadline : null;
+    }
+
+    /**
+     * Runs {@code abort} (e.g. aborting an HTTP request, which an interrupt does not) when the
+     * {@link #call(String, Supplier) call} running on the current thread is abandoned. Does nothing if this thread is
+     * not making a call.
+     */
+    static Registration onAbort(Runnable abort) {
+        RunningCall running = RUNNING.get();
+        if (running == null) {
+            return () -> { };
+        }
+        running.abortListeners.add(abort);
+        if (running.aborted) {
+            abort.run();
+        }
+        return () -> running.abortListeners.remove(abort);
+    }
+
+    private static void abort(Future<?> future, RunningCall running) {
+        running.aborted = true;
+        future.cancel(true);
+        for (Runnable listener : running.abortListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Runs {@code listener} when this deadline is canceled (immediately, if it already was), until the returned
+     * registration is closed.
+     */
+    public Registration onCancel(Runnable listener) {
+        cancelListeners.add(listener);
+        if (canceled) {
+            listener.run();
+        }
+        return () -> cancelListeners.remove(listener);
+    }
+
+    /**
+     * Cancels this deadline, running calls are aborted and the cancel listeners are run.
+     */
+    public void cancel() {
+        canceled = true;
+        for (Runnable listener : cancelListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Cancels this deadline when the JVM shuts down (e.g. Ctrl-C), until the returned registration is closed.
+     */
+    public Registration cancelOnShutdown() {
+        Thread hook = new Thread(this::cancel, "okta-deadline-cancel");
+        Runtime.getRuntime().addShutdownHook(hook);
+        return () -> {
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException e) {
+                // the JVM is already shutting down
+            }
+        };
+    }
+
+    private static final class RunningCall {
+
+        private final Deadline deadline;
+
+        private final List<Runnable> abortListeners = new CopyOnWriteArrayList<>();
+
+        private volatile boolean aborted;
+
+        private RunningCall(Deadline deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+/**
+ * The HTTP client of the Okta SDK, made aware of the {@link Deadline} of the call it is used in: the connect and read
+ * timeouts of each request are limited to the time left, and the request is aborted when the call is abandoned.
+ */
+final class DeadlineHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    DeadlineHttpClient(CloseableHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            if (deadline.isBounded() && request instanceof HttpRequestBase) {
+                HttpRequestBase requestBase = (HttpRequestBase) request;
+                RequestConfig config = requestConfig(requestBase);
+                requestBase.setConfig(RequestConfig.copy(config)
+                        .setConnectTimeout(deadline.timeoutMillis(config.getConnectTimeout()))
+                        .setConnectionRequestTimeout(deadline.timeoutMillis(config.getConnectionRequestTimeout()))
+                        .setSocketTimeout(deadline.timeoutMillis(config.getSocketTimeout()))
+                        .build());
+            }
+            if (request instanceof HttpUriRequest) {
+                // kept until the call ends, the SDK reads the response body after this method returns
+                Deadline.onAbort(((HttpUriRequest) request)::abort);
+            }
+        }
+        return delegate.execute(target, request, context);
+    }
+
+    private RequestConfig requestConfig(HttpRequestBase request) {
+        if (request.getConfig() != null) {
+            return request.getConfig();
+        }
+        if (delegate instanceof Configurable && ((Configurable) delegate).getConfig() != null) {
+            return ((Configurable) delegate).getConfig();
+        }
+        return RequestConfig.DEFAULT;
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
@@ -17,6 +17,7 @@ package com.okta.maven.orgcreation.common.service;
 
 import com.okta.maven.orgcreation.common.model.AuthorizationServer;
 import com.okta.maven.orgcreation.common.model.AuthorizationServerList;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
 import com.okta.commons.lang.Assert;
 import com.okta.sdk.client.Client;
 import com.okta.sdk.resource.ExtensibleResource;
@@ -28,17 +29,44 @@ import java.util.stream.Collectors;
 
 public class DefaultAuthorizationServerService implements AuthorizationServerService {
 
+    private final SingleFlight singleFlight;
+
+    private final ReferenceDataCache referenceDataCache;
+
+    private final ApiRequestExecutor requestExecutor;
+
+    public DefaultAuthorizationServerService() {
+        this(SingleFlight.shared());
+    }
+
+    public DefaultAuthorizationServerService(SingleFlight singleFlight) {
+        this(singleFlight, ReferenceDataCache.none(), new MetricsRegistry());
+    }
+
+    public DefaultAuthorizationServerService(SingleFlight singleFlight, ReferenceDataCache referenceDataCache, MetricsRegistry metrics) {
+        this(singleFlight, referenceDataCache, new ApiRequestExecutor(metrics));
+    }
+
+    public DefaultAuthorizationServerService(SingleFlight singleFlight, ReferenceDataCache referenceDataCache, ApiRequestExecutor requestExecutor) {
+        this.singleFlight = singleFlight;
+        this.referenceDataCache = referenceDataCache;
+        this.requestExecutor = requestExecutor;
+    }
+
     @Override
     public Map<String, AuthorizationServer> authorizationServersMap(Client client) {
-        AuthorizationServerList asList = client.http().get("/api/v1/authorizationServers", AuthorizationServerList.class);
-        return asList.stream()
-                .collect(Collectors.toMap(as -> (String) as.get("id"), as -> as));
+        List<Object> key = SingleFlight.key(client, "authorizationServersMap");
+        return referenceDataCache.get(key, () -> singleFlight.execute(key, () -> {
+            AuthorizationServerList asList = requestExecutor.retryable(client, "okta.listAuthorizationServers", null, () ->
+                    client.http().get("/api/v1/authorizationServers", AuthorizationServerList.class));
+            return asList.stream()
+                    .collect(Collectors.toMap(as -> (String) as.get("id"), as -> as));
+        }));
     }
 
     private boolean containsGroupClaim(Client client, String groupClaimName, String authorizationServerId) {
         Assert.hasText(groupClaimName, "Group claim name cannot be empty");
-        ExtensibleResource claims = client.http()
-                .get("/api/v1/authorizationServers/" + authorizationServerId + "/claims", ExtensibleResource.class);
+        ExtensibleResource claims = singleFlight.execute(claimsKey(client, authorizationServerId), () -> listClaims(client, authorizationServerId));
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> items = (List<Map<String, Object>>) claims.get("items");
 
@@ -46,8 +74,30 @@ public class DefaultAuthorizationServerService implements AuthorizationServerSer
                 .anyMatch(it -> groupClaimName.equals(it.get("name")));
     }
 
+    private ExtensibleResource listClaims(Client client, String authorizationServerId) {
+        return requestExecutor.retryable(client, "okta.listClaims", null, () -> client.http()
+                .get("/api/v1/authorizationServers/" + authorizationServerId + "/claims", ExtensibleResource.class));
+    }
+
+    private static List<Object> claimsKey(Client client, String authorizationServerId) {
+        return SingleFlight.key(client, "listClaims", authorizationServerId);
+    }
+
+    @Override
+    public void prefetchGroupClaim(Client client, String authorizationServerId) {
+        singleFlight.prefetch(claimsKey(client, authorizationServerId), () -> listClaims(client, authorizationServerId));
+    }
+
     @Override
     public void createGroupClaim(Client client, String groupClaimName, String authorizationServerId) {
+        // concurrent requests for the same claim share a single check/create
+        singleFlight.execute(SingleFlight.key(client, "createGroupClaim", authorizationServerId, groupClaimName), () -> {
+            createGroupClaimIfMissing(client, groupClaimName, authorizationServerId);
+            return null;
+        });
+    }
+
+    private void createGroupClaimIfMissing(Client client, String groupClaimName, String authorizationServerId) {
 
         // first check if the claim exists
         if (!containsGroupClaim(client, groupClaimName, authorizationServerId)) {
@@ -64,9 +114,11 @@ public class DefaultAuthorizationServerService implements AuthorizationServerSer
             conditions.put("scopes", Collections.emptyList());
             claimResource.put("conditions", conditions);
 
-            client.http()
+            requestExecutor.execute(client, "okta.createClaim", null, () -> client.http()
                     .setBody(claimResource)
-                    .post("/api/v1/authorizationServers/" + authorizationServerId + "/claims", ExtensibleResource.class);
+                    .post("/api/v1/authorizationServers/" + authorizationServerId + "/claims", ExtensibleResource.class));
+            // a prefetched list would not contain the new claim
+            singleFlight.forget(claimsKey(client, authorizationServerId));
         }
     }
 }
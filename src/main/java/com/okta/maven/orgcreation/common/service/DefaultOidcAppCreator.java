@@ -15,6 +15,7 @@
  */
 package com.okta.maven.orgcreation.common.service;
 
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
 import com.okta.sdk.client.Client;
 import com.okta.sdk.resource.ExtensibleResource;
 import com.okta.sdk.resource.application.Application;
@@ -33,19 +34,43 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class DefaultOidcAppCreator implements OidcAppCreator {
 
+    private final SingleFlight singleFlight;
+
+    private final ReferenceDataCache referenceDataCache;
+
+    private final ApiRequestExecutor requestExecutor;
+
+    public DefaultOidcAppCreator() {
+        this(SingleFlight.shared());
+    }
+
+    public DefaultOidcAppCreator(SingleFlight singleFlight) {
+        this(singleFlight, ReferenceDataCache.none(), new MetricsRegistry());
+    }
+
+    public DefaultOidcAppCreator(SingleFlight singleFlight, ReferenceDataCache referenceDataCache, MetricsRegistry metrics) {
+        this(singleFlight, referenceDataCache, new ApiRequestExecutor(metrics));
+    }
+
+    public DefaultOidcAppCreator(SingleFlight singleFlight, ReferenceDataCache referenceDataCache, ApiRequestExecutor requestExecutor) {
+        this.singleFlight = singleFlight;
+        this.referenceDataCache = referenceDataCache;
+        this.requestExecutor = requestExecutor;
+    }
+
     @Override
     public ExtensibleResource createOidcApp(Client client, String oidcAppName, String... redirectUris) {
 
-        Optional<Application> existingApp = getApplication(client, oidcAppName);
-
-        // create a new OIDC app if one does NOT exist
-        Application oidcApplication = existingApp.orElseGet(() -> {
+        return findOrCreate(client, oidcAppName, () -> {
 
             OpenIdConnectApplicationSettingsClient oauthClient = client.instantiate(OpenIdConnectApplicationSettingsClient.class)
                     .setRedirectUris(Arrays.asList(redirectUris))
@@ -69,23 +94,14 @@ public class DefaultOidcAppCreator implements OidcAppCreator {
                 .setSettings(client.instantiate(OpenIdConnectApplicationSettings.class)
                     .setOAuthClient(oauthClient))
                 .setLabel(oidcAppName);
-            app = client.createApplication(app);
-            assignAppToEveryoneGroup(client, app);
-
-            return app;
+            return requestExecutor.execute(client, "okta.createApplication", oidcAppName, () -> client.createApplication(app));
         });
-
-        // lookup the credentials for this application
-        return getClientCredentials(client, oidcApplication);
     }
 
     @Override
     public ExtensibleResource createOidcNativeApp(Client client, String oidcAppName, String... redirectUris) {
 
-        Optional<Application> existingApp = getApplication(client, oidcAppName);
-
-        // create a new OIDC app if one does NOT exist
-        Application oidcApplication = existingApp.orElseGet(() -> {
+        return findOrCreate(client, oidcAppName, () -> {
 
             OpenIdConnectApplicationSettingsClient oauthClient = client.instantiate(OpenIdConnectApplicationSettingsClient.class)
                     .setRedirectUris(Arrays.asList(redirectUris))
@@ -104,23 +120,14 @@ public class DefaultOidcAppCreator implements OidcAppCreator {
             // TODO expose post_logout_redirect_uris setting to the user
             // for mobile apps this is likely to be something like protocol://logout
 
-            app = client.createApplication(app);
-            assignAppToEveryoneGroup(client, app);
-
-            return app;
+            return requestExecutor.execute(client, "okta.createApplication", oidcAppName, () -> client.createApplication(app));
         });
-
-        // lookup the credentials for this application
-        return getClientCredentials(client, oidcApplication);
     }
 
     @Override
     public ExtensibleResource createOidcSpaApp(Client client, String oidcAppName, String... redirectUris) {
 
-        Optional<Application> existingApp = getApplication(client, oidcAppName);
-
-        // create a new OIDC app if one does NOT exist
-        Application oidcApplication = existingApp.orElseGet(() -> {
+        return findOrCreate(client, oidcAppName, () -> {
 
             OpenIdConnectApplicationSettingsClient oauthClient = client.instantiate(OpenIdConnectApplicationSettingsClient.class)
                     .setRedirectUris(Arrays.asList(redirectUris))
@@ -148,23 +155,14 @@ public class DefaultOidcAppCreator implements OidcAppCreator {
                             .setOAuthClient(client.instantiate(ApplicationCredentialsOAuthClient.class)
                                     .setTokenEndpointAuthMethod(OAuthEndpointAuthenticationMethod.NONE)));
 
-            app = client.createApplication(app);
-            assignAppToEveryoneGroup(client, app);
-
-            return app;
+            return requestExecutor.execute(client, "okta.createApplication", oidcAppName, () -> client.createApplication(app));
         });
-
-        // lookup the credentials for this application
-        return getClientCredentials(client, oidcApplication);
     }
 
     @Override
     public ExtensibleResource createOidcServiceApp(Client client, String oidcAppName, String... redirectUris) {
 
-        Optional<Application> existingApp = getApplication(client, oidcAppName);
-
-        // create a new OIDC app if one does NOT exist
-        Application oidcApplication = existingApp.orElseGet(() -> {
+        return findOrCreate(client, oidcAppName, () -> {
 
             Application app = client.instantiate(OpenIdConnectApplication.class)
                     .setSettings(client.instantiate(OpenIdConnectApplicationSettings.class)
@@ -175,32 +173,84 @@ public class DefaultOidcAppCreator implements OidcAppCreator {
                                     .setApplicationType(OpenIdConnectApplicationType.SERVICE)))
                     .setLabel(oidcAppName);
 
-            app = client.createApplication(app);
-            assignAppToEveryoneGroup(client, app);
-
-            return app;
+            return requestExecutor.execute(client, "okta.createApplication", oidcAppName, () -> client.createApplication(app));
         });
+    }
+
+    @Override
+    public void prefetch(Client client, String oidcAppName) {
+        singleFlight.prefetch(applicationKey(client, oidcAppName), () -> findApplication(client, oidcAppName));
+        // loads through the cache, so nothing is requested if the id is already cached
+        List<Object> key = everyoneGroupKey(client);
+        singleFlight.prefetch(key, () -> referenceDataCache.get(key, () -> findEveryoneGroupId(client)));
+    }
+
+    /**
+     * Looks up an application by label and creates it if it does NOT exist. Concurrent requests for the same label
+     * (e.g. from a parallel build) share a single lookup/create, whatever the application type, so only one application
+     * is created for a label, the same way an existing application is found by its label.
+     */
+    private ExtensibleResource findOrCreate(Client client, String oidcAppName, Supplier<Application> createApplication) {
+
+        return singleFlight.execute(SingleFlight.key(client, "findOrCreateApplication", oidcAppName.toLowerCase(Locale.ENGLISH)), () -> {
+
+            Optional<Application> existingApp = getApplication(client, oidcAppName);
+
+            // create a new OIDC app if one does NOT exist
+            Application oidcApplication;
+            try {
+                oidcApplication = existingApp.orElseGet(() -> {
+                    Application app = createApplication.get();
+                    // a prefetched lookup would not find the new application
+                    singleFlight.forget(applicationKey(client, oidcAppName));
+                    assignAppToEveryoneGroup(client, app);
+                    return app;
+                });
+            } finally {
+                // drop the prefetched group id if it was not needed
+                singleFlight.forget(everyoneGroupKey(client));
+            }
 
-        // lookup the credentials for this application
-        return getClientCredentials(client, oidcApplication);
+            // lookup the credentials for this application
+            return getClientCredentials(client, oidcApplication);
+        });
     }
 
     private Optional<Application> getApplication(Client client, String appName) {
-        return client.listApplications(appName, null, null, null).stream()
+        return singleFlight.execute(applicationKey(client, appName), () -> findApplication(client, appName));
+    }
+
+    private Optional<Application> findApplication(Client client, String appName) {
+        return requestExecutor.retryable(client, "okta.listApplications", appName, () -> client.listApplications(appName, null, null, null).stream()
                 .filter(app -> appName.equalsIgnoreCase(app.getLabel()))
-                .findFirst();
+                .findFirst());
+    }
+
+    private static List<Object> applicationKey(Client client, String appName) {
+        return SingleFlight.key(client, "getApplication", appName.toLowerCase(Locale.ENGLISH));
     }
 
     private ExtensibleResource getClientCredentials(Client client, Application application) {
-        return client.http()
-                .get("/api/v1/internal/apps/" + application.getId() + "/settings/clientcreds", ExtensibleResource.class);
+        return singleFlight.execute(SingleFlight.key(client, "getClientCredentials", application.getId()), () ->
+                requestExecutor.retryable(client, "okta.getClientCredentials", application.getLabel(), () -> client.http()
+                    .get("/api/v1/internal/apps/" + application.getId() + "/settings/clientcreds", ExtensibleResource.class)));
     }
 
     private void assignAppToEveryoneGroup(Client client, Application app) {
         // look up 'everyone' group id
-        String everyoneGroupId = client.listGroups("everyone", null, null).single().getId();
+        List<Object> key = everyoneGroupKey(client);
+        String everyoneGroupId = referenceDataCache.get(key, () -> singleFlight.execute(key, () -> findEveryoneGroupId(client)));
 
         ApplicationGroupAssignment aga = client.instantiate(ApplicationGroupAssignment.class).setPriority(2);
-        app.createApplicationGroupAssignment(everyoneGroupId, aga);
+        // PUT, assigning the same group again is a no-op
+        requestExecutor.retryable(client, "okta.assignApplicationGroup", app.getLabel(), () -> app.createApplicationGroupAssignment(everyoneGroupId, aga));
+    }
+
+    private String findEveryoneGroupId(Client client) {
+        return requestExecutor.retryable(client, "okta.getEveryoneGroup", null, () -> client.listGroups("everyone", null, null).single().getId());
+    }
+
+    private static List<Object> everyoneGroupKey(Client client) {
+        return SingleFlight.key(client, "getEveryoneGroupId");
     }
-}
\ No newline at end of file
+}
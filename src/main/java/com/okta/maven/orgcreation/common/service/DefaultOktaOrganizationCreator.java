@@ -19,86 +19,439 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.okta.maven.orgcreation.common.FactorVerificationException;
 import com.okta.maven.orgcreation.common.RestException;
+import com.okta.maven.orgcreation.common.http.HttpTransport;
+import com.okta.maven.orgcreation.common.http.HttpTransports;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
+import com.okta.maven.orgcreation.common.metrics.Sample;
 import com.okta.maven.orgcreation.common.model.ErrorResponse;
 import com.okta.maven.orgcreation.common.model.OrganizationRequest;
 import com.okta.maven.orgcreation.common.model.OrganizationResponse;
 import com.okta.commons.lang.ApplicationInfo;
-import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class DefaultOktaOrganizationCreator implements OktaOrganizationCreator {
 
     private static final String APPLICATION_JSON = "application/json";
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
     private static final Logger LOG = LoggerFactory.getLogger(DefaultOktaOrganizationCreator.class);
 
     private static final String USER_AGENT_STRING = ApplicationInfo.get().entrySet().stream()
             .map(e -> e.getKey() + "/" + e.getValue())
             .collect(Collectors.joining(" "));
 
-    ObjectMapper objectMapper = new ObjectMapper()
+    private final ObjectMapper objectMapper = new ObjectMapper()
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
+    /**
+     * The connect and read timeout of each request, when the deadline is not bounded or is further away.
+     */
+    private static final int DEFAULT_TIMEOUT_MILLIS = 60_000;
 
+    /**
+     * The connect timeout of each request, a failed connection is retried instead of waiting for it.
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+
+    private static final int MAX_CREATE_ATTEMPTS = 3;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Runs hedged calls, a call that lost the race is left to complete (bounded by its timeout) on a daemon thread.
+     */
+    private static final ExecutorService HEDGED_CALLS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "okta-hedged-call-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MetricsRegistry metrics;
+
+    private final Deadline deadline;
+
+    private final IdempotencyKeyStore idempotencyKeys;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Duration retryDelay;
+
+    private final Function<String, RegistrationEndpoints> endpoints;
+
+    private final HttpTransport transport;
+
+    public DefaultOktaOrganizationCreator() {
+        this(new MetricsRegistry());
+    }
+
+    public DefaultOktaOrganizationCreator(MetricsRegistry metrics) {
+        this(metrics, Deadline.none());
+    }
+
+    /**
+     * @param deadline each request's timeout is the time remaining, and requests are aborted when it is canceled
+     */
+    public DefaultOktaOrganizationCreator(MetricsRegistry metrics, Deadline deadline) {
+        this(metrics, deadline, IdempotencyKeyStore.inMemory());
+    }
+
+    /**
+     * @param idempotencyKeys the keys of pending registrations, a registration that is retried or restarted is sent with
+     *                        the same key
+     */
+    public DefaultOktaOrganizationCreator(MetricsRegistry metrics, Deadline deadline, IdempotencyKeyStore idempotencyKeys) {
+        this(metrics, deadline, idempotencyKeys, CircuitBreaker.inMemory());
+    }
+
+    /**
+     * @param circuitBreaker fails calls fast while the registration service is unavailable
+     */
+    public DefaultOktaOrganizationCreator(MetricsRegistry metrics, Deadline deadline, IdempotencyKeyStore idempotencyKeys, CircuitBreaker circuitBreaker) {
+        this(metrics, deadline, idempotencyKeys, circuitBreaker, HttpTransports.getDefault());
+    }
+
+    /**
+     * @param transport sends the requests to the registration service
+     */
+    public DefaultOktaOrganizationCreator(MetricsRegistry metrics, Deadline deadline, IdempotencyKeyStore idempotencyKeys, CircuitBreaker circuitBreaker, HttpTransport transport) {
+        this(metrics, deadline, idempotencyKeys, circuitBreaker, Duration.ofSeconds(1), RegistrationEndpoints::forBaseUrls, transport);
+    }
+
+    DefaultOktaOrganizationCreator(MetricsRegistry metrics, Deadline deadline, IdempotencyKeyStore idempotencyKeys, CircuitBreaker circuitBreaker, Duration retryDelay) {
+        this(metrics, deadline, idempotencyKeys, circuitBreaker, retryDelay, RegistrationEndpoints::forBaseUrls, HttpTransports.getDefault());
+    }
+
+    DefaultOktaOrganizationCreator(MetricsRegistry metrics, Deadline deadline, IdempotencyKeyStore idempotencyKeys, CircuitBreaker circuitBreaker, Duration retryDelay, Function<String, RegistrationEndpoints> endpoints, HttpTransport transport) {
+        this.metrics = metrics;
+        this.deadline = deadline;
+        this.idempotencyKeys = idempotencyKeys;
+        this.circuitBreaker = circuitBreaker;
+        this.retryDelay = retryDelay;
+        this.endpoints = endpoints;
+        this.transport = transport;
+    }
+
+    /**
+     * Creates a new org, the request is sent with an idempotency key, so it is retried after an IO error or a server
+     * error (5xx or 429) without creating a second org. When {@code apiBaseUrl} is a list of endpoints, the fastest one
+     * is used, and the request fails over to the next one while an endpoint is unavailable (with the same key).
+     */
     @Override
     public OrganizationResponse createNewOrg(String apiBaseUrl, OrganizationRequest orgRequest) throws RestException, IOException {
 
-        String url = apiBaseUrl + "/create";
         String postBody = objectMapper.writeValueAsString(orgRequest);
-        return post(url, postBody, OrganizationResponse.class);
+        String idempotencyKey = idempotencyKeys.keyFor(apiBaseUrl, orgRequest);
+        RegistrationEndpoints registrationEndpoints = endpoints.apply(apiBaseUrl);
+
+        Exception failure = null;
+        for (String endpoint : registrationEndpoints.ranked(transport, deadline)) {
+            try {
+                return createNewOrg(registrationEndpoints, endpoint, postBody, idempotencyKey);
+            } catch (RestException | IOException e) {
+                if (!isUnavailable(e)) {
+                    throw e;
+                }
+                LOG.debug("Registration endpoint {} is unavailable: {}", endpoint, e.getMessage());
+                failure = e;
+            }
+        }
+        return rethrow(failure);
     }
 
+    private OrganizationResponse createNewOrg(RegistrationEndpoints registrationEndpoints, String endpoint, String postBody, String idempotencyKey) throws RestException, IOException {
+        return withCircuitBreaker(endpoint, () -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    OrganizationResponse response = post("okta.createOrg", registrationEndpoints, endpoint, "/create", postBody, idempotencyKey, OrganizationResponse.class);
+                    idempotencyKeys.created(idempotencyKey, response.getId());
+                    return response;
+                } catch (RestException e) {
+                    if (!isUnavailable(e)) {
+                        idempotencyKeys.rejected(idempotencyKey);
+                        throw e;
+                    }
+                    retryLater(attempt, e);
+                } catch (IOException e) {
+                    retryLater(attempt, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Verifies a new org, when {@code apiBaseUrl} is a list of endpoints the call is {@link #hedged hedged}, verifying
+     * the same code again is idempotent.
+     */
     @Override
     public OrganizationResponse verifyNewOrg(String apiBaseUrl, String identifier, String code) throws FactorVerificationException, IOException {
 
-        String url = apiBaseUrl + "/verify/" + identifier;
+        String path = "/verify/" + identifier;
         String postBody = "{\"code\":\"" + code + "\"}";
+        RegistrationEndpoints registrationEndpoints = endpoints.apply(apiBaseUrl);
+        EndpointCall<OrganizationResponse> verify = endpoint -> withCircuitBreaker(endpoint,
+                () -> post("okta.verifyOrg", registrationEndpoints, endpoint, path, postBody, null, OrganizationResponse.class));
 
         try {
-            return post(url, postBody, OrganizationResponse.class);
+            OrganizationResponse response = registrationEndpoints.isMultiple()
+                    ? hedged(registrationEndpoints, "okta.verifyOrg", verify)
+                    : verify.call(registrationEndpoints.urls().get(0));
+            idempotencyKeys.verified(identifier);
+            return response;
         } catch (RestException e) {
             throw new FactorVerificationException(e.getErrorResponse(), e);
         }
     }
 
-    private <T> T post(String url, String body, Class<T> responseType) throws RestException, IOException {
+    @Override
+    public void warmUp(String apiBaseUrl) {
+        LOG.debug("Opening a connection to {}", apiBaseUrl);
+        endpoints.apply(apiBaseUrl).warmUp(transport);
+    }
+
+    /**
+     * Makes an idempotent call to the fastest endpoint, and a hedged call to the next endpoint when the first one takes
+     * longer than the fastest endpoint's {@link RegistrationEndpoints#hedgeDelay(String) hedge delay}, or fails because the endpoint is unavailable. The first response wins, a rejection
+     * (4xx) is only returned once no other call can succeed. Calls that lost are left to complete, so the latency of
+     * their endpoint is still measured.
+     */
+    private <T> T hedged(RegistrationEndpoints registrationEndpoints, String operation, EndpointCall<T> call) throws RestException, IOException {
+
+        Deque<String> remaining = new ArrayDeque<>(registrationEndpoints.ranked(transport, deadline));
+        CompletionService<T> calls = new ExecutorCompletionService<>(HEDGED_CALLS);
+
+        String first = remaining.removeFirst();
+        long hedgeDelayNanos = registrationEndpoints.hedgeDelay(first).toNanos();
+        calls.submit(() -> call.call(first));
+        int pending = 1;
+        Exception failure = null;
+        try {
+            while (pending > 0) {
+                Future<T> done = remaining.isEmpty()
+                        ? calls.take()
+                        : calls.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    String next = remaining.removeFirst();
+                    LOG.debug("'{}' is slower than {} ms, hedging with {}", operation, TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos), next);
+                    calls.submit(() -> call.call(next));
+                    pending++;
+                    continue;
+                }
+
+                pending--;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (!(cause instanceof RestException) && !(cause instanceof IOException)) {
+                        throw rethrowUnchecked(cause);
+                    }
+                    // prefer a rejection, it is the answer of an available endpoint
+                    if (failure == null || isUnavailable(failure)) {
+                        failure = (Exception) cause;
+                    }
+                    if (isUnavailable((Exception) cause) && !remaining.isEmpty()) {
+                        String next = remaining.removeFirst();
+                        calls.submit(() -> call.call(next));
+                        pending++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for '" + operation + "'");
+        }
+        return rethrow(failure);
+    }
+
+    /**
+     * Makes a call to the registration service, unless it is known to be unavailable. Calls that fail with an IO error,
+     * a timeout, or a server error (5xx) count towards opening the circuit, a rate limited call (429) does not.
+     */
+    private <T> T withCircuitBreaker(String apiBaseUrl, RestCall<T> call) throws RestException, IOException {
+        circuitBreaker.acquire(apiBaseUrl);
+        try {
+            T result = call.call();
+            circuitBreaker.succeeded(apiBaseUrl);
+            return result;
+        } catch (RestException e) {
+            if (e.getErrorResponse().getStatus() >= 500) {
+                circuitBreaker.failed(apiBaseUrl);
+            } else {
+                circuitBreaker.succeeded(apiBaseUrl);
+            }
+            throw e;
+        } catch (IOException e) {
+            circuitBreaker.failed(apiBaseUrl);
+            throw e;
+        } catch (DeadlineExceededException e) {
+            if (!deadline.isCanceled()) {
+                circuitBreaker.failed(apiBaseUrl);
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isUnavailable(RestException e) {
+        int status = e.getErrorResponse().getStatus();
+        return status >= 500 || status == 429;
+    }
+
+    /**
+     * An IO error (including an open circuit) or a server error, another endpoint may succeed.
+     */
+    private static boolean isUnavailable(Exception e) {
+        return !(e instanceof RestException) || isUnavailable((RestException) e);
+    }
+
+    private static <T> T rethrow(Exception failure) throws RestException, IOException {
+        if (failure instanceof RestException) {
+            throw (RestException) failure;
+        }
+        throw (IOException) failure;
+    }
+
+    private static RuntimeException rethrowUnchecked(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * Waits before the next attempt of a failed create, or rethrows the failure if it must not be retried.
+     */
+    private <E extends Exception> void retryLater(int attempt, E failure) throws E {
+        long exponential = retryDelay.toMillis() << (attempt - 1);
+        long delay = ThreadLocalRandom.current().nextLong(exponential + 1);
+        if (attempt >= MAX_CREATE_ATTEMPTS || (deadline.isBounded() && delay >= deadline.remaining().toMillis())) {
+            throw failure;
+        }
+        LOG.debug("Retrying okta.createOrg in {} ms (attempt {} of {}): {}", delay, attempt + 1, MAX_CREATE_ATTEMPTS, failure.getMessage());
+        metrics.retry("okta.createOrg");
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.addSuppressed(new InterruptedIOException("Interrupted while waiting to retry"));
+            throw failure;
+        }
+    }
 
-        try (CloseableHttpClient httpClient = HttpClients.createDefault()) {
-            HttpPost post = new HttpPost(url);
+    private <T> T post(String operation, RegistrationEndpoints registrationEndpoints, String endpoint, String path, String body, String idempotencyKey, Class<T> responseType) throws RestException, IOException {
+        Sample sample = metrics.start(operation);
+        long start = System.nanoTime();
+        try {
+            T result = execute(operation, url(endpoint, path), body, idempotencyKey, responseType, sample);
+            sample.stop();
+            registrationEndpoints.succeeded(endpoint, System.nanoTime() - start);
+            return result;
+        } catch (RestException e) {
+            sample.failed(e);
+            if (isUnavailable(e)) {
+                registrationEndpoints.failed(endpoint);
+            } else {
+                registrationEndpoints.succeeded(endpoint, System.nanoTime() - start);
+            }
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            sample.failed(e);
+            if (!deadline.isCanceled()) {
+                registrationEndpoints.failed(endpoint);
+            }
+            throw e;
+        }
+    }
 
-            post.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
-            post.setHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON);
-            post.setHeader(HttpHeaders.ACCEPT, APPLICATION_JSON);
-            post.setHeader(HttpHeaders.USER_AGENT, USER_AGENT_STRING);
+    /**
+     * Joins a base URL and a path, the default base URL ends with a slash.
+     */
+    private static String url(String baseUrl, String path) {
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) + path : baseUrl + path;
+    }
+
+    private <T> T execute(String operation, String url, String body, String idempotencyKey, Class<T> responseType, Sample sample) throws RestException, IOException {
+
+        deadline.check(operation);
+        int timeout = deadline.timeoutMillis(DEFAULT_TIMEOUT_MILLIS);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        HttpTransport.Request request = new HttpTransport.Request()
+                .setMethod("POST")
+                .setUrl(url)
+                .setBody(bytes)
+                .setConnectTimeoutMillis(Math.min(timeout, CONNECT_TIMEOUT_MILLIS))
+                .setTimeoutMillis(timeout)
+                .header(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT, APPLICATION_JSON)
+                .header(HttpHeaders.USER_AGENT, USER_AGENT_STRING);
+        if (idempotencyKey != null) {
+            request.header(IDEMPOTENCY_KEY, idempotencyKey);
+        }
+
+        CompletableFuture<HttpTransport.Response> call = transport.sendAsync(request);
+        try (Deadline.Registration ignored = deadline.onCancel(() -> call.cancel(true));
+             HttpTransport.Response response = HttpTransports.await(call)) {
 
-            HttpResponse response = httpClient.execute(post);
+            sample.httpStatus(response.status());
 
-            Header contentTypeHeader = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
-            if (contentTypeHeader == null || !contentTypeHeader.getValue().contains(APPLICATION_JSON)) {
+            String contentType = response.header(HttpHeaders.CONTENT_TYPE);
+            if (contentType == null || !contentType.contains(APPLICATION_JSON)) {
                 LOG.warn("Content-Type header was NOT set to {}, parsing the response may fail", APPLICATION_JSON);
             }
 
-            InputStream content = response.getEntity().getContent();
+            InputStream content = response.body();
+            sample.bytes(bytes.length + Math.max(0, response.contentLength()));
 
             // check for error
-            if (response.getStatusLine().getStatusCode() == 200) {
+            if (response.status() == 200) {
                 return objectMapper.reader().readValue(content, responseType);
             } else {
                 // assume error
                 ErrorResponse error = objectMapper.reader().readValue(content, ErrorResponse.class);
+                if (error.getStatus() == 0) {
+                    error.setStatus(response.status());
+                }
                 throw new RestException(error);
             }
+        } catch (IOException e) {
+            // an aborted or timed out request
+            if (deadline.isExpired()) {
+                throw deadline.exceeded(operation, e);
+            }
+            throw e;
         }
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    private interface RestCall<T> {
+        T call() throws RestException, IOException;
+    }
+
+    @FunctionalInterface
+    private interface EndpointCall<T> {
+        T call(String endpoint) throws RestException, IOException;
+    }
+}
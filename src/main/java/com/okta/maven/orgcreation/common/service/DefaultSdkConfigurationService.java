@@ -15,18 +15,14 @@
  */
 package com.okta.maven.orgcreation.common.service;
 
+import com.okta.maven.orgcreation.common.config.LockedFiles;
 import com.okta.sdk.impl.client.DefaultClientBuilder;
 import com.okta.sdk.impl.config.ClientConfiguration;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.lang.reflect.Field;
-import java.nio.charset.StandardCharsets;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.HashMap;
@@ -63,24 +59,14 @@ public class DefaultSdkConfigurationService implements SdkConfigurationService {
         clientOktaProps.put("orgUrl", orgUrl);
         clientOktaProps.put("token", apiToken);
 
-        File parentDir = oktaPropsFile.getParentFile();
-
-        // create parent dir
-        if (!(parentDir.exists() || parentDir.mkdirs())) {
-            throw new IOException("Unable to create directory: "+ parentDir.getAbsolutePath());
-        }
-
         Yaml yaml = new Yaml();
-        try (Writer writer = fileWriter(oktaPropsFile)){
-            yaml.dump(rootProps, writer);
-        }
+        LockedFiles.withProcessLock(oktaPropsFile, () -> {
+            LockedFiles.writeAtomically(oktaPropsFile, writer -> yaml.dump(rootProps, writer));
+            return null;
+        });
     }
 
     DefaultClientBuilder clientBuilder() {
         return new DefaultClientBuilder();
     }
-
-    private static Writer fileWriter(File file) throws FileNotFoundException {
-        return new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
-    }
 }
@@ -17,15 +17,18 @@ package com.okta.maven.orgcreation.common.service;
 
 import com.okta.maven.orgcreation.common.FactorVerificationException;
 import com.okta.maven.orgcreation.common.RestException;
+import com.okta.maven.orgcreation.common.config.InstrumentedPropertySource;
 import com.okta.maven.orgcreation.common.config.MutablePropertySource;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
+import com.okta.maven.orgcreation.common.metrics.TraceRecorder;
 import com.okta.maven.orgcreation.common.model.OrganizationRequest;
 import com.okta.maven.orgcreation.common.model.OrganizationResponse;
 import com.okta.maven.orgcreation.common.model.RegistrationQuestions;
 import com.okta.maven.orgcreation.common.progressbar.ProgressBar;
+import com.okta.maven.orgcreation.common.progressbar.ProgressBarFactory;
 import com.okta.commons.configcheck.ConfigurationValidator;
 import com.okta.commons.lang.Strings;
 import com.okta.sdk.client.Client;
-import com.okta.sdk.client.Clients;
 import com.okta.sdk.impl.config.ClientConfiguration;
 import com.okta.sdk.resource.ExtensibleResource;
 import com.okta.sdk.resource.application.OpenIdConnectApplicationType;
@@ -40,6 +43,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 public class DefaultSetupService implements SetupService {
 
@@ -53,30 +57,67 @@ public class DefaultSetupService implements SetupService {
 
     private final String springPropertyKey;
 
+    private final Supplier<Client> clientSupplier;
+
+    private final ProgressBarFactory progressBarFactory;
+
+    private final MetricsRegistry metrics;
+
+    private final Deadline deadline;
+
     /**
      * The base URL of the service used to create a new Okta account.
-     * This value is NOT exposed as a plugin parameter, but CAN be set using the env var {@code OKTA_CLI_BASE_URL}.
+     * This value is NOT exposed as a plugin parameter, but CAN be set using the env var {@code OKTA_CLI_BASE_URL}, as a
+     * comma separated list of endpoints, see {@link RegistrationEndpoints}.
      */
-    private String apiBaseUrl = "https://start.okta.dev/";
+    private final String apiBaseUrl = "https://start.okta.dev/";
 
-    public DefaultSetupService(String springPropertyKey) {
+    /**
+     * Creates the service with the default Okta Organization, application, and authorization server services.
+     *
+     * @param clientSupplier supplies the Okta Client used to create applications, allows a client to be reused across
+     *                       mojo executions
+     * @param referenceDataCache caches Okta Organization data that does not change between calls
+     * @param progressBarFactory creates the progress bar for each operation
+     * @param metrics records the latency of each call to Okta
+     * @param deadline bounds every step and call to Okta, when it is canceled running calls are aborted and the
+     *                 progress bar is closed
+     */
+    public DefaultSetupService(String springPropertyKey,
+                               Supplier<Client> clientSupplier,
+                               ReferenceDataCache referenceDataCache,
+                               ProgressBarFactory progressBarFactory,
+                               MetricsRegistry metrics,
+                               Deadline deadline) {
         this(new DefaultSdkConfigurationService(),
-                new DefaultOktaOrganizationCreator(),
-                new DefaultOidcAppCreator(),
-                new DefaultAuthorizationServerService(),
-                springPropertyKey);
+                new DefaultOktaOrganizationCreator(metrics, deadline, IdempotencyKeyStore.inUserHome(), CircuitBreaker.inUserHome()),
+                new DefaultOidcAppCreator(SingleFlight.shared(), referenceDataCache, new ApiRequestExecutor(metrics, deadline)),
+                new DefaultAuthorizationServerService(SingleFlight.shared(), referenceDataCache, new ApiRequestExecutor(metrics, deadline)),
+                springPropertyKey,
+                clientSupplier,
+                progressBarFactory,
+                metrics,
+                deadline);
     }
 
     public DefaultSetupService(SdkConfigurationService sdkConfigurationService,
                                OktaOrganizationCreator organizationCreator,
-                               OidcAppCreator oidcAppCreator, 
+                               OidcAppCreator oidcAppCreator,
                                AuthorizationServerService authorizationServerService,
-                               String springPropertyKey) {
+                               String springPropertyKey,
+                               Supplier<Client> clientSupplier,
+                               ProgressBarFactory progressBarFactory,
+                               MetricsRegistry metrics,
+                               Deadline deadline) {
         this.sdkConfigurationService = sdkConfigurationService;
         this.organizationCreator = organizationCreator;
         this.oidcAppCreator = oidcAppCreator;
         this.authorizationServerService = authorizationServerService;
         this.springPropertyKey = springPropertyKey;
+        this.clientSupplier = clientSupplier;
+        this.progressBarFactory = progressBarFactory;
+        this.metrics = metrics;
+        this.deadline = deadline;
     }
 
     @Override
@@ -86,16 +127,21 @@ public class DefaultSetupService implements SetupService {
                                               boolean interactive) throws IOException, ClientConfigurationException {
 
 
+        // connect while the user answers the questions
+        organizationCreator.warmUp(getApiBaseUrl());
+
         // check if okta client config exists?
         ClientConfiguration clientConfiguration = sdkConfigurationService.loadUnvalidatedConfiguration();
 
         String orgUrl;
-        try (ProgressBar progressBar = ProgressBar.create(interactive)) {
+        try (TraceRecorder.Span ignored = metrics.span("setup.createOktaOrg");
+             ProgressBar progressBar = progressBarFactory.create(interactive);
+             Deadline.Registration canceled = deadline.onCancel(progressBar::close)) {
 
             if (!Strings.isEmpty(clientConfiguration.getBaseUrl())) {
                 progressBar.info("An existing Okta Organization (" + clientConfiguration.getBaseUrl() + ") was found in "+ oktaPropsFile.getAbsolutePath());
 
-                if (!registrationQuestions.isOverwriteConfig()) {
+                if (!deadline.paused(registrationQuestions::isOverwriteConfig)) {
                     throw new ClientConfigurationException("User canceled");
                 }
 
@@ -108,15 +154,18 @@ public class DefaultSetupService implements SetupService {
             }
 
             // resolve the request (potentially prompt for input) before starting the progress bar
-            OrganizationRequest organizationRequest = registrationQuestions.getOrganizationRequest();
+            OrganizationRequest organizationRequest = deadline.paused(registrationQuestions::getOrganizationRequest);
             progressBar.start("Creating new Okta Organization, this may take a minute:");
 
             try {
                 OrganizationResponse newOrg = organizationCreator.createNewOrg(getApiBaseUrl(), organizationRequest);
+                progressBar.requestCompleted();
                 orgUrl = newOrg.getOrgUrl();
 
+                progressBar.attribute("org", orgUrl);
                 progressBar.info("OrgUrl: " + orgUrl);
                 progressBar.info("An email has been sent to you with a verification code.");
+                progressBar.succeeded();
                 return newOrg;
             } catch (RestException e) {
                 throw new ClientConfigurationException("Failed to create Okta Organization. You can register " +
@@ -129,27 +178,41 @@ public class DefaultSetupService implements SetupService {
     @Override
     public void verifyOktaOrg(String identifier, RegistrationQuestions registrationQuestions, File oktaPropsFile) throws IOException, ClientConfigurationException {
 
-        try (ProgressBar progressBar = ProgressBar.create(true)) {
+        try (TraceRecorder.Span ignored = metrics.span("setup.verifyOktaOrg");
+             ProgressBar progressBar = progressBarFactory.create(true);
+             Deadline.Registration canceled = deadline.onCancel(progressBar::close)) {
 
             progressBar.info("Check your email");
 
+            // connect while the user waits for the code, the connection from creating the org may have been closed
+            organizationCreator.warmUp(getApiBaseUrl());
+
             OrganizationResponse response = null;
             while(response == null) {
                 try {
-                    // prompt for code
-                    String code = registrationQuestions.getVerificationCode();
+                    // prompt for code, the time the user takes does not count against the deadline
+                    String code = deadline.paused(registrationQuestions::getVerificationCode);
+                    deadline.check("setup.verifyOktaOrg");
                     response = organizationCreator.verifyNewOrg(getApiBaseUrl(), identifier, code);
+                    progressBar.requestCompleted();
                 } catch (FactorVerificationException e) {
                     progressBar.info("Invalid Passcode, try again.");
                 }
             }
             // TODO handle polling in case the org is not ready
 
-            sdkConfigurationService.writeOktaYaml(response.getOrgUrl(), response.getApiToken(), oktaPropsFile);
+            String orgUrl = response.getOrgUrl();
+            String apiToken = response.getApiToken();
+            metrics.record("config.write.oktaYaml", () -> {
+                sdkConfigurationService.writeOktaYaml(orgUrl, apiToken, oktaPropsFile);
+                return null;
+            });
+            metrics.bytes("config.write.oktaYaml", oktaPropsFile.length());
 
             progressBar.info("New Okta Account created!");
             progressBar.info("Your Okta Domain: "+ response.getOrgUrl());
             progressBar.info("To set your password open this link:\n" + response.getUpdatePasswordUrl());
+            progressBar.succeeded();
 
             // TODO demo mode?
         }
@@ -166,16 +229,35 @@ public class DefaultSetupService implements SetupService {
                                       OpenIdConnectApplicationType appType,
                                       String... redirectUris) throws IOException {
 
-        // Create new Application
-        String clientId = propertySource.getProperty(getClientIdPropertyName());
+        MutablePropertySource instrumentedPropertySource = new InstrumentedPropertySource(propertySource, metrics);
+
+        try (TraceRecorder.Span ignored = metrics.span("setup.createOidcApplication").arg("app", oidcAppName);
+             ProgressBar progressBar = progressBarFactory.create(interactive);
+             Deadline.Registration canceled = deadline.onCancel(progressBar::close)) {
+
+            // Create new Application
+            String clientId = instrumentedPropertySource.getProperty(getClientIdPropertyName());
+
+            progressBar.attribute("org", orgUrl);
+            progressBar.attribute("app", oidcAppName);
 
-        try (ProgressBar progressBar = ProgressBar.create(interactive)) {
             if (!ConfigurationValidator.validateClientId(clientId).isValid()) {
 
                 progressBar.start("Configuring a new OIDC Application, almost done:");
 
                 // create ODIC application
-                Client client = Clients.builder().build();
+                progressBar.status("Creating application '" + oidcAppName + "'");
+                Client client;
+                try (TraceRecorder.Span span = metrics.span("setup.createClient")) {
+                    client = clientSupplier.get();
+                }
+
+                // look up the application, the Everyone group and the claims concurrently, instead of one after
+                // another on the way to creating them, lookups that turn out to be unnecessary are dropped
+                oidcAppCreator.prefetch(client, oidcAppName);
+                if (!Strings.isEmpty(groupClaimName)) {
+                    authorizationServerService.prefetchGroupClaim(client, authorizationServerId);
+                }
 
                 ExtensibleResource clientCredsResponse;
                 switch (appType) {
@@ -194,6 +276,7 @@ public class DefaultSetupService implements SetupService {
                     default:
                         throw new IllegalStateException("Unsupported Application Type: "+ appType);
                 }
+                progressBar.requestCompleted();
 
                 if (Strings.isEmpty(issuerUri)) {
                     issuerUri = orgUrl + "/oauth2/" + authorizationServerId;
@@ -204,18 +287,24 @@ public class DefaultSetupService implements SetupService {
                 newProps.put(getClientIdPropertyName(), clientCredsResponse.getString("client_id"));
                 newProps.put(getClientSecretPropertyName(), clientCredsResponse.getString("client_secret"));
 
-                propertySource.addProperties(newProps);
+                try (TraceRecorder.Span span = metrics.span("setup.writeConfig")) {
+                    instrumentedPropertySource.addProperties(newProps);
+                }
 
                 progressBar.info("Created OIDC application, client-id: " + clientCredsResponse.getString("client_id"));
 
                 if (!Strings.isEmpty(groupClaimName)) {
+                    deadline.check("setup.createGroupClaim");
 
                     progressBar.info("Creating Authorization Server claim '" + groupClaimName + "':");
+                    progressBar.status("Creating claim '" + groupClaimName + "'");
                     authorizationServerService.createGroupClaim(client, groupClaimName, authorizationServerId);
+                    progressBar.requestCompleted();
                 }
             } else {
                 progressBar.info("Existing OIDC application detected for clientId: "+ clientId + ", skipping new application creation\n");
             }
+            progressBar.succeeded();
         }
     }
 
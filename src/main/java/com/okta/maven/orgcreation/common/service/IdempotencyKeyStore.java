@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import com.okta.maven.orgcreation.common.config.JsonStateFile;
+import com.okta.maven.orgcreation.common.model.OrganizationRequest;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Holds the idempotency keys of pending Okta Organization registrations. The same registration request (same service,
+ * name, email, and company) is sent with the same key until the new org has been verified, so a request that is retried
+ * after a timeout, or after the build was restarted, resumes the registration instead of creating a second org.
+ * <p>
+ * Keys are stored in {@code ~/.okta/pending-registrations.json}, requests are stored as a SHA-256 hash, and entries
+ * expire after a day.
+ */
+public final class IdempotencyKeyStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyKeyStore.class);
+
+    private static final Duration TIME_TO_LIVE = Duration.ofDays(1);
+
+    private final JsonStateFile<PendingRegistration> stateFile;
+
+    private IdempotencyKeyStore(File file) {
+        this.stateFile = new JsonStateFile<>(file, "pending registrations", PendingRegistration.class,
+                pending -> pending.getCreatedAt() < System.currentTimeMillis() - TIME_TO_LIVE.toMillis());
+    }
+
+    /**
+     * A store that is kept in {@code ~/.okta}, keys survive a restart of the build.
+     */
+    public static IdempotencyKeyStore inUserHome() {
+        return file(JsonStateFile.inUserHome("pending-registrations.json"));
+    }
+
+    public static IdempotencyKeyStore file(File file) {
+        return new IdempotencyKeyStore(file);
+    }
+
+    /**
+     * A store that is kept in memory, keys are only reused within this JVM.
+     */
+    public static IdempotencyKeyStore inMemory() {
+        return new IdempotencyKeyStore(null);
+    }
+
+    /**
+     * Returns the key of a pending registration of the same request, or a new key.
+     */
+    public String keyFor(String apiBaseUrl, OrganizationRequest request) throws IOException {
+        String fingerprint = fingerprint(apiBaseUrl, request);
+        return stateFile.update(entries -> {
+            PendingRegistration pending = entries.get(fingerprint);
+            if (pending != null) {
+                LOG.debug("Resuming pending registration, idempotency key: {}", pending.getKey());
+                return pending.getKey();
+            }
+            pending = new PendingRegistration()
+                    .setKey(UUID.randomUUID().toString())
+                    .setCreatedAt(System.currentTimeMillis());
+            entries.put(fingerprint, pending);
+            return pending.getKey();
+        });
+    }
+
+    /**
+     * Records the id of the org created with {@code key}, the key is kept until the org is {@link #verified(String)}.
+     */
+    public void created(String key, String orgId) {
+        stateFile.updateQuietly(entries -> {
+            entries.values().stream()
+                    .filter(pending -> key.equals(pending.getKey()))
+                    .forEach(pending -> pending.setOrgId(orgId));
+            return null;
+        });
+    }
+
+    /**
+     * Removes the key of a request that was rejected, it was not processed and must not be replayed.
+     */
+    public void rejected(String key) {
+        stateFile.updateQuietly(entries -> {
+            entries.values().removeIf(pending -> key.equals(pending.getKey()));
+            return null;
+        });
+    }
+
+    /**
+     * Removes the key of the org that was verified, the registration is complete.
+     */
+    public void verified(String orgId) {
+        stateFile.updateQuietly(entries -> {
+            entries.values().removeIf(pending -> Objects.equals(orgId, pending.getOrgId()));
+            return null;
+        });
+    }
+
+    static String fingerprint(String apiBaseUrl, OrganizationRequest request) {
+        String value = String.join("\n",
+                String.valueOf(apiBaseUrl),
+                String.valueOf(request.getFirstName()),
+                String.valueOf(request.getLastName()),
+                String.valueOf(request.getEmail()).toLowerCase(Locale.ENGLISH),
+                String.valueOf(request.getOrganization()));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Data
+    @Accessors(chain = true)
+    static class PendingRegistration {
+        private String key;
+        private String orgId;
+        private long createdAt;
+    }
+}
@@ -27,4 +27,10 @@ public interface OidcAppCreator {
     ExtensibleResource createOidcSpaApp(Client client, String oidcAppName, String... redirectUris);
 
     ExtensibleResource createOidcServiceApp(Client client, String oidcAppName, String... redirectUris);
+
+    /**
+     * Starts the lookups needed to create the application {@code oidcAppName} in the background, a following
+     * {@code createOidc*App} call uses their results. Does nothing by default.
+     */
+    default void prefetch(Client client, String oidcAppName) {}
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import com.okta.commons.http.RequestExecutor;
+import com.okta.commons.http.RetryRequestExecutor;
+import com.okta.commons.http.httpclient.HttpClientRequestExecutor;
+import com.okta.sdk.client.Client;
+import com.okta.sdk.client.ClientBuilder;
+import com.okta.sdk.client.Clients;
+import com.okta.sdk.impl.client.BaseClient;
+import com.okta.sdk.impl.ds.DefaultDataStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.function.Supplier;
+
+/**
+ * Builds the Okta SDK clients used by this plugin. The SDK's own retries are turned off, {@link ApiRequestExecutor}
+ * is the only layer that retries a call, so every rate limited response reaches the org's {@link RequestGovernor}.
+ * Requests made in a {@link Deadline#call(String, Supplier) deadline call} are bounded by the time left, and aborted
+ * when the call is abandoned.
+ */
+public final class OktaClients {
+
+    private static final Logger log = LoggerFactory.getLogger(OktaClients.class);
+
+    private OktaClients() {}
+
+    public static Client build() {
+        return build(Clients.builder());
+    }
+
+    static Client build(ClientBuilder builder) {
+        Client client = builder
+                .setRetryMaxAttempts(0)
+                .setRetryMaxElapsed(0)
+                .build();
+
+        // the SDK treats a max attempts of 0 as "use the default" (4 retries), so they are turned off on the executor
+        RequestExecutor requestExecutor = requestExecutor(client);
+        if (requestExecutor instanceof RetryRequestExecutor) {
+            ((RetryRequestExecutor) requestExecutor).setNumRetries(0);
+        } else {
+            log.warn("Could not turn off the Okta SDK's retries, ensure okta-sdk-api version has not been changed in this plugin's configuration");
+        }
+
+        HttpClientRequestExecutor httpExecutor = httpClientRequestExecutor(requestExecutor);
+        Object httpClient = httpExecutor != null ? field(HttpClientRequestExecutor.class, "httpClient", httpExecutor) : null;
+        if (httpClient instanceof CloseableHttpClient) {
+            httpExecutor.setHttpClient(new DeadlineHttpClient((CloseableHttpClient) httpClient));
+        } else {
+            log.warn("Could not apply okta.timeout to the Okta SDK's requests, ensure okta-sdk-api version has not been changed in this plugin's configuration");
+        }
+        return client;
+    }
+
+    /**
+     * Closes the client's HTTP connection pool, the client can not be used afterwards.
+     */
+    public static void close(Client client) {
+        HttpClientRequestExecutor httpExecutor = httpClientRequestExecutor(requestExecutor(client));
+        Object httpClient = httpExecutor != null ? field(HttpClientRequestExecutor.class, "httpClient", httpExecutor) : null;
+        if (httpClient instanceof Closeable) {
+            try {
+                ((Closeable) httpClient).close();
+            } catch (IOException e) {
+                log.debug("Failed to close the Okta SDK's HTTP client", e);
+            }
+        }
+    }
+
+    static RequestExecutor requestExecutor(Client client) {
+        if (!(client instanceof BaseClient) || !(((BaseClient) client).getDataStore() instanceof DefaultDataStore)) {
+            return null;
+        }
+        return (RequestExecutor) field(DefaultDataStore.class, "requestExecutor", ((BaseClient) client).getDataStore());
+    }
+
+    private static HttpClientRequestExecutor httpClientRequestExecutor(RequestExecutor requestExecutor) {
+        Object delegate = requestExecutor instanceof RetryRequestExecutor
+                ? field(RetryRequestExecutor.class, "delegate", requestExecutor)
+                : requestExecutor;
+        return delegate instanceof HttpClientRequestExecutor ? (HttpClientRequestExecutor) delegate : null;
+    }
+
+    static Object field(Class<?> type, String name, Object target) {
+        try {
+            Field field = type.getDeclaredField(name);
+
+            AccessController.doPrivileged((PrivilegedAction) () -> {
+                field.setAccessible(true);
+                return null;
+            });
+
+            return field.get(target);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            log.debug("Could not read {}.{}", type.getName(), name, e);
+            return null;
+        }
+    }
+}
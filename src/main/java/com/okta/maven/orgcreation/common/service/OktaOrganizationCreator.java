@@ -27,4 +27,10 @@ public interface OktaOrganizationCreator {
     OrganizationResponse createNewOrg(String apiBaseUrl, OrganizationRequest orgRequest) throws IOException, RestException;
 
     OrganizationResponse verifyNewOrg(String apiBaseUrl, String identifier, String code) throws FactorVerificationException, IOException;
+
+    /**
+     * Opens a connection to the registration service in the background (e.g. while the user answers prompts), so the
+     * next call does not wait for DNS, TCP, and TLS. Returns immediately, failures are ignored.
+     */
+    default void warmUp(String apiBaseUrl) {}
 }
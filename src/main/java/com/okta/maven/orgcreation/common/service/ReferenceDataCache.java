@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches lookups of Okta Organization data that does not change while the plugin runs (e.g. the id of the
+ * {@code Everyone} group). Keys are built with {@link SingleFlight#key(com.okta.sdk.client.Client, String, Object...)}.
+ */
+public interface ReferenceDataCache {
+
+    <T> T get(List<Object> key, Supplier<T> loader);
+
+    void clear();
+
+    /**
+     * A cache that does not cache, every call is passed to the loader.
+     */
+    static ReferenceDataCache none() {
+        return new ReferenceDataCache() {
+            @Override
+            public <T> T get(List<Object> key, Supplier<T> loader) {
+                return loader.get();
+            }
+
+            @Override
+            public void clear() {}
+        };
+    }
+
+    /**
+     * A thread-safe, in memory cache. Concurrent lookups of the same key share a single load, failed loads are not
+     * cached.
+     */
+    static ReferenceDataCache inMemory() {
+        return new InMemoryReferenceDataCache(null);
+    }
+
+    /**
+     * A thread-safe, in memory cache where entries expire {@code timeToLive} after they were loaded.
+     */
+    static ReferenceDataCache inMemory(Duration timeToLive) {
+        return new InMemoryReferenceDataCache(timeToLive);
+    }
+
+    class InMemoryReferenceDataCache implements ReferenceDataCache {
+
+        private final ConcurrentMap<List<Object>, Entry> entries = new ConcurrentHashMap<>();
+
+        private final long timeToLiveNanos;
+
+        private InMemoryReferenceDataCache(Duration timeToLive) {
+            this.timeToLiveNanos = timeToLive != null ? timeToLive.toNanos() : 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(List<Object> key, Supplier<T> loader) {
+
+            Entry entry = new Entry(timeToLiveNanos > 0 ? System.nanoTime() + timeToLiveNanos : 0);
+            Entry existing;
+            while ((existing = entries.putIfAbsent(key, entry)) != null) {
+                if (!existing.isExpired()) {
+                    return (T) join(existing.future);
+                }
+                entries.remove(key, existing);
+            }
+
+            try {
+                T value = loader.get();
+                entry.future.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                entries.remove(key, entry);
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+
+        private static Object join(CompletableFuture<Object> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        private static final class Entry {
+
+            private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+            private final long expiresAtNanos;
+
+            private Entry(long expiresAtNanos) {
+                this.expiresAtNanos = expiresAtNanos;
+            }
+
+            private boolean isExpired() {
+                return expiresAtNanos != 0 && System.nanoTime() - expiresAtNanos >= 0;
+            }
+        }
+    }
+}
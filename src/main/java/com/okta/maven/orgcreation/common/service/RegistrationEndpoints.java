@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import com.okta.maven.orgcreation.common.http.HttpTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * The base URLs of the registration service, {@code OKTA_CLI_BASE_URL} may be a comma separated list (e.g. a caching
+ * proxy per region). Endpoints are ranked by their measured latency: an endpoint is probed with a {@code HEAD} request
+ * the first time it is ranked (unless a call already measured it), and the latency of every call updates its moving
+ * average. A call that fails to reach an endpoint ranks it last, until it is measured again.
+ * <p>
+ * Ranking waits for the probes at most until the mojo's {@link Deadline}, endpoints that have not been measured by
+ * then are ranked last, and are measured in the background for the next call.
+ * <p>
+ * A call is hedged when it takes {@value #HEDGE_FACTOR} times longer than the moving average of its endpoint, within
+ * a floor (so that a fast endpoint is not hedged on every call) and a cap (used until the endpoint is measured).
+ */
+public final class RegistrationEndpoints {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegistrationEndpoints.class);
+
+    private static final ConcurrentMap<String, RegistrationEndpoints> ENDPOINTS = new ConcurrentHashMap<>();
+
+    /**
+     * The weight of the latest call in an endpoint's moving average.
+     */
+    private static final double ALPHA = 0.3;
+
+    /**
+     * How many times slower than its moving average a call may be before it is hedged. The moving average is not a
+     * percentile, a few times the average keeps the hedged calls to the slow tail of the endpoint's latency.
+     */
+    static final int HEDGE_FACTOR = 3;
+
+    private final List<String> urls;
+
+    private final Duration minHedgeDelay;
+
+    private final Duration maxHedgeDelay;
+
+    private final Duration probeTimeout;
+
+    private final Map<String, Double> averageMillis = new HashMap<>();
+
+    private final Map<String, CompletableFuture<Void>> probes = new HashMap<>();
+
+    RegistrationEndpoints(List<String> urls, Duration minHedgeDelay, Duration maxHedgeDelay, Duration probeTimeout) {
+        this.urls = Collections.unmodifiableList(new ArrayList<>(urls));
+        this.minHedgeDelay = minHedgeDelay;
+        this.maxHedgeDelay = maxHedgeDelay;
+        this.probeTimeout = probeTimeout;
+    }
+
+    /**
+     * Returns the endpoints of a comma separated list of base URLs, shared by every call in this JVM.
+     */
+    public static RegistrationEndpoints forBaseUrls(String baseUrls) {
+        return ENDPOINTS.computeIfAbsent(baseUrls, key -> new RegistrationEndpoints(parse(key), Duration.ofMillis(500), Duration.ofSeconds(3), Duration.ofSeconds(2)));
+    }
+
+    static List<String> parse(String baseUrls) {
+        List<String> urls = Arrays.stream(baseUrls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("No registration service base URL in: '" + baseUrls + "'");
+        }
+        return urls;
+    }
+
+    public List<String> urls() {
+        return urls;
+    }
+
+    public boolean isMultiple() {
+        return urls.size() > 1;
+    }
+
+    /**
+     * Returns the endpoints, fastest first. Endpoints that have not been measured are probed first, with
+     * {@code transport}, waiting for the probes at most until {@code deadline}.
+     */
+    public List<String> ranked(HttpTransport transport, Deadline deadline) {
+        // a single endpoint is never ranked
+        if (isMultiple()) {
+            try {
+                CompletableFuture.allOf(probes(transport)).get(deadline.timeoutMillis((int) probeTimeout.toMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                LOG.debug("Registration endpoints not probed in time, using the current ranking");
+            } catch (ExecutionException e) {
+                // a failed probe ranks its endpoint last
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            List<String> result = new ArrayList<>(urls);
+            result.sort(Comparator.comparingDouble(url -> averageMillis.getOrDefault(url, Double.MAX_VALUE)));
+            LOG.debug("Registration endpoints by latency (ms): {}", averageMillis);
+            return result;
+        }
+    }
+
+    /**
+     * Probes every endpoint in the background, unless a probe is already running, which opens a connection to each of
+     * them (DNS, TCP, and TLS) that is kept by {@code transport} for the next call.
+     */
+    public synchronized CompletableFuture<Void> warmUp(HttpTransport transport) {
+        List<CompletableFuture<Void>> result = new ArrayList<>();
+        for (String url : urls) {
+            CompletableFuture<Void> probe = probes.get(url);
+            if (probe == null || probe.isDone()) {
+                probe = probe(transport, url);
+                probes.put(url, probe);
+            }
+            result.add(probe);
+        }
+        return CompletableFuture.allOf(result.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Records the latency of a call to {@code url} that got a response.
+     */
+    public synchronized void succeeded(String url, long nanos) {
+        double millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        averageMillis.merge(url, millis, (average, latest) -> average == Double.MAX_VALUE
+                ? latest
+                : average + ALPHA * (latest - average));
+    }
+
+    /**
+     * Records a call to {@code url} that did not get a response, the endpoint is ranked last until it is measured again.
+     */
+    public synchronized void failed(String url) {
+        averageMillis.put(url, Double.MAX_VALUE);
+    }
+
+    /**
+     * Returns how long a call to {@code url} may take before it is hedged.
+     */
+    public synchronized Duration hedgeDelay(String url) {
+        Double average = averageMillis.get(url);
+        if (average == null || average == Double.MAX_VALUE) {
+            return maxHedgeDelay;
+        }
+        long millis = Math.round(average * HEDGE_FACTOR);
+        return Duration.ofMillis(Math.max(minHedgeDelay.toMillis(), Math.min(millis, maxHedgeDelay.toMillis())));
+    }
+
+    /**
+     * Returns the running (or completed) probes, starting a probe of each endpoint that has not been measured.
+     */
+    private synchronized CompletableFuture<?>[] probes(HttpTransport transport) {
+        List<CompletableFuture<Void>> result = new ArrayList<>();
+        for (String url : urls) {
+            if (probes.containsKey(url) || !averageMillis.containsKey(url)) {
+                result.add(probes.computeIfAbsent(url, key -> probe(transport, key)));
+            }
+        }
+        return result.toArray(new CompletableFuture<?>[0]);
+    }
+
+    private CompletableFuture<Void> probe(HttpTransport transport, String url) {
+        int timeout = (int) probeTimeout.toMillis();
+        HttpTransport.Request head = new HttpTransport.Request()
+                .setMethod("HEAD")
+                .setUrl(url)
+                .setConnectTimeoutMillis(timeout)
+                .setTimeoutMillis(timeout);
+
+        long start = System.nanoTime();
+        return transport.sendAsync(head).handle((response, failure) -> {
+            // any response means the endpoint is reachable
+            if (failure == null) {
+                succeeded(url, System.nanoTime() - start);
+                closeQuietly(response);
+            } else {
+                LOG.debug("Failed to probe {}: {}", url, failure.toString());
+                failed(url);
+            }
+            return null;
+        });
+    }
+
+    private static void closeQuietly(HttpTransport.Response response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            LOG.debug("Failed to close probe response: {}", e.getMessage());
+        }
+    }
+}
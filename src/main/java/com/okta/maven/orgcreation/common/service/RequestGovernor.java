@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the requests sent to an Okta Organization by every mojo in this JVM (e.g. a parallel build, or the Maven
+ * Daemon), so they stay under the org's rate limits, which are shared with the org's other traffic:
+ * <ul>
+ *     <li>a token bucket limits the request rate, {@code -Dokta.maven.api.rate} requests per second (default 10)</li>
+ *     <li>a bulkhead limits the concurrent requests, {@code -Dokta.maven.api.concurrency} (default 4)</li>
+ * </ul>
+ * The rate is lowered to the org's limit when it is reported by a rate limited response
+ * ({@code X-Rate-Limit-Limit}, per minute), and no requests are sent until the limit resets. The rate is doubled again,
+ * up to the configured rate, for each minute (the org's rate limit window) without rate limited responses.
+ */
+public final class RequestGovernor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestGovernor.class);
+
+    static final String RATE_PROPERTY = "okta.maven.api.rate";
+    static final String CONCURRENCY_PROPERTY = "okta.maven.api.concurrency";
+
+    private static final long RECOVERY_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final ConcurrentMap<Object, RequestGovernor> GOVERNORS = new ConcurrentHashMap<>();
+
+    private final Semaphore concurrency;
+
+    private final double configuredRate;
+
+    private final LongSupplier nanoTime;
+
+    private final ApiRequestExecutor.Sleeper sleeper;
+
+    private double rate;
+
+    private double tokens;
+
+    /**
+     * When tokens were last added to the bucket, in the future while the org's rate limit is reached.
+     */
+    private long lastRefillNanos;
+
+    /**
+     * When a request was last rate limited, or the rate was last raised.
+     */
+    private long rateAdjustedNanos;
+
+    RequestGovernor(double rate, int concurrency, LongSupplier nanoTime, ApiRequestExecutor.Sleeper sleeper) {
+        this.configuredRate = rate;
+        this.rate = rate;
+        this.concurrency = new Semaphore(concurrency, true);
+        this.nanoTime = nanoTime;
+        this.sleeper = sleeper;
+        this.tokens = burst();
+        this.lastRefillNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Returns the governor shared by every request to the Okta Organization identified by {@code orgKey}.
+     */
+    static RequestGovernor forOrg(Object orgKey) {
+        return GOVERNORS.computeIfAbsent(orgKey, key -> new RequestGovernor(
+                doubleProperty(RATE_PROPERTY, 10),
+                intProperty(CONCURRENCY_PROPERTY, 4),
+                System::nanoTime,
+                Thread::sleep));
+    }
+
+    /**
+     * Waits until a request may be sent, the returned permit must be closed when the request completes.
+     */
+    Permit acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            sleeper.sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+        }
+        concurrency.acquire();
+        return concurrency::release;
+    }
+
+    /**
+     * Takes a token from the bucket, and returns how long to wait for it. Tokens are taken in advance (the bucket may
+     * be negative), so concurrent callers are spaced out at the current rate.
+     */
+    synchronized long reserve() {
+        long now = nanoTime.getAsLong();
+        if (now > lastRefillNanos) {
+            tokens = Math.min(burst(), tokens + (now - lastRefillNanos) / 1_000_000_000d * rate);
+            lastRefillNanos = now;
+        }
+        tokens -= 1;
+
+        long waitNanos = Math.max(0, lastRefillNanos - now);
+        if (tokens < 0) {
+            waitNanos += (long) (-tokens / rate * 1_000_000_000d);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Called when a request was rate limited: pauses every request until the limit resets, and lowers the rate to the
+     * limit reported by the org.
+     *
+     * @param resetDelayMillis the time until the rate limit resets, in milliseconds
+     * @param limitPerMinute the {@code X-Rate-Limit-Limit} header, or {@code null}
+     */
+    synchronized void rateLimited(long resetDelayMillis, Long limitPerMinute) {
+        long now = nanoTime.getAsLong();
+        rateAdjustedNanos = now;
+        long resumeNanos = now + TimeUnit.MILLISECONDS.toNanos(resetDelayMillis);
+        if (resumeNanos > lastRefillNanos) {
+            // a single request when the limit resets, then the current rate
+            lastRefillNanos = resumeNanos;
+            tokens = Math.min(tokens, 1);
+        }
+
+        if (limitPerMinute != null && limitPerMinute > 0) {
+            double orgRate = Math.min(configuredRate, limitPerMinute / 60d);
+            if (orgRate < rate) {
+                LOG.info("Lowering the Okta API request rate to {} requests per second", String.format("%.2f", orgRate));
+                rate = orgRate;
+            }
+        }
+    }
+
+    /**
+     * Called when a request succeeded: raises a lowered rate once the org's rate limit window passed without rate
+     * limited requests.
+     */
+    synchronized void succeeded() {
+        long now = nanoTime.getAsLong();
+        if (rate < configuredRate && now - rateAdjustedNanos >= RECOVERY_INTERVAL_NANOS) {
+            rate = Math.min(configuredRate, rate * 2);
+            rateAdjustedNanos = now;
+            LOG.debug("Raising the Okta API request rate to {} requests per second", String.format("%.2f", rate));
+        }
+    }
+
+    synchronized double rate() {
+        return rate;
+    }
+
+    int availableConcurrency() {
+        return concurrency.availablePermits();
+    }
+
+    private double burst() {
+        return Math.max(1, rate);
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            double result = Double.parseDouble(value);
+            if (result > 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        LOG.warn("Invalid value for '{}': {}, using the default: {}", name, value, defaultValue);
+        return defaultValue;
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result >= 1) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        LOG.warn("Invalid value for '{}': {}, using the default: {}", name, value, defaultValue);
+        return defaultValue;
+    }
+
+    @FunctionalInterface
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
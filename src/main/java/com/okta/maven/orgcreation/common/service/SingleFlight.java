@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service;
+
+import com.okta.sdk.client.Client;
+import com.okta.sdk.impl.ds.InternalDataStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a given key is in flight, other callers with the same key
+ * wait for it and share its result (or exception) instead of making their own remote call. Nothing is retained once
+ * the call completes, a later caller will make a new call.
+ * <p>
+ * Keys are built with {@link #key(Client, String, Object...)} and are scoped by Okta Organization, operation, and
+ * arguments.
+ * <p>
+ * A call can also be started speculatively with {@link #prefetch(List, Supplier)}, before it is known to be needed. Its
+ * result is kept (for a short time) for the next {@link #execute(List, Supplier)} with the same key; a result that is
+ * never used is dropped.
+ */
+public final class SingleFlight {
+
+    private static final SingleFlight SHARED = new SingleFlight();
+
+    /**
+     * How long a prefetched result is kept for the call it was made for.
+     */
+    private static final long PREFETCH_TIME_TO_LIVE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService PREFETCHES = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "okta-prefetch-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<List<Object>, Prefetch> prefetched = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the instance shared by every mojo execution in this JVM (e.g. a parallel build).
+     */
+    public static SingleFlight shared() {
+        return SHARED;
+    }
+
+    public static List<Object> key(Client client, String operation, Object... arguments) {
+        List<Object> key = new ArrayList<>(arguments.length + 2);
+        key.add(orgKey(client));
+        key.add(operation);
+        for (Object argument : arguments) {
+            // compare arrays (e.g. redirect URIs) by value
+            key.add(argument instanceof Object[] ? Arrays.asList((Object[]) argument) : argument);
+        }
+        return Collections.unmodifiableList(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(List<Object> key, Supplier<T> call) {
+
+        Prefetch prefetch = prefetched.remove(key);
+        if (prefetch != null && !prefetch.isExpired()) {
+            try {
+                return (T) prefetch.result.join();
+            } catch (CompletionException e) {
+                // the speculative call failed, make the call to report its own failure (or succeed on a retry)
+            }
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return (T) await(existing);
+        }
+
+        try {
+            T result = call.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Starts {@code call} in the background, the next {@link #execute(List, Supplier)} with the same key uses its
+     * result (waiting for it if the call is still in flight). Does nothing if a call with this key has already been
+     * prefetched. The call must not use {@link #execute(List, Supplier)} with the same key.
+     */
+    public void prefetch(List<Object> key, Supplier<?> call) {
+        prefetched.values().removeIf(Prefetch::isExpired);
+        prefetched.computeIfAbsent(key, k -> new Prefetch(CompletableFuture.supplyAsync(call, PREFETCHES)));
+    }
+
+    /**
+     * Drops the prefetched result for {@code key}, if any. Called after a change that makes it stale (e.g. creating the
+     * resource it looked up).
+     */
+    public void forget(List<Object> key) {
+        prefetched.remove(key);
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The base URL of the client's Okta Organization, or the client itself if the URL is not available.
+     */
+    static Object orgKey(Client client) {
+        if (client.getDataStore() instanceof InternalDataStore) {
+            return ((InternalDataStore) client.getDataStore()).getBaseUrl();
+        }
+        return client;
+    }
+
+    private static final class Prefetch {
+
+        private final CompletableFuture<Object> result;
+
+        private final long expiresAt = System.nanoTime() + PREFETCH_TIME_TO_LIVE_NANOS;
+
+        @SuppressWarnings("unchecked")
+        private Prefetch(CompletableFuture<?> result) {
+            this.result = (CompletableFuture<Object>) result;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.service;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A SHA-256 digest of every input the Okta SDK reads its configuration from: the {@code ~/.okta} config files and
+ * {@code OKTA_*} environment variables and {@code okta.*} system properties. The digest changes when any of them
+ * (e.g. the API token) changes, without keeping the values themselves.
+ */
+final class ConfigFingerprint {
+
+    /**
+     * A file modified this close to when its {@link Stamp} was taken may be modified again without changing its size or
+     * timestamp, so its contents are always read.
+     */
+    private static final long RACY_WINDOW_MILLIS = 2000;
+
+    private static final List<String> FILE_NAMES = Arrays.asList("okta.yaml", "okta.properties");
+
+    private ConfigFingerprint() {}
+
+    static String of(File configDir) {
+        return of(configDir, System.getenv(), System.getProperties());
+    }
+
+    static String of(File configDir, Map<String, String> env, Properties systemProperties) {
+        return digest(configDir, env, systemProperties, ConfigFingerprint::read);
+    }
+
+    /**
+     * Returns a stamp of the same inputs as {@link #of(File)}, but using the size and timestamp of the config files
+     * instead of reading them.
+     */
+    static Stamp stamp(File configDir, long nowMillis) {
+        return stamp(configDir, System.getenv(), System.getProperties(), nowMillis);
+    }
+
+    static Stamp stamp(File configDir, Map<String, String> env, Properties systemProperties, long nowMillis) {
+        long lastModified = FILE_NAMES.stream()
+                .mapToLong(name -> new File(configDir, name).lastModified())
+                .max().orElse(0);
+        String digest = digest(configDir, env, systemProperties,
+                file -> (file.length() + ":" + file.lastModified()).getBytes(UTF_8));
+        return new Stamp(digest, nowMillis - lastModified > RACY_WINDOW_MILLIS);
+    }
+
+    private static String digest(File configDir, Map<String, String> env, Properties systemProperties, Function<File, byte[]> contents) {
+        Hasher hasher = Hashing.sha256().newHasher();
+
+        for (String name : FILE_NAMES) {
+            File file = new File(configDir, name);
+            update(hasher, file.getAbsolutePath());
+            update(hasher, contents.apply(file));
+        }
+
+        new TreeMap<>(env).forEach((key, value) -> {
+            if (key.startsWith("OKTA_")) {
+                update(hasher, key);
+                update(hasher, value);
+            }
+        });
+
+        TreeMap<String, String> properties = new TreeMap<>();
+        systemProperties.stringPropertyNames().stream()
+                .filter(key -> key.startsWith("okta."))
+                .forEach(key -> properties.put(key, systemProperties.getProperty(key)));
+        properties.forEach((key, value) -> {
+            update(hasher, key);
+            update(hasher, value);
+        });
+
+        return hasher.hash().toString();
+    }
+
+    private static byte[] read(File file) {
+        try {
+            return file.isFile() ? Files.readAllBytes(file.toPath()) : new byte[0];
+        } catch (IOException e) {
+            // treat an unreadable file as changed, the SDK will report the error when loading the configuration
+            return String.valueOf(System.nanoTime()).getBytes(UTF_8);
+        }
+    }
+
+    private static void update(Hasher hasher, String value) {
+        update(hasher, value.getBytes(UTF_8));
+    }
+
+    private static void update(Hasher hasher, byte[] value) {
+        // length prefix, so adjacent values cannot be confused
+        hasher.putInt(value.length);
+        hasher.putBytes(value);
+    }
+
+    /**
+     * The size and timestamp of the config files (and the environment variables and system properties), when the
+     * stamp is unchanged the fingerprint is too.
+     */
+    static final class Stamp {
+
+        private final String digest;
+
+        private final boolean settled;
+
+        private Stamp(String digest, boolean settled) {
+            this.digest = digest;
+            this.settled = settled;
+        }
+
+        /**
+         * Returns {@code true} when the config has not changed since {@code previous} was taken, {@code false} when it
+         * might have.
+         */
+        boolean isUnchangedSince(Stamp previous) {
+            return previous != null && previous.settled && digest.equals(previous.digest);
+        }
+    }
+}
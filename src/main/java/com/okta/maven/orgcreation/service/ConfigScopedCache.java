@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.service;
+
+import com.okta.maven.orgcreation.common.service.ReferenceDataCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cached values for each Okta config directory (user home) and project. The values for a config directory and project
+ * are dropped as soon as the Okta configuration they were built from changes (see {@link ConfigFingerprint}), so
+ * values built with one set of credentials are never returned for another. The config files are only read again when
+ * their size or timestamp changed.
+ * <p>
+ * When a time to live is set, the values for a config directory and project that were not used for that long are
+ * dropped, and at most {@value #MAX_SCOPES} config directory and project combinations are kept.
+ */
+final class ConfigScopedCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConfigScopedCache.class);
+
+    static final String TTL_PROPERTY = "okta.maven.cache.ttl";
+
+    private static final Duration DEFAULT_DAEMON_TTL = Duration.ofMinutes(30);
+
+    static final int MAX_SCOPES = 32;
+
+    private static final ConfigScopedCache DAEMON = new ConfigScopedCache(daemonTimeToLive());
+
+    private final ConcurrentMap<List<String>, Scope> scopes = new ConcurrentHashMap<>();
+
+    private final Duration timeToLive;
+
+    private final Clock clock;
+
+    /**
+     * @param timeToLive how long a value is kept, {@code null} to keep values until {@link #clear(File, File)} is called
+     */
+    ConfigScopedCache(Duration timeToLive) {
+        this(timeToLive, Clock.systemUTC());
+    }
+
+    ConfigScopedCache(Duration timeToLive, Clock clock) {
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns {@code true} when running in the Maven Daemon (mvnd), where the plugin's classes are reused between
+     * builds.
+     */
+    static boolean isDaemon() {
+        return System.getProperty("mvnd.home") != null;
+    }
+
+    /**
+     * Returns the cache shared by every build in this daemon.
+     */
+    static ConfigScopedCache daemon() {
+        return DAEMON;
+    }
+
+    ReferenceDataCache get(File configDir, File projectDir) {
+        long now = clock.millis();
+        ConfigFingerprint.Stamp stamp = ConfigFingerprint.stamp(configDir, now);
+        List<String> key = key(configDir, projectDir);
+        Scope result = scopes.compute(key, (ignored, scope) -> {
+            if (scope != null && !stamp.isUnchangedSince(scope.stamp)) {
+                String fingerprint = ConfigFingerprint.of(configDir);
+                if (!scope.fingerprint.equals(fingerprint)) {
+                    LOG.debug("Okta configuration changed, dropping cached values for: {}", key);
+                    scope = null;
+                } else {
+                    scope = new Scope(fingerprint, stamp, scope.values);
+                }
+            }
+            if (scope == null) {
+                ReferenceDataCache values = timeToLive != null ? ReferenceDataCache.inMemory(timeToLive) : ReferenceDataCache.inMemory();
+                scope = new Scope(ConfigFingerprint.of(configDir), stamp, values);
+            }
+            scope.lastUsed = now;
+            return scope;
+        });
+        evict(now);
+        return result.values;
+    }
+
+    /**
+     * Drops the values for a config directory and project, values for other config directories and projects are kept.
+     */
+    void clear(File configDir, File projectDir) {
+        scopes.remove(key(configDir, projectDir));
+    }
+
+    int size() {
+        return scopes.size();
+    }
+
+    private void evict(long now) {
+        if (timeToLive == null) {
+            return;
+        }
+        scopes.values().removeIf(scope -> now - scope.lastUsed > timeToLive.toMillis());
+        while (scopes.size() > MAX_SCOPES) {
+            scopes.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+                    .ifPresent(entry -> scopes.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private static List<String> key(File configDir, File projectDir) {
+        return Arrays.asList(configDir.getAbsolutePath(), projectDir.getAbsolutePath());
+    }
+
+    private static Duration daemonTimeToLive() {
+        String value = System.getProperty(TTL_PROPERTY);
+        if (value != null) {
+            try {
+                return Duration.parse(value);
+            } catch (DateTimeParseException e) {
+                LOG.warn("Invalid value for '{}': '{}', expected an ISO-8601 duration (e.g. PT30M)", TTL_PROPERTY, value);
+            }
+        }
+        return DEFAULT_DAEMON_TTL;
+    }
+
+    private static final class Scope {
+
+        private final String fingerprint;
+
+        private final ConfigFingerprint.Stamp stamp;
+
+        private final ReferenceDataCache values;
+
+        private volatile long lastUsed;
+
+        private Scope(String fingerprint, ConfigFingerprint.Stamp stamp, ReferenceDataCache values) {
+            this.fingerprint = fingerprint;
+            this.stamp = stamp;
+            this.values = values;
+        }
+    }
+}
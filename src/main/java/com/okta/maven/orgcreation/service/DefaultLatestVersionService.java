@@ -15,44 +15,142 @@
  */
 package com.okta.maven.orgcreation.service;
 
-import org.apache.maven.artifact.Artifact;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
 import org.apache.maven.artifact.ArtifactUtils;
-import org.apache.maven.artifact.DefaultArtifact;
-import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
-import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
-import org.apache.maven.repository.legacy.metadata.ArtifactMetadataRetrievalException;
 import org.codehaus.plexus.component.annotations.Component;
+import org.eclipse.aether.ConfigurationProperties;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.VersionRangeRequest;
+import org.eclipse.aether.resolution.VersionRangeResolutionException;
+import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.version.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Looks up the latest version of an artifact using the Maven Resolver API. Each remote repository is queried
+ * concurrently, a repository that does not answer within the per-repository timeout (or before the overall deadline)
+ * is skipped, so a slow or unavailable mirror will not stall the build.
+ */
 @Component(role = LatestVersionService.class)
 public class DefaultLatestVersionService implements LatestVersionService {
 
-    private final ArtifactMetadataSource artifactMetadataSource;
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultLatestVersionService.class);
+
+    private static final Duration DEFAULT_REPOSITORY_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_OVERALL_TIMEOUT = Duration.ofSeconds(10);
+    private static final int MAX_THREADS = 8;
+
+    private final RepositorySystem repositorySystem;
+    private final Duration repositoryTimeout;
+    private final Duration overallTimeout;
 
     @Inject
-    public DefaultLatestVersionService(ArtifactMetadataSource artifactMetadataSource) {
-        this.artifactMetadataSource = artifactMetadataSource;
+    public DefaultLatestVersionService(RepositorySystem repositorySystem) {
+        this(repositorySystem, DEFAULT_REPOSITORY_TIMEOUT, DEFAULT_OVERALL_TIMEOUT);
+    }
+
+    DefaultLatestVersionService(RepositorySystem repositorySystem, Duration repositoryTimeout, Duration overallTimeout) {
+        this.repositorySystem = repositorySystem;
+        this.repositoryTimeout = repositoryTimeout;
+        this.overallTimeout = overallTimeout;
     }
 
-    public ArtifactVersion getLatestVersion(String groupId, String artifactId, String defaultVersion, ArtifactRepository localRepository, List<ArtifactRepository> remoteArtifactRepositories) throws ArtifactMetadataRetrievalException {
-        Artifact artifact = new DefaultArtifact(groupId, artifactId, defaultVersion, "compile", "jar", "", null);
+    @Override
+    public ArtifactVersion getLatestVersion(String groupId, String artifactId, String defaultVersion, RepositorySystemSession repositorySession, List<RemoteRepository> remoteRepositories, MetricsRegistry metrics) {
 
-        // get all versions
-        final List<ArtifactVersion> versions = artifactMetadataSource.retrieveAvailableVersions(artifact, localRepository, remoteArtifactRepositories);
-        // filter out snapshots
-        versions.removeIf(artifactVersion -> ArtifactUtils.isSnapshot(artifactVersion.toString()));
+        Artifact artifact = new DefaultArtifact(groupId, artifactId, "jar", "[0,)");
+        RepositorySystemSession session = sessionWithTimeouts(repositorySession);
 
-        // if empty just return the defaultVersion
-        if (versions.isEmpty()) {
-            return new DefaultArtifactVersion(defaultVersion);
+        // query the local repository by itself (no remotes), and then each remote repository
+        List<List<RemoteRepository>> queries = new ArrayList<>();
+        queries.add(Collections.emptyList());
+        if (remoteRepositories != null) {
+            remoteRepositories.forEach(repository -> queries.add(Collections.singletonList(repository)));
         }
 
-        // get the latest
-        return Collections.max(versions);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(queries.size(), MAX_THREADS), new ThreadFactoryBuilder()
+                .setNameFormat(DefaultLatestVersionService.class.getSimpleName() + "-%d")
+                .setDaemon(true)
+                .build());
+
+        try {
+            long start = System.nanoTime();
+            long overallDeadline = start + overallTimeout.toNanos();
+
+            List<Future<VersionRangeResult>> futures = new ArrayList<>();
+            queries.forEach(repositories -> futures.add(executor.submit(() ->
+                    metrics.record("maven.resolveVersionRange." + describe(repositories), () ->
+                            repositorySystem.resolveVersionRange(session, new VersionRangeRequest(artifact, repositories, null))))));
+
+            List<Version> versions = new ArrayList<>();
+            for (int ii = 0; ii < futures.size(); ii++) {
+                String repositoryId = describe(queries.get(ii));
+                long deadline = Math.min(overallDeadline, start + repositoryTimeout.toNanos());
+                versions.addAll(await(futures.get(ii), deadline, repositoryId));
+            }
+
+            // filter out snapshots and get the latest
+            Optional<Version> latest = versions.stream()
+                    .filter(version -> !ArtifactUtils.isSnapshot(version.toString()))
+                    .max(Version::compareTo);
+
+            // if empty just return the defaultVersion
+            return new DefaultArtifactVersion(latest.map(Version::toString).orElse(defaultVersion));
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Version> await(Future<VersionRangeResult> future, long deadline, String repositoryId) {
+        try {
+            VersionRangeResult result = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            result.getExceptions().forEach(e -> LOG.debug("Failed to retrieve versions from repository '{}': {}", repositoryId, e.getMessage()));
+            return result.getVersions();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            LOG.warn("Repository '{}' did not respond in time, skipping it", repositoryId);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof VersionRangeResolutionException ? e.getCause() : e;
+            LOG.warn("Failed to retrieve versions from repository '{}': {}", repositoryId, cause.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+        }
+        return Collections.emptyList();
+    }
+
+    private RepositorySystemSession sessionWithTimeouts(RepositorySystemSession repositorySession) {
+        int timeoutMillis = (int) Math.min(repositoryTimeout.toMillis(), overallTimeout.toMillis());
+        DefaultRepositorySystemSession session = new DefaultRepositorySystemSession(repositorySession);
+        session.setConfigProperty(ConfigurationProperties.CONNECT_TIMEOUT, timeoutMillis);
+        session.setConfigProperty(ConfigurationProperties.REQUEST_TIMEOUT, timeoutMillis);
+        return session;
+    }
+
+    private static String describe(List<RemoteRepository> repositories) {
+        return repositories.isEmpty() ? "local" : repositories.get(0).getId();
     }
-}
\ No newline at end of file
+}
@@ -18,8 +18,14 @@ package com.okta.maven.orgcreation.service;
 import com.okta.maven.orgcreation.common.model.OrganizationRequest;
 import com.okta.maven.orgcreation.common.model.OrganizationResponse;
 import com.okta.maven.orgcreation.common.model.RegistrationQuestions;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
+import com.okta.maven.orgcreation.common.progressbar.ProgressBar;
 import com.okta.maven.orgcreation.common.service.ClientConfigurationException;
+import com.okta.maven.orgcreation.common.service.Deadline;
+import com.okta.maven.orgcreation.common.service.DeadlineExceededException;
 import com.okta.maven.orgcreation.common.service.DefaultSetupService;
+import com.okta.maven.orgcreation.common.service.OktaClients;
+import com.okta.maven.orgcreation.common.service.ReferenceDataCache;
 import com.okta.maven.orgcreation.common.service.SetupService;
 import lombok.Data;
 import lombok.experimental.Accessors;
@@ -28,6 +34,7 @@ import org.codehaus.plexus.components.interactivity.Prompter;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 
 import static com.okta.maven.orgcreation.support.PromptUtil.promptIfNull;
 import static com.okta.maven.orgcreation.support.PromptUtil.promptYesNo;
@@ -38,18 +45,29 @@ public class DefaultMavenRegistrationService implements MavenRegistrationService
     private final File oktaPropsFile;
     private final boolean demo;
     private final boolean interactive;
+    private final Duration timeout;
 
     public DefaultMavenRegistrationService(Prompter prompter, File oktaPropsFile, boolean demo, boolean interactive) {
+        this(prompter, oktaPropsFile, demo, interactive, null);
+    }
+
+    /**
+     * @param timeout the time budget of each step (registering, then verifying), not including the time waiting for
+     *                input, {@code null} for none
+     */
+    public DefaultMavenRegistrationService(Prompter prompter, File oktaPropsFile, boolean demo, boolean interactive, Duration timeout) {
         this.prompter = prompter;
         this.oktaPropsFile = oktaPropsFile;
         this.demo = demo;
         this.interactive = interactive;
+        this.timeout = timeout;
     }
 
     @Override
     public OrganizationResponse register(String firstName, String lastName, String email, String company) throws MojoExecutionException {
-        try {
-            SetupService setupService = new DefaultSetupService(null);
+        Deadline deadline = Deadline.after(timeout);
+        try (Deadline.Registration shutdownHook = deadline.cancelOnShutdown()) {
+            SetupService setupService = setupService(deadline);
             RegistrationQuestions registrationQuestions = new MavenPromptingRegistrationQuestions()
                     .setFirstName(firstName)
                     .setLastName(lastName)
@@ -59,23 +77,28 @@ public class DefaultMavenRegistrationService implements MavenRegistrationService
                                               oktaPropsFile,
                                               demo,
                                               interactive);
-        } catch (IOException | ClientConfigurationException e) {
+        } catch (IOException | ClientConfigurationException | DeadlineExceededException e) {
             throw new MojoExecutionException("Failed to register account: " + e.getMessage(), e);
         }
     }
 
     @Override
     public void verify(String identifier, String code) throws MojoExecutionException {
-        try {
-            SetupService setupService = new DefaultSetupService(null);
+        Deadline deadline = Deadline.after(timeout);
+        try (Deadline.Registration shutdownHook = deadline.cancelOnShutdown()) {
+            SetupService setupService = setupService(deadline);
             RegistrationQuestions registrationQuestions = new MavenPromptingRegistrationQuestions()
                     .setCode(code);
             setupService.verifyOktaOrg(identifier, registrationQuestions, oktaPropsFile);
-        } catch (IOException | ClientConfigurationException e) {
+        } catch (IOException | ClientConfigurationException | DeadlineExceededException e) {
             throw new MojoExecutionException("Failed to register account: " + e.getMessage(), e);
         }
     }
 
+    private SetupService setupService(Deadline deadline) {
+        return new DefaultSetupService(null, OktaClients::build, ReferenceDataCache.none(), ProgressBar::create, new MetricsRegistry(), deadline);
+    }
+
     private OrganizationRequest organizationRequest(String firstName, String lastName, String email, String company) {
         return new OrganizationRequest()
                 .setFirstName(promptIfNull(prompter, interactive, firstName, "firstName", "First name"))
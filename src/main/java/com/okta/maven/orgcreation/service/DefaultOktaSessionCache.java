@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.service;
+
+import com.okta.maven.orgcreation.common.service.ClientConfigurationException;
+import com.okta.maven.orgcreation.common.service.OktaClients;
+import com.okta.maven.orgcreation.common.service.ReferenceDataCache;
+import com.okta.maven.orgcreation.common.service.SdkConfigurationService;
+import com.okta.sdk.client.Client;
+import com.okta.sdk.impl.config.ClientConfiguration;
+import org.apache.maven.SessionScoped;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.execution.MavenSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * An {@link OktaSessionCache} with a lifetime of a single Maven session, everything is released and the Okta Clients
+ * are closed when the session ends.
+ * <p>
+ * When running in the Maven Daemon (mvnd) values are kept between builds, until they expire (default 30 minutes, set
+ * with {@code -Dokta.maven.cache.ttl=PT10M}). Okta Clients are never kept, so their connection pools do not outlive
+ * the build.
+ * <p>
+ * In both cases cached values are scoped to the user's Okta config directory and the project, and are dropped when
+ * the Okta configuration changes (e.g. a new API token was written by {@code okta:login}).
+ */
+@Named
+@SessionScoped
+public class DefaultOktaSessionCache implements OktaSessionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultOktaSessionCache.class);
+
+    private final File configDir;
+
+    private final File projectDir;
+
+    private final boolean daemon;
+
+    private final ConfigScopedCache scopes;
+
+    /**
+     * The clients of this session, dropped like any other value when the Okta configuration changes.
+     */
+    private final ConfigScopedCache clients = new ConfigScopedCache(null);
+
+    private final List<Client> openClients = new CopyOnWriteArrayList<>();
+
+    private final ReferenceDataCache referenceDataCache = new ReferenceDataCache() {
+        @Override
+        public <T> T get(List<Object> key, Supplier<T> loader) {
+            return values().get(prefixed("referenceData", key), loader);
+        }
+
+        @Override
+        public void clear() {
+            DefaultOktaSessionCache.this.clear();
+        }
+    };
+
+    @Inject
+    public DefaultOktaSessionCache(MavenSession session) {
+        this(defaultConfigDir(),
+             new File(Optional.ofNullable(session.getExecutionRootDirectory()).orElse(System.getProperty("user.dir"))),
+             ConfigScopedCache.isDaemon());
+        if (session.getRequest() != null) {
+            SessionEndListener.register(session.getRequest(), this::close);
+        }
+    }
+
+    /**
+     * Creates a cache that is not bound to a Maven session, it is released when {@link #close()} is called.
+     */
+    public DefaultOktaSessionCache() {
+        this(defaultConfigDir());
+    }
+
+    DefaultOktaSessionCache(File configDir) {
+        this(configDir, new File(System.getProperty("user.dir")), false);
+    }
+
+    DefaultOktaSessionCache(File configDir, File projectDir, boolean daemon) {
+        this.configDir = configDir;
+        this.projectDir = projectDir;
+        this.daemon = daemon;
+        this.scopes = daemon ? ConfigScopedCache.daemon() : new ConfigScopedCache(null);
+    }
+
+    @Override
+    public ClientConfiguration getClientConfiguration(SdkConfigurationService sdkConfigurationService) throws ClientConfigurationException {
+        try {
+            return values().get(Collections.singletonList("clientConfiguration"), () -> {
+                try {
+                    return sdkConfigurationService.loadUnvalidatedConfiguration();
+                } catch (ClientConfigurationException e) {
+                    throw new WrappedClientConfigurationException(e);
+                }
+            });
+        } catch (WrappedClientConfigurationException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Client getClient() {
+        return clients.get(configDir, projectDir).get(Collections.singletonList("client"), () -> {
+            Client client = OktaClients.build();
+            openClients.add(client);
+            return client;
+        });
+    }
+
+    @Override
+    public ReferenceDataCache getReferenceDataCache() {
+        return referenceDataCache;
+    }
+
+    @Override
+    public ArtifactVersion getLatestVersion(List<Object> key, Supplier<ArtifactVersion> resolver) {
+        return values().get(prefixed("latestVersion", key), resolver);
+    }
+
+    @Override
+    public void clear() {
+        LOG.debug("Clearing Okta session cache");
+        scopes.clear(configDir, projectDir);
+        closeClients();
+    }
+
+    @Override
+    public void close() {
+        // the daemon cache outlives the session
+        if (daemon) {
+            closeClients();
+        } else {
+            clear();
+        }
+    }
+
+    private void closeClients() {
+        clients.clear(configDir, projectDir);
+        for (Client client : openClients) {
+            openClients.remove(client);
+            OktaClients.close(client);
+        }
+    }
+
+    private ReferenceDataCache values() {
+        return scopes.get(configDir, projectDir);
+    }
+
+    private static List<Object> prefixed(String prefix, List<Object> key) {
+        List<Object> result = new ArrayList<>(key.size() + 1);
+        result.add(prefix);
+        result.addAll(key);
+        return result;
+    }
+
+    private static File defaultConfigDir() {
+        return new File(System.getProperty("user.home"), ".okta");
+    }
+
+    private static class WrappedClientConfigurationException extends RuntimeException {
+
+        private WrappedClientConfigurationException(ClientConfigurationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ClientConfigurationException getCause() {
+            return (ClientConfigurationException) super.getCause();
+        }
+    }
+}
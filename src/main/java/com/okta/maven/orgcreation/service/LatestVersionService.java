@@ -15,13 +15,19 @@
  */
 package com.okta.maven.orgcreation.service;
 
-import org.apache.maven.artifact.repository.ArtifactRepository;
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
-import org.apache.maven.repository.legacy.metadata.ArtifactMetadataRetrievalException;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
 
 import java.util.List;
 
 public interface LatestVersionService {
 
-    ArtifactVersion getLatestVersion(String groupId, String artifactId, String defaultVersion, ArtifactRepository localRepository, List<ArtifactRepository> remoteArtifactRepositories) throws ArtifactMetadataRetrievalException;
-}
\ No newline at end of file
+    /**
+     * Returns the latest non-snapshot version of an artifact available in any of the {@code remoteRepositories}, or
+     * the {@code defaultVersion} if no repository answered in time. The time spent querying each repository is recorded
+     * in {@code metrics}.
+     */
+    ArtifactVersion getLatestVersion(String groupId, String artifactId, String defaultVersion, RepositorySystemSession repositorySession, List<RemoteRepository> remoteRepositories, MetricsRegistry metrics);
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.service;
+
+import com.okta.maven.orgcreation.common.service.ClientConfigurationException;
+import com.okta.maven.orgcreation.common.service.ReferenceDataCache;
+import com.okta.maven.orgcreation.common.service.SdkConfigurationService;
+import com.okta.sdk.client.Client;
+import com.okta.sdk.impl.config.ClientConfiguration;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Holds state that is expensive to build and can be shared by every mojo execution in a Maven session, e.g. when
+ * {@code okta:spring-boot} runs for each module of a multi-module build.
+ */
+public interface OktaSessionCache extends Closeable {
+
+    /**
+     * Returns the Okta SDK configuration, the configuration is loaded again if the Okta configuration files have
+     * changed (e.g. after {@code okta:login}).
+     */
+    ClientConfiguration getClientConfiguration(SdkConfigurationService sdkConfigurationService) throws ClientConfigurationException;
+
+    /**
+     * Returns an Okta Client for the current configuration, the client is only used in this session and is closed
+     * when it ends.
+     */
+    Client getClient();
+
+    ReferenceDataCache getReferenceDataCache();
+
+    ArtifactVersion getLatestVersion(List<Object> key, Supplier<ArtifactVersion> resolver);
+
+    /**
+     * Releases everything held by this cache.
+     */
+    void clear();
+
+    /**
+     * Called when the Maven session ends, closes the clients and releases the values held by this cache. In the Maven
+     * Daemon (mvnd) the cached values are kept for the next build.
+     */
+    @Override
+    void close();
+}
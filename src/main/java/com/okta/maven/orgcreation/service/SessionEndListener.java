@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.service;
+
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+
+/**
+ * Runs an action when the Maven session ends, every event is passed on to the listener that was already set on the
+ * request (e.g. the one logging the build).
+ * <p>
+ * Maven only calls lifecycle participants of plugins loaded as build extensions, and does not dispose session scoped
+ * components, but it reads the request's execution listener for every event it fires.
+ */
+final class SessionEndListener implements ExecutionListener {
+
+    private final ExecutionListener delegate;
+
+    private final Runnable onSessionEnd;
+
+    private SessionEndListener(ExecutionListener delegate, Runnable onSessionEnd) {
+        this.delegate = delegate != null ? delegate : new AbstractExecutionListener();
+        this.onSessionEnd = onSessionEnd;
+    }
+
+    /**
+     * Runs {@code onSessionEnd} when the session of {@code request} ends.
+     */
+    static void register(MavenExecutionRequest request, Runnable onSessionEnd) {
+        request.setExecutionListener(new SessionEndListener(request.getExecutionListener(), onSessionEnd));
+    }
+
+    @Override
+    public void sessionEnded(ExecutionEvent event) {
+        try {
+            delegate.sessionEnded(event);
+        } finally {
+            onSessionEnd.run();
+        }
+    }
+
+    @Override
+    public void projectDiscoveryStarted(ExecutionEvent event) {
+        delegate.projectDiscoveryStarted(event);
+    }
+
+    @Override
+    public void sessionStarted(ExecutionEvent event) {
+        delegate.sessionStarted(event);
+    }
+
+    @Override
+    public void projectSkipped(ExecutionEvent event) {
+        delegate.projectSkipped(event);
+    }
+
+    @Override
+    public void projectStarted(ExecutionEvent event) {
+        delegate.projectStarted(event);
+    }
+
+    @Override
+    public void projectSucceeded(ExecutionEvent event) {
+        delegate.projectSucceeded(event);
+    }
+
+    @Override
+    public void projectFailed(ExecutionEvent event) {
+        delegate.projectFailed(event);
+    }
+
+    @Override
+    public void mojoSkipped(ExecutionEvent event) {
+        delegate.mojoSkipped(event);
+    }
+
+    @Override
+    public void mojoStarted(ExecutionEvent event) {
+        delegate.mojoStarted(event);
+    }
+
+    @Override
+    public void mojoSucceeded(ExecutionEvent event) {
+        delegate.mojoSucceeded(event);
+    }
+
+    @Override
+    public void mojoFailed(ExecutionEvent event) {
+        delegate.mojoFailed(event);
+    }
+
+    @Override
+    public void forkStarted(ExecutionEvent event) {
+        delegate.forkStarted(event);
+    }
+
+    @Override
+    public void forkSucceeded(ExecutionEvent event) {
+        delegate.forkSucceeded(event);
+    }
+
+    @Override
+    public void forkFailed(ExecutionEvent event) {
+        delegate.forkFailed(event);
+    }
+
+    @Override
+    public void forkedProjectStarted(ExecutionEvent event) {
+        delegate.forkedProjectStarted(event);
+    }
+
+    @Override
+    public void forkedProjectSucceeded(ExecutionEvent event) {
+        delegate.forkedProjectSucceeded(event);
+    }
+
+    @Override
+    public void forkedProjectFailed(ExecutionEvent event) {
+        delegate.forkedProjectFailed(event);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A transport on {@code java.net.http.HttpClient}, it prefers HTTP/2, so concurrent requests to the same service are
+ * multiplexed on a single connection, and requests are sent asynchronously without blocking a thread.
+ * <p>
+ * {@link Request#getConnectTimeoutMillis()} is ignored, every request uses {@link #CONNECT_TIMEOUT}. Canceling a request
+ * only aborts the exchange on Java 16+, before that it runs until its timeout.
+ * <p>
+ * This class is only included on Java 11+ (in {@code META-INF/versions/11} of the plugin's multi-release JAR), it is
+ * created by {@link HttpTransports#jdk()}.
+ */
+final class JdkHttpTransport implements HttpTransport {
+
+    /**
+     * The connect timeout of every request, {@code HttpClient} does not support a connect timeout per request.
+     */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+    JdkHttpTransport() {}
+
+    @Override
+    public CompletableFuture<Response> sendAsync(Request request) {
+
+        HttpRequest.BodyPublisher body = request.getBody() != null
+                ? HttpRequest.BodyPublishers.ofByteArray(request.getBody())
+                : HttpRequest.BodyPublishers.noBody();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()))
+                .method(request.getMethod(), body);
+        if (request.getTimeoutMillis() > 0) {
+            builder.timeout(Duration.ofMillis(request.getTimeoutMillis()));
+        }
+        request.getHeaders().forEach(builder::setHeader);
+
+        CompletableFuture<HttpResponse<InputStream>> response = httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        CompletableFuture<Response> result = new CompletableFuture<Response>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                response.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        response.whenComplete((value, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause()
+                        : failure);
+            } else if (!result.complete(new JdkResponse(value))) {
+                // canceled while the response was received
+                closeQuietly(value.body());
+            }
+        });
+        return result;
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // ignored, the response is discarded
+        }
+    }
+
+    private static final class JdkResponse implements Response {
+
+        private final HttpResponse<InputStream> response;
+
+        private JdkResponse(HttpResponse<InputStream> response) {
+            this.response = response;
+        }
+
+        @Override
+        public int status() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String header(String name) {
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public InputStream body() {
+            return response.body();
+        }
+
+        @Override
+        public long contentLength() {
+            return response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.body().close();
+        }
+    }
+}
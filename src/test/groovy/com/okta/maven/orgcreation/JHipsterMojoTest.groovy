@@ -18,6 +18,7 @@ package com.okta.maven.orgcreation
 import com.okta.maven.orgcreation.common.config.MutablePropertySource
 import com.okta.maven.orgcreation.common.service.SdkConfigurationService
 import com.okta.maven.orgcreation.common.service.SetupService
+import com.okta.maven.orgcreation.service.DefaultOktaSessionCache
 import com.okta.sdk.impl.config.ClientConfiguration
 import com.okta.sdk.resource.application.OpenIdConnectApplicationType
 import org.testng.annotations.Test
@@ -52,6 +53,7 @@ class JHipsterMojoTest {
         mojo.oidcAppName = "test-app-name"
         mojo.baseDir = projectDir
         mojo.sdkConfigurationService = sdkConfigurationService
+        mojo.sessionCache = new DefaultOktaSessionCache()
 
         mojo.execute()
 
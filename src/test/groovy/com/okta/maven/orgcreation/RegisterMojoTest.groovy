@@ -25,6 +25,8 @@ import org.testng.IObjectFactory
 import org.testng.annotations.ObjectFactory
 import org.testng.annotations.Test
 
+import java.time.Duration
+
 import static org.mockito.Mockito.mock
 import static org.mockito.Mockito.verify
 import static org.mockito.Mockito.when
@@ -54,7 +56,7 @@ class RegisterMojoTest {
                 .setOrgUrl("https://org.example.com")
                 .setId("test-id")
 
-        PowerMockito.whenNew(DefaultMavenRegistrationService).withArguments(prompter, oktaPropsFile, demo, interactive).thenReturn(mavenRegistrationService)
+        PowerMockito.whenNew(DefaultMavenRegistrationService).withArguments(prompter, oktaPropsFile, demo, interactive, Duration.ofSeconds(300)).thenReturn(mavenRegistrationService)
         when(mavenRegistrationService.register(firstName, lastName, email, company)).thenReturn(orgResponse)
 
         RegisterMojo mojo = new RegisterMojo()
@@ -66,6 +68,7 @@ class RegisterMojoTest {
         mojo.demo = demo
         mojo.prompter = prompter
         mojo.oktaPropsFile = oktaPropsFile
+        mojo.timeout = 300
 
         mojo.execute()
         verify(mavenRegistrationService).register(firstName, lastName, email, company)
@@ -16,18 +16,20 @@
 package com.okta.maven.orgcreation
 
 import com.okta.maven.orgcreation.common.config.MutablePropertySource
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry
 import com.okta.maven.orgcreation.common.service.SdkConfigurationService
 import com.okta.maven.orgcreation.common.service.SetupService
+import com.okta.maven.orgcreation.service.DefaultOktaSessionCache
 import com.okta.maven.orgcreation.service.DependencyAddService
 import com.okta.maven.orgcreation.service.LatestVersionService
 import com.okta.sdk.impl.config.ClientConfiguration
 import com.okta.sdk.resource.application.OpenIdConnectApplicationType
-import org.apache.maven.artifact.repository.ArtifactRepository
 import org.apache.maven.artifact.versioning.ArtifactVersion
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion
 import org.apache.maven.model.Dependency
 import org.apache.maven.project.MavenProject
-import org.apache.maven.repository.legacy.metadata.ArtifactMetadataRetrievalException
+import org.eclipse.aether.RepositorySystemSession
+import org.eclipse.aether.repository.RemoteRepository
 import org.testng.annotations.Test
 
 import static org.mockito.Mockito.*
@@ -47,7 +49,7 @@ class SpringBootMojoTest {
         MavenProject project = mock(MavenProject)
         LatestVersionService latestVersionService = new LatestVersionService() {
             @Override
-            ArtifactVersion getLatestVersion(String groupId, String artifactId, String defaultVersion, ArtifactRepository localRepository, List<ArtifactRepository> remoteArtifactRepositories) throws ArtifactMetadataRetrievalException {
+            ArtifactVersion getLatestVersion(String groupId, String artifactId, String defaultVersion, RepositorySystemSession repositorySession, List<RemoteRepository> remoteRepositories, MetricsRegistry metrics) {
                 return new DefaultArtifactVersion(version)
             }
         }
@@ -73,6 +75,7 @@ class SpringBootMojoTest {
         mojo.oidcAppName = "test-app-name"
         mojo.baseDir = projectDir
         mojo.sdkConfigurationService = sdkConfigurationService
+        mojo.sessionCache = new DefaultOktaSessionCache()
         mojo.dependencyAddService = dependencyAddService
         mojo.latestVersionService = latestVersionService
         mojo.project = project
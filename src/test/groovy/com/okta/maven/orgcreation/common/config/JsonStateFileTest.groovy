@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.config
+
+import org.testng.annotations.Test
+
+import java.nio.file.Files
+
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class JsonStateFileTest {
+
+    @Test
+    void entriesAreSharedThroughFileTest() {
+        File file = new File(Files.createTempDirectory("okta-state-").toFile(), "state.json")
+
+        stateFile(file).update { entries -> entries.put("one", new Entry(value: 1)) }
+
+        // another instance (e.g. another build) sees the entry
+        assertThat stateFile(file).update { entries -> entries.get("one").value }, is(1)
+    }
+
+    @Test
+    void expiredEntriesAreRemovedTest() {
+        File file = new File(Files.createTempDirectory("okta-state-").toFile(), "state.json")
+        stateFile(file).update { entries -> entries.put("expired", new Entry(value: -1)) }
+        assertThat file.exists(), is(true)
+
+        // the file is deleted once it is empty
+        assertThat stateFile(file).update { entries -> entries.keySet() }, empty()
+        assertThat file.exists(), is(false)
+    }
+
+    @Test
+    void invalidFileIsIgnoredTest() {
+        File file = new File(Files.createTempDirectory("okta-state-").toFile(), "state.json")
+        file.text = "not json"
+
+        stateFile(file).update { entries -> entries.put("one", new Entry(value: 1)) }
+        assertThat stateFile(file).update { entries -> entries.keySet() }, contains("one")
+    }
+
+    @Test
+    void inMemoryTest() {
+        JsonStateFile<Entry> state = stateFile(null)
+        state.updateQuietly { entries -> entries.put("one", new Entry(value: 1)) }
+        assertThat state.update { entries -> entries.get("one").value }, is(1)
+    }
+
+    private static JsonStateFile<Entry> stateFile(File file) {
+        return new JsonStateFile<>(file, "test state", Entry, { Entry entry -> entry.value < 0 })
+    }
+
+    static class Entry {
+        int value
+    }
+}
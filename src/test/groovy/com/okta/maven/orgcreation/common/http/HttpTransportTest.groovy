@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.http
+
+import com.github.tomakehurst.wiremock.stubbing.StubMapping
+import com.okta.maven.orgcreation.common.WireMockSupport
+import org.testng.annotations.DataProvider
+import org.testng.annotations.Test
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CompletableFuture
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class HttpTransportTest implements WireMockSupport {
+
+    @Override
+    Collection<StubMapping> wireMockStubMapping() {
+        return [
+                post("/echo")
+                .withHeader("Content-Type", equalTo("application/json"))
+                .withRequestBody(equalToJson('{"hello": "world"}'))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type", "application/json")
+                    .withBody('{"hello": "back"}')),
+                post("/missing")
+                .willReturn(aResponse()
+                    .withStatus(404)
+                    .withBody('not found')),
+                post("/slow")
+                .willReturn(aResponse()
+                    .withFixedDelay(5_000)
+                    .withBody('too late'))
+        ]
+    }
+
+    @DataProvider
+    Object[][] transports() {
+        List<Object[]> transports = [["apache", HttpTransports.apache()] as Object[]]
+        HttpTransports.jdk().ifPresent { transports.add(["jdk", it] as Object[]) }
+        return transports as Object[][]
+    }
+
+    @Test(dataProvider = "transports")
+    void sendTest(String name, HttpTransport transport) {
+        HttpTransport.Response response = transport.send(request("/echo")
+                .setBody('{"hello": "world"}'.getBytes(StandardCharsets.UTF_8)))
+        try {
+            assertThat response.status(), is(200)
+            assertThat response.header("content-type"), is("application/json")
+            assertThat response.body().getText("UTF-8"), is('{"hello": "back"}')
+        } finally {
+            response.close()
+        }
+    }
+
+    @Test(dataProvider = "transports")
+    void errorStatusTest(String name, HttpTransport transport) {
+        HttpTransport.Response response = transport.send(request("/missing"))
+        try {
+            assertThat response.status(), is(404)
+            assertThat response.body().getText("UTF-8"), is("not found")
+        } finally {
+            response.close()
+        }
+    }
+
+    @Test(dataProvider = "transports", timeOut = 4000L)
+    void timeoutTest(String name, HttpTransport transport) {
+        IOException failure = null
+        try {
+            transport.send(request("/slow").setTimeoutMillis(300))
+        } catch (IOException e) {
+            failure = e
+        }
+        assertThat failure, notNullValue()
+    }
+
+    @Test(dataProvider = "transports", timeOut = 4000L)
+    void cancelTest(String name, HttpTransport transport) {
+        CompletableFuture<HttpTransport.Response> response = transport.sendAsync(request("/slow"))
+        Thread.start {
+            sleep(200)
+            response.cancel(true)
+        }
+        IOException e = expectException(IOException) {
+            HttpTransports.await(response)
+        }
+        assertThat e.message, containsString("aborted")
+    }
+
+    @Test
+    void chooseTransportTest() {
+        assertThat HttpTransports.create("apache"), instanceOf(ApacheHttpTransport)
+        // before Java 16 canceling a 'jdk' request does not abort it
+        Class<?> defaultTransport = HttpTransports.javaVersion(System.getProperty("java.specification.version")) >= 16 && HttpTransports.jdk().present
+                ? HttpTransports.jdk().get().class
+                : ApacheHttpTransport
+        assertThat HttpTransports.create(""), instanceOf(defaultTransport)
+        expectException(IllegalArgumentException) {
+            HttpTransports.create("netty")
+        }
+        if (!HttpTransports.jdk().present) {
+            expectException(IllegalStateException) {
+                HttpTransports.create("jdk")
+            }
+        }
+    }
+
+    @Test
+    void javaVersionTest() {
+        assertThat HttpTransports.javaVersion("1.8"), is(8)
+        assertThat HttpTransports.javaVersion("11"), is(11)
+        assertThat HttpTransports.javaVersion("17"), is(17)
+        assertThat HttpTransports.javaVersion("unknown"), is(8)
+    }
+
+    private HttpTransport.Request request(String path) {
+        return new HttpTransport.Request()
+                .setMethod("POST")
+                .setUrl(mockUrl() + path.substring(1))
+                .setConnectTimeoutMillis(2_000)
+                .setTimeoutMillis(10_000)
+                .header("Content-Type", "application/json")
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics
+
+import org.testng.SkipException
+import org.testng.annotations.Test
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.is
+import static org.hamcrest.Matchers.nullValue
+
+class JfrEventsTest {
+
+    @Test
+    void noRecordingTest() {
+        // no event is created unless a recording is active
+        assertThat JfrEvents.begin(), nullValue()
+    }
+
+    @Test
+    void eventsAreRecordedTest() {
+        if (!jfrAvailable()) {
+            throw new SkipException("JDK Flight Recorder is not available")
+        }
+
+        MetricsRegistry metrics = new MetricsRegistry()
+        Path recordingFile = Files.createTempFile("okta-", ".jfr")
+
+        def recording = Class.forName("jdk.jfr.Recording").newInstance()
+        recording.enable("com.okta.maven.Operation")
+        recording.start()
+        try {
+            metrics.record("okta.createApplication", "test-app", { "app" })
+            Sample sample = metrics.start("okta.createOrg").httpStatus(400)
+            sample.bytes(128)
+            sample.failed(new IOException("expected"))
+        } finally {
+            recording.stop()
+            recording.dump(recordingFile)
+            recording.close()
+        }
+
+        List events = Class.forName("jdk.jfr.consumer.RecordingFile").readAllEvents(recordingFile)
+                .findAll { it.eventType.name == "com.okta.maven.Operation" }
+
+        assertThat events.size(), is(2)
+        def created = events.find { it.getString("operation") == "okta.createApplication" }
+        assertThat created.getString("appLabel"), is("test-app")
+        assertThat created.getBoolean("failed"), is(false)
+
+        def org = events.find { it.getString("operation") == "okta.createOrg" }
+        assertThat org.getInt("httpStatus"), is(400)
+        assertThat org.getLong("bytes"), is(128L)
+        assertThat org.getBoolean("failed"), is(true)
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Recording")
+            return true
+        } catch (ClassNotFoundException e) {
+            return false
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.testng.annotations.Test
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class MetricsRegistryTest {
+
+    @Test
+    void recordTest() {
+        MetricsRegistry metrics = new MetricsRegistry()
+
+        assertThat metrics.record("op", { "result" }), is("result")
+        metrics.record("op", { sleep(15); "result" })
+        expectException(IOException) {
+            metrics.record("op", { throw new IOException("expected") })
+        }
+        metrics.retry("op")
+        metrics.bytes("op", 42)
+
+        Map<String, Object> op = metrics.snapshot().get("op")
+        assertThat op.count, is(3L)
+        assertThat op.errors, is(1L)
+        assertThat op.retries, is(1L)
+        assertThat op.bytes, is(42L)
+        assertThat op.maxMs, greaterThanOrEqualTo(15.0d)
+        assertThat op.latencyHistogramMs.values().sum(), is(3L)
+        assertThat op.latencyHistogramMs.keySet(), hasItem("<=20")
+    }
+
+    @Test
+    void sampleIsRecordedOnceTest() {
+        MetricsRegistry metrics = new MetricsRegistry()
+        Sample sample = metrics.start("op")
+        sample.stop()
+        sample.failed(new IllegalStateException("ignored"))
+
+        assertThat metrics.snapshot().get("op").count, is(1L)
+        assertThat metrics.snapshot().get("op").errors, is(0L)
+    }
+
+    @Test
+    void writeJsonTest() {
+        MetricsRegistry metrics = new MetricsRegistry()
+        metrics.record("okta.createApplication", { "app" })
+        File metricsFile = new File(File.createTempDir(), "target/okta-metrics.json")
+
+        metrics.writeJson(metricsFile, [goal: "spring-boot"])
+
+        Map json = new ObjectMapper().readValue(metricsFile, Map)
+        assertThat json.goal, is("spring-boot")
+        assertThat json.timestamp, notNullValue()
+        assertThat json.operations."okta.createApplication".count, is(1)
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.metrics
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.testng.annotations.Test
+
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class TraceRecorderTest {
+
+    @Test
+    void nestedSpansTest() {
+        MetricsRegistry metrics = new MetricsRegistry()
+
+        metrics.span("outer").withCloseable {
+            metrics.record("okta.createApplication", "my-app", { sleep(5); "app" })
+        }
+
+        List<Map<String, Object>> events = metrics.trace().events().findAll { it.ph == "X" }
+        Map outer = events.find { it.name == "outer" }
+        Map inner = events.find { it.name == "okta.createApplication" }
+
+        assertThat outer.cat, is("phase")
+        assertThat inner.cat, is("operation")
+        assertThat inner.args, is([appLabel: "my-app"])
+        assertThat inner.tid, is(outer.tid)
+        assertThat inner.ts, greaterThanOrEqualTo(outer.ts)
+        assertThat inner.ts + inner.dur, lessThanOrEqualTo(outer.ts + outer.dur)
+    }
+
+    @Test
+    void concurrentSpansTest() {
+        MetricsRegistry metrics = new MetricsRegistry()
+
+        Thread worker = Thread.start("okta-worker") {
+            metrics.span("worker").close()
+        }
+        metrics.span("main").close()
+        worker.join()
+
+        List<Map<String, Object>> events = metrics.trace().events()
+        assertThat events.find { it.name == "worker" }.tid, not(events.find { it.name == "main" }.tid)
+        assertThat events.findAll { it.ph == "M" }.collect { it.args.name }, hasItem("okta-worker")
+    }
+
+    @Test
+    void writeJsonTest() {
+        MetricsRegistry metrics = new MetricsRegistry()
+        metrics.span("createWebApplication").arg("app", "my-app").close()
+        File traceFile = new File(File.createTempDir(), "target/okta-trace.json")
+
+        metrics.trace().writeJson(traceFile, [goal: "web-app"])
+
+        Map json = new ObjectMapper().readValue(traceFile, Map)
+        assertThat json.otherData.goal, is("web-app")
+        assertThat json.traceEvents.find { it.ph == "X" }.args.app, is("my-app")
+    }
+}
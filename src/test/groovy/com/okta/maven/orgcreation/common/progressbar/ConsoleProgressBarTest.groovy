@@ -17,9 +17,13 @@ package com.okta.maven.orgcreation.common.progressbar
 
 import org.hamcrest.MatcherAssert
 import org.mockito.ArgumentCaptor
+import org.mockito.ArgumentMatchers
 import org.testng.annotations.Test
 
 import java.time.Duration
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
 
 import static org.hamcrest.Matchers.*
 import static org.mockito.Mockito.*
@@ -60,4 +64,84 @@ class ConsoleProgressBarTest {
 
         MatcherAssert.assertThat outputString.getAllValues(), is(["test-start"])
     }
+
+    @Test
+    void notAnimatedTest() {
+
+        PrintStream stream = mock(PrintStream)
+        ScheduledExecutorService scheduler = scheduler()
+        ConsoleRenderer renderer = new ConsoleRenderer(stream, Duration.ofMillis(1), false, 200, scheduler)
+        ConsoleProgressBar progressBar = new ConsoleProgressBar(renderer, stream, false).start("test-start")
+
+        progressBar.withCloseable {
+            renderer.run()
+            it.info("test-message")
+        }
+
+        verifyNoInteractions(scheduler)
+        verify(stream, never()).print(anyChar())
+        verify(stream).println("\rtest-message")
+    }
+
+    @Test
+    void manyProgressBarsTest() {
+
+        PrintStream stream = mock(PrintStream)
+        ScheduledFuture animation = mock(ScheduledFuture)
+        ScheduledExecutorService scheduler = scheduler(animation)
+        ConsoleRenderer renderer = new ConsoleRenderer(stream, Duration.ofMillis(1), false, 200, scheduler)
+        List<ConsoleProgressBar> progressBars = (1..100).collect {
+            new ConsoleProgressBar(renderer, stream, true).start()
+        }
+        renderer.run()
+
+        // a single animation for every progress bar, canceled without waiting for it when the last one is closed
+        verify(scheduler, times(1)).scheduleWithFixedDelay(eq(renderer), eq(0L), eq(1_000_000L), eq(TimeUnit.NANOSECONDS))
+        progressBars.each { it.close() }
+        verify(animation).cancel(false)
+
+        // no more writes after close
+        clearInvocations(stream)
+        renderer.run()
+        verifyNoMoreInteractions(stream)
+    }
+
+    @Test
+    void multipleTasksTest() {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        PrintStream stream = new PrintStream(output, true, "UTF-8")
+        ConsoleRenderer renderer = new ConsoleRenderer(stream, Duration.ofMillis(1), true, 200, scheduler())
+
+        ConsoleProgressBar app = new ConsoleProgressBar(renderer, stream, true).start("Creating app:")
+        ConsoleProgressBar claim = new ConsoleProgressBar(renderer, stream, true).start("Creating claim:")
+        app.status("step one")
+        app.requestCompleted()
+        renderer.run()
+
+        app.info("test-message")
+        renderer.run()
+        app.close()
+        renderer.run()
+        claim.close()
+
+        String text = output.toString("UTF-8")
+        // each task is drawn on its own line, and redrawn by moving the cursor up
+        MatcherAssert.assertThat text, containsString("\u001B[2K")
+        MatcherAssert.assertThat text, containsString("\u001B[2A")
+        MatcherAssert.assertThat text, containsString("Creating app - step one (")
+        MatcherAssert.assertThat text, containsString(", 1 request)")
+        MatcherAssert.assertThat text, containsString("Creating claim (")
+        MatcherAssert.assertThat text, containsString("\rtest-message")
+        MatcherAssert.assertThat text, containsString("Creating app - done (")
+    }
+
+    /**
+     * A scheduler that never runs the animation, tests draw each frame with {@link ConsoleRenderer#run()}.
+     */
+    private static ScheduledExecutorService scheduler(ScheduledFuture animation = mock(ScheduledFuture)) {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService)
+        when(scheduler.scheduleWithFixedDelay(ArgumentMatchers.any(Runnable), anyLong(), anyLong(), ArgumentMatchers.any(TimeUnit))).thenReturn(animation)
+        return scheduler
+    }
 }
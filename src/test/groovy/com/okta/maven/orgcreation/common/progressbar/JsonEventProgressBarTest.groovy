@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.progressbar
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import org.testng.annotations.Test
+
+import java.time.Duration
+
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.verify
+
+class JsonEventProgressBarTest {
+
+    @Test
+    void eventsTest() {
+        File eventsFile = new File(File.createTempDir(), "target/okta-events.jsonl")
+        JsonEventWriter writer = new JsonEventWriter(eventsFile.toPath(), 16)
+        ProgressBar delegate = mock(ProgressBar)
+
+        new JsonEventProgressBar(delegate, writer).withCloseable {
+            it.attribute("org", "https://okta.example.com")
+            it.attribute("app", "test-app")
+            it.start("Configuring a new OIDC Application, almost done:")
+            it.status("Creating application")
+            it.requestCompleted()
+            it.info("To set your password open this link: https://secret.example.com")
+            it.succeeded()
+        }
+        verify(delegate).info("To set your password open this link: https://secret.example.com")
+        verify(delegate).close()
+
+        assertThat writer.flush(Duration.ofSeconds(5)), is(true)
+        List<Map> events = eventsFile.readLines().collect { new ObjectMapper().readValue(it, Map) }
+
+        assertThat events.collect { it.event }, is(["start", "status", "end"])
+        events.each {
+            assertThat it.phase, is("Configuring a new OIDC Application, almost done")
+            assertThat it.org, is("https://okta.example.com")
+            assertThat it.app, is("test-app")
+            assertThat it.timestamp, notNullValue()
+        }
+        assertThat events[1].status, is("Creating application")
+        assertThat events[2].outcome, is("success")
+        assertThat events[2].requests, is(1)
+        assertThat events[2].durationMs, greaterThanOrEqualTo(0)
+        assertThat eventsFile.text, not(containsString("secret"))
+    }
+
+    @Test
+    void notSucceededIsFailureTest() {
+        File eventsFile = new File(File.createTempDir(), "okta-events.jsonl")
+        JsonEventWriter writer = new JsonEventWriter(eventsFile.toPath(), 16)
+
+        new JsonEventProgressBar(mock(ProgressBar), writer).withCloseable {
+            it.start()
+        }
+
+        assertThat writer.flush(Duration.ofSeconds(5)), is(true)
+        Map end = new ObjectMapper().readValue(eventsFile.readLines().last(), Map)
+        assertThat end.event, is("end")
+        assertThat end.outcome, is("failure")
+    }
+
+    @Test
+    void writerStopsWhenIdleTest() {
+        File eventsFile = new File(File.createTempDir(), "okta-events.jsonl")
+        JsonEventWriter writer = new JsonEventWriter(eventsFile.toPath(), 16, Duration.ofMillis(50))
+        assertThat writer.isRunning(), is(false)
+
+        writer.submit([event: "first"])
+        assertThat writer.isRunning(), is(true)
+        assertThat writer.flush(Duration.ofSeconds(5)), is(true)
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos()
+        while (writer.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10)
+        }
+        assertThat writer.isRunning(), is(false)
+
+        // the next event starts a new thread
+        writer.submit([event: "second"])
+        assertThat writer.flush(Duration.ofSeconds(5)), is(true)
+        assertThat eventsFile.readLines().collect { new ObjectMapper().readValue(it, Map).event }, is(["first", "second"])
+    }
+
+    @Test
+    void forFileSharesWriterTest() {
+        File dir = File.createTempDir()
+        assertThat JsonEventWriter.forFile(new File(dir, "okta-events.jsonl")), sameInstance(JsonEventWriter.forFile(new File(dir, "./okta-events.jsonl")))
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service
+
+import com.okta.commons.http.HttpException
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry
+import com.okta.sdk.client.Client
+import com.okta.sdk.error.Error
+import com.okta.sdk.resource.ResourceException
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import java.time.Duration
+import java.time.ZoneOffset
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.CountDownLatch
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+class ApiRequestExecutorTest {
+
+    private MetricsRegistry metrics
+
+    private List<Long> sleeps
+
+    private RequestGovernor governor
+
+    private ApiRequestExecutor executor
+
+    private Client client = mock(Client)
+
+    @BeforeMethod
+    void setup() {
+        metrics = new MetricsRegistry()
+        sleeps = []
+        governor = new RequestGovernor(1000, 4, { System.nanoTime() }, {})
+        executor = new ApiRequestExecutor(metrics, 4, Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofMinutes(1), { sleeps.add(it) }, { governor }, Deadline.none())
+    }
+
+    @Test
+    void rateLimitWaitsUntilResetTest() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC).withNano(0)
+        ResourceException rateLimited = resourceException(429, [
+                "Date": [DateTimeFormatter.RFC_1123_DATE_TIME.format(now)],
+                "x-rate-limit-remaining": ["0"],
+                "x-rate-limit-reset": [String.valueOf(now.toEpochSecond() + 7)]
+        ])
+
+        // not idempotent, but the request was not processed
+        assertThat executor.execute(client, "okta.createApplication", "my-app", failing(1, rateLimited)), is("result")
+        assertThat sleeps, is([7_000L])
+        assertThat metrics.snapshot()."okta.createApplication".retries, is(1L)
+        assertThat metrics.snapshot()."okta.createApplication".errors, is(0L)
+    }
+
+    @Test
+    void rateLimitTunesGovernorTest() {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC).withNano(0)
+        ResourceException rateLimited = resourceException(429, [
+                "Date": [DateTimeFormatter.RFC_1123_DATE_TIME.format(now)],
+                "X-Rate-Limit-Limit": ["120"],
+                "X-Rate-Limit-Reset": [String.valueOf(now.toEpochSecond() + 1)]
+        ])
+
+        assertThat executor.retryable(client, "okta.listApplications", null, failing(1, rateLimited)), is("result")
+        assertThat governor.rate(), is(2d)
+        assertThat governor.availableConcurrency(), is(4)
+    }
+
+    @Test
+    void rateLimitResetTooFarTest() {
+        ResourceException rateLimited = resourceException(429, [
+                "X-Rate-Limit-Reset": [String.valueOf(System.currentTimeMillis().intdiv(1000) + 3600)]
+        ])
+
+        expectException(ResourceException) {
+            executor.retryable(client, "okta.listApplications", null, failing(1, rateLimited))
+        }
+        assertThat sleeps, empty()
+    }
+
+    @Test
+    void transientErrorsAreRetriedWithBackoffTest() {
+        assertThat executor.retryable(client, "okta.listApplications", null, failing(2, resourceException(503))), is("result")
+        assertThat executor.retryable(client, "okta.listClaims", null, failing(1, new HttpException("connection reset"))), is("result")
+
+        assertThat sleeps.size(), is(3)
+        assertThat sleeps[0], lessThanOrEqualTo(100L)
+        assertThat sleeps[1], lessThanOrEqualTo(200L)
+        assertThat sleeps[2], lessThanOrEqualTo(100L)
+        assertThat metrics.snapshot()."okta.listApplications".retries, is(2L)
+    }
+
+    @Test
+    void notIdempotentIsNotRetriedTest() {
+        expectException(ResourceException) {
+            executor.execute(client, "okta.createApplication", null, failing(1, resourceException(500)))
+        }
+        assertThat sleeps, empty()
+        assertThat metrics.snapshot()."okta.createApplication".errors, is(1L)
+    }
+
+    @Test
+    void clientErrorIsNotRetriedTest() {
+        expectException(ResourceException) {
+            executor.retryable(client, "okta.listApplications", null, failing(1, resourceException(400)))
+        }
+        assertThat sleeps, empty()
+    }
+
+    @Test
+    void retryDelayBeyondDeadlineIsNotRetriedTest() {
+        executor = new ApiRequestExecutor(metrics, 4, Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ofMinutes(1), { sleeps.add(it) }, { governor },
+                Deadline.after(Duration.ofMillis(500)))
+        ResourceException rateLimited = resourceException(429, [
+                "X-Rate-Limit-Reset": [String.valueOf(System.currentTimeMillis().intdiv(1000) + 30)]
+        ])
+
+        expectException(ResourceException) {
+            executor.retryable(client, "okta.listApplications", null, failing(1, rateLimited))
+        }
+        assertThat sleeps, empty()
+    }
+
+    @Test
+    void expiredDeadlineTest() {
+        Deadline deadline = Deadline.none()
+        deadline.cancel()
+        executor = new ApiRequestExecutor(metrics, 4, Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofMinutes(1), { sleeps.add(it) }, { governor }, deadline)
+
+        expectException(DeadlineExceededException) {
+            executor.retryable(client, "okta.listApplications", null, failing(0, null))
+        }
+        assertThat metrics.snapshot()."okta.listApplications".errors, is(1L)
+    }
+
+    @Test(timeOut = 5000L)
+    void permitIsHeldUntilAbandonedCallCompletesTest() {
+        executor = new ApiRequestExecutor(metrics, 1, Duration.ofMillis(100), Duration.ofSeconds(1), Duration.ofMinutes(1), { sleeps.add(it) }, { governor },
+                Deadline.after(Duration.ofMillis(200)))
+        CountDownLatch finish = new CountDownLatch(1)
+        CountDownLatch finished = new CountDownLatch(1)
+
+        expectException(DeadlineExceededException) {
+            executor.execute(client, "okta.createApplication", null, {
+                // a request blocked on IO, it ignores the interrupt
+                while (finish.count > 0) {
+                    try {
+                        finish.await()
+                    } catch (InterruptedException ignored) {
+                        // keep waiting
+                    }
+                }
+                finished.countDown()
+                return "result"
+            })
+        }
+
+        // the call is still in flight, so it still counts against the org's concurrency
+        assertThat governor.availableConcurrency(), is(3)
+        finish.countDown()
+        finished.await()
+        while (governor.availableConcurrency() < 4) {
+            sleep(10)
+        }
+    }
+
+    @Test
+    void maxAttemptsTest() {
+        expectException(ResourceException) {
+            executor.retryable(client, "okta.listApplications", null, failing(10, resourceException(502)))
+        }
+        assertThat sleeps.size(), is(3)
+        assertThat metrics.snapshot()."okta.listApplications".count, is(1L)
+        assertThat metrics.snapshot()."okta.listApplications".errors, is(1L)
+    }
+
+    private static Closure<String> failing(int failures, RuntimeException exception) {
+        int calls = 0
+        return {
+            if (calls++ < failures) {
+                throw exception
+            }
+            return "result"
+        }
+    }
+
+    private static ResourceException resourceException(int status, Map<String, List<String>> headers = [:]) {
+        Error error = mock(Error)
+        when(error.getStatus()).thenReturn(status)
+        when(error.getHeaders()).thenReturn(headers)
+        return new ResourceException(error)
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service
+
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class CircuitBreakerTest {
+
+    private static final String SERVICE = "https://start.example.com"
+
+    private MutableClock clock
+
+    private File stateFile
+
+    @BeforeMethod
+    void setup() {
+        clock = new MutableClock()
+        stateFile = new File(File.createTempDir(), "circuit-breakers.json")
+    }
+
+    @Test
+    void closedTest() {
+        CircuitBreaker breaker = breaker()
+        breaker.acquire(SERVICE)
+        breaker.succeeded(SERVICE)
+        breaker.acquire(SERVICE)
+        assertThat stateFile.exists(), is(false)
+    }
+
+    @Test
+    void openFailsFastTest() {
+        breaker().failed(SERVICE)
+
+        // a single failure does not open the circuit
+        breaker().acquire(SERVICE)
+        breaker().failed(SERVICE)
+
+        // the state is shared with other builds
+        CircuitOpenException e = expectException(CircuitOpenException) {
+            breaker().acquire(SERVICE)
+        }
+        assertThat e.message, containsString("${SERVICE} is unavailable")
+        assertThat e.message, containsString("30 seconds")
+
+        // other services are not affected
+        breaker().acquire("https://other.example.com")
+    }
+
+    @Test
+    void successResetsFailuresTest() {
+        CircuitBreaker breaker = breaker()
+        breaker.failed(SERVICE)
+        breaker.succeeded(SERVICE)
+        breaker.failed(SERVICE)
+
+        // the failures were not in a row
+        breaker.acquire(SERVICE)
+    }
+
+    @Test
+    void halfOpenProbeTest() {
+        CircuitBreaker prober = breaker()
+        prober.failed(SERVICE)
+        prober.failed(SERVICE)
+        clock.advance(Duration.ofSeconds(31))
+
+        // a single probe is allowed
+        prober.acquire(SERVICE)
+        CircuitOpenException e = expectException(CircuitOpenException) {
+            breaker().acquire(SERVICE)
+        }
+        assertThat e.message, containsString("checking if the service is available")
+
+        // a successful probe closes the circuit
+        prober.succeeded(SERVICE)
+        breaker().acquire(SERVICE)
+        breaker().acquire(SERVICE)
+    }
+
+    @Test
+    void failedProbeReopensLongerTest() {
+        CircuitBreaker prober = breaker()
+        prober.failed(SERVICE)
+        prober.failed(SERVICE)
+        clock.advance(Duration.ofSeconds(31))
+        prober.acquire(SERVICE)
+        prober.failed(SERVICE)
+
+        clock.advance(Duration.ofSeconds(31))
+        CircuitOpenException e = expectException(CircuitOpenException) {
+            prober.acquire(SERVICE)
+        }
+        assertThat e.message, containsString("3 time(s) in a row")
+
+        clock.advance(Duration.ofSeconds(30))
+        prober.acquire(SERVICE)
+    }
+
+    @Test
+    void stateExpiresTest() {
+        CircuitBreaker breaker = breaker()
+        breaker.failed(SERVICE)
+        breaker.failed(SERVICE)
+        clock.advance(Duration.ofMinutes(10))
+
+        breaker.acquire(SERVICE)
+        assertThat stateFile.exists(), is(false)
+    }
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker(stateFile, 2, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofMinutes(2), clock)
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2020-06-01T12:00:00Z")
+
+        void advance(Duration duration) {
+            now = now.plus(duration)
+        }
+
+        @Override
+        ZoneId getZone() {
+            return ZoneOffset.UTC
+        }
+
+        @Override
+        Clock withZone(ZoneId zone) {
+            return this
+        }
+
+        @Override
+        Instant instant() {
+            return now
+        }
+    }
+}
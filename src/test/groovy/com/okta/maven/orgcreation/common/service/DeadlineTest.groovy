@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service
+
+import org.testng.annotations.Test
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class DeadlineTest {
+
+    @Test
+    void noneTest() {
+        Deadline deadline = Deadline.after(Duration.ZERO)
+        assertThat deadline.bounded, is(false)
+        assertThat deadline.expired, is(false)
+        assertThat deadline.remaining(), nullValue()
+        assertThat deadline.timeoutMillis(60_000), is(60_000)
+        assertThat deadline.call("op") { "result" }, is("result")
+    }
+
+    @Test
+    void timeoutMillisTest() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(10))
+        assertThat deadline.timeoutMillis(60_000), allOf(greaterThan(9_000), lessThanOrEqualTo(10_000))
+        assertThat deadline.timeoutMillis(1_000), is(1_000)
+    }
+
+    @Test
+    void expiredTest() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(1))
+        sleep(20)
+        assertThat deadline.expired, is(true)
+        assertThat deadline.timeoutMillis(60_000), is(1)
+        DeadlineExceededException e = expectException(DeadlineExceededException) {
+            deadline.check("okta.listApplications")
+        }
+        assertThat e.message, containsString("'okta.listApplications' did not complete")
+    }
+
+    @Test
+    void pausedTest() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(100))
+        assertThat deadline.paused {
+            sleep(300)
+            return "answer"
+        }, is("answer")
+        assertThat deadline.expired, is(false)
+        assertThat deadline.remaining(), greaterThan(Duration.ZERO)
+    }
+
+    @Test(timeOut = 5000L)
+    void callTimesOutTest() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(200))
+        DeadlineExceededException e = expectException(DeadlineExceededException) {
+            deadline.call("okta.createApplication") {
+                sleep(10_000)
+                return "result"
+            }
+        }
+        assertThat e.message, containsString("'okta.createApplication' did not complete")
+    }
+
+    @Test(timeOut = 5000L)
+    void timeoutInterruptsCallTest() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(200))
+        CountDownLatch interrupted = new CountDownLatch(1)
+        expectException(DeadlineExceededException) {
+            deadline.call("okta.createApplication") {
+                try {
+                    Thread.sleep(10_000)
+                } catch (InterruptedException e) {
+                    interrupted.countDown()
+                }
+                return "result"
+            }
+        }
+        assertThat interrupted.await(2, TimeUnit.SECONDS), is(true)
+    }
+
+    @Test(timeOut = 5000L)
+    void callFailureIsRethrownTest() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(10))
+        expectException(IllegalArgumentException) {
+            deadline.call("op") { throw new IllegalArgumentException("expected") }
+        }
+    }
+
+    @Test(timeOut = 5000L)
+    void cancelAbortsCallTest() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(30))
+        AtomicInteger listenerCalls = new AtomicInteger()
+        Deadline.Registration registration = deadline.onCancel { listenerCalls.incrementAndGet() }
+
+        Thread.start {
+            sleep(200)
+            deadline.cancel()
+        }
+        DeadlineExceededException e = expectException(DeadlineExceededException) {
+            deadline.call("okta.listClaims") { sleep(10_000) }
+        }
+        assertThat e.message, containsString("'okta.listClaims' was canceled")
+        assertThat listenerCalls.get(), is(1)
+        assertThat deadline.expired, is(true)
+
+        // removed listeners are not called, new listeners are called immediately
+        registration.close()
+        deadline.cancel()
+        deadline.onCancel { listenerCalls.addAndGet(10) }
+        assertThat listenerCalls.get(), is(11)
+    }
+
+    @Test(timeOut = 5000L)
+    void interruptAbortsCallTest() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(30))
+        Thread caller = Thread.currentThread()
+        Thread.start {
+            sleep(200)
+            caller.interrupt()
+        }
+        try {
+            DeadlineExceededException e = expectException(DeadlineExceededException) {
+                deadline.call("okta.listClaims") { sleep(10_000) }
+            }
+            assertThat e.message, containsString("interrupted")
+            assertThat Thread.currentThread().isInterrupted(), is(true)
+        } finally {
+            Thread.interrupted()
+        }
+    }
+
+    @Test(timeOut = 5000L)
+    void cancelAbortsUnboundedCallTest() {
+        Deadline deadline = Deadline.none()
+        Thread.start {
+            sleep(200)
+            deadline.cancel()
+        }
+        DeadlineExceededException e = expectException(DeadlineExceededException) {
+            deadline.call("okta.listClaims") { sleep(10_000) }
+        }
+        assertThat e.message, containsString("'okta.listClaims' was canceled")
+    }
+
+    @Test(timeOut = 5000L)
+    void timeoutRunsAbortListenersTest() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(200))
+        CountDownLatch aborted = new CountDownLatch(1)
+        Deadline current = null
+        expectException(DeadlineExceededException) {
+            deadline.call("okta.createApplication") {
+                current = Deadline.current()
+                Deadline.onAbort { aborted.countDown() }
+                sleep(10_000)
+            }
+        }
+        assertThat aborted.await(2, TimeUnit.SECONDS), is(true)
+        assertThat current, sameInstance(deadline)
+
+        // outside of a call there is nothing to abort
+        assertThat Deadline.current(), nullValue()
+        Deadline.onAbort { throw new IllegalStateException("not in a call") }.close()
+    }
+}
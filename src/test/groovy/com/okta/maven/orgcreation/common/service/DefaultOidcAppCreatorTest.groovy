@@ -23,6 +23,12 @@ import com.okta.sdk.resource.group.Group
 import com.okta.sdk.resource.group.GroupList
 import org.testng.annotations.Test
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicBoolean
+
 import static org.hamcrest.MatcherAssert.assertThat
 import static org.hamcrest.Matchers.is
 import static org.mockito.ArgumentMatchers.any
@@ -118,4 +124,61 @@ class DefaultOidcAppCreatorTest {
         verify(settingsClient).setApplicationType(OpenIdConnectApplicationType.WEB)
         verify(settingsClient).put("post_logout_redirect_uris", ["http://localhost:8080/"])
     }
+
+    @Test(timeOut = 10000L)
+    void concurrentCreateSameLabelCreatesOneApp() {
+
+        String appName = "appLabel-concurrentCreate"
+        String appId = "appId-concurrentCreate"
+
+        Client client = mock(Client)
+        ApplicationList appList = mock(ApplicationList)
+        RequestBuilder http = mock(RequestBuilder)
+        ExtensibleResource response = mock(ExtensibleResource)
+        OpenIdConnectApplication newApp = mock(OpenIdConnectApplication, RETURNS_SELF)
+        OpenIdConnectApplicationSettings appSettings = mock(OpenIdConnectApplicationSettings, RETURNS_SELF)
+        OpenIdConnectApplicationSettingsClient settingsClient = mock(OpenIdConnectApplicationSettingsClient, RETURNS_SELF)
+        ApplicationGroupAssignment groupAssignment = mock(ApplicationGroupAssignment, RETURNS_SELF)
+        GroupList groupList = mock(GroupList)
+        Group group = mock(Group)
+
+        when(client.listApplications(appName, null, null, null)).thenReturn(appList)
+        AtomicBoolean created = new AtomicBoolean(false)
+        // a late caller that misses the in-flight call must find the app created by the first one
+        when(appList.stream()).thenAnswer { (created.get() ? [newApp] : []).stream() }
+        when(newApp.getLabel()).thenReturn(appName)
+        when(client.instantiate(OpenIdConnectApplication)).thenReturn(newApp)
+        when(client.instantiate(OpenIdConnectApplicationSettings)).thenReturn(appSettings)
+        when(client.instantiate(OpenIdConnectApplicationSettingsClient)).thenReturn(settingsClient)
+        when(client.instantiate(ApplicationGroupAssignment)).thenReturn(groupAssignment)
+        when(client.createApplication(newApp)).thenAnswer {
+            sleep(200) // slow create, other callers should join this call
+            created.set(true)
+            return newApp
+        }
+        when(newApp.getId()).thenReturn(appId)
+        when(groupList.single()).thenReturn(group)
+        when(group.getId()).thenReturn("everyone-id")
+        when(client.listGroups("everyone", null, null)).thenReturn(groupList)
+        when(client.http()).thenReturn(http)
+        when(http.get("/api/v1/internal/apps/${appId}/settings/clientcreds", ExtensibleResource)).thenReturn(response)
+
+        DefaultOidcAppCreator appCreator = new DefaultOidcAppCreator(new SingleFlight())
+        ExecutorService executor = Executors.newFixedThreadPool(4)
+        try {
+            // an application is found by its label, whatever its type
+            List<Future<ExtensibleResource>> futures = (1..4).collect { index ->
+                executor.submit({
+                    index % 2 == 0
+                            ? appCreator.createOidcServiceApp(client, appName)
+                            : appCreator.createOidcApp(client, appName, "http://localhost:8080/callback")
+                } as Callable<ExtensibleResource>)
+            }
+            futures.each { assertThat it.get(), is(response) }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        verify(client, times(1)).createApplication(newApp)
+    }
 }
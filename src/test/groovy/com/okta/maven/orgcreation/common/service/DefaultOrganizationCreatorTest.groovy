@@ -15,15 +15,29 @@
  */
 package com.okta.maven.orgcreation.common.service
 
+import com.github.tomakehurst.wiremock.stubbing.Scenario
 import com.github.tomakehurst.wiremock.stubbing.StubMapping
+import com.github.tomakehurst.wiremock.verification.LoggedRequest
+import com.okta.maven.orgcreation.common.RestException
 import com.okta.maven.orgcreation.common.WireMockSupport
+import com.okta.maven.orgcreation.common.http.HttpTransports
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry
 import com.okta.maven.orgcreation.common.model.OrganizationRequest
 import com.okta.maven.orgcreation.common.model.OrganizationResponse
 import org.testng.annotations.Test
 
+import java.time.Duration
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
 import static com.github.tomakehurst.wiremock.client.WireMock.*
 import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.containsString
+import static org.hamcrest.Matchers.hasSize
+import static org.hamcrest.Matchers.instanceOf
 import static org.hamcrest.Matchers.is
+import static org.hamcrest.Matchers.lessThan
+import static org.hamcrest.Matchers.not
+import static org.hamcrest.Matchers.notNullValue
 
 class DefaultOrganizationCreatorTest implements WireMockSupport {
 
@@ -41,6 +55,55 @@ class DefaultOrganizationCreatorTest implements WireMockSupport {
                     """))
                 .withHeader("Content-Type", equalTo("application/json"))
                 .withHeader("Accept", equalTo("application/json"))
+                .willReturn(aResponse()
+                    .withHeader("Content-Type","application/json")
+                    .withBody(basicSuccess())),
+                post("/flaky/create")
+                .inScenario("flaky").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse()
+                    .withStatus(503)
+                    .withHeader("Content-Type","application/json")
+                    .withBody('{"error": "unavailable", "message": "Service Unavailable"}'))
+                .willSetStateTo("available"),
+                post("/flaky/create")
+                .inScenario("flaky").whenScenarioStateIs("available")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type","application/json")
+                    .withBody(basicSuccess())),
+                post("/rejected/create")
+                .willReturn(aResponse()
+                    .withStatus(400)
+                    .withHeader("Content-Type","application/json")
+                    .withBody('{"error": "invalid", "message": "Invalid email"}')),
+                post("/limited/create")
+                .willReturn(aResponse()
+                    .withStatus(429)
+                    .withHeader("Content-Type","application/json")
+                    .withBody('{"error": "rate_limited", "message": "Too Many Requests"}')),
+                post("/verify/hung")
+                .willReturn(aResponse()
+                    .withFixedDelay(10_000)
+                    .withHeader("Content-Type","application/json")
+                    .withBody(basicSuccess())),
+                // two endpoints, 'primary' is faster to probe but slow to verify and down for create
+                head(urlEqualTo("/secondary"))
+                .willReturn(aResponse()
+                    .withFixedDelay(300)),
+                post("/primary/create")
+                .willReturn(aResponse()
+                    .withStatus(503)
+                    .withHeader("Content-Type","application/json")
+                    .withBody('{"error": "unavailable", "message": "Service Unavailable"}')),
+                post("/secondary/create")
+                .willReturn(aResponse()
+                    .withHeader("Content-Type","application/json")
+                    .withBody(basicSuccess())),
+                post("/primary/verify/hedged")
+                .willReturn(aResponse()
+                    .withFixedDelay(5_000)
+                    .withHeader("Content-Type","application/json")
+                    .withBody(basicSuccess().replace("okta.example.com", "primary.example.com"))),
+                post("/secondary/verify/hedged")
                 .willReturn(aResponse()
                     .withHeader("Content-Type","application/json")
                     .withBody(basicSuccess()))
@@ -62,6 +125,172 @@ class DefaultOrganizationCreatorTest implements WireMockSupport {
         assertThat response.email, is("joe.coder@example.com")
     }
 
+    @Test
+    void serverErrorIsRetriedWithSameKeyTest() {
+
+        IdempotencyKeyStore keys = IdempotencyKeyStore.inMemory()
+        DefaultOktaOrganizationCreator creator = new DefaultOktaOrganizationCreator(new MetricsRegistry(), Deadline.none(), keys, CircuitBreaker.inMemory(), Duration.ofMillis(10))
+        OrganizationRequest request = organizationRequest()
+
+        OrganizationResponse response = creator.createNewOrg(mockUrl() + "flaky", request)
+        assertThat response.orgUrl, is("https://okta.example.com")
+
+        List<LoggedRequest> requests = wireMockServer.findAll(postRequestedFor(urlEqualTo("/flaky/create")))
+        assertThat requests, hasSize(2)
+        String key = requests[0].getHeader(DefaultOktaOrganizationCreator.IDEMPOTENCY_KEY)
+        assertThat key, notNullValue()
+        assertThat requests[1].getHeader(DefaultOktaOrganizationCreator.IDEMPOTENCY_KEY), is(key)
+
+        // the key is kept until the org is verified
+        assertThat keys.keyFor(mockUrl() + "flaky", request), is(key)
+    }
+
+    @Test
+    void rejectedRequestIsNotRetriedTest() {
+
+        IdempotencyKeyStore keys = IdempotencyKeyStore.inMemory()
+        DefaultOktaOrganizationCreator creator = new DefaultOktaOrganizationCreator(new MetricsRegistry(), Deadline.none(), keys, CircuitBreaker.inMemory(), Duration.ofMillis(10))
+        OrganizationRequest request = organizationRequest()
+        String key = keys.keyFor(mockUrl() + "rejected", request)
+
+        RestException e = expectException(RestException) {
+            creator.createNewOrg(mockUrl() + "rejected", request)
+        }
+        assertThat e.errorResponse.status, is(400)
+        assertThat wireMockServer.findAll(postRequestedFor(urlEqualTo("/rejected/create"))), hasSize(1)
+
+        // a rejected request is not replayed
+        assertThat keys.keyFor(mockUrl() + "rejected", request), not(key)
+    }
+
+    @Test(timeOut = 10_000L)
+    void unavailableServiceFailsFastTest() {
+
+        File stateFile = new File(File.createTempDir(), "circuit-breakers.json")
+        String unavailableUrl = "http://localhost:${unusedPort()}"
+        DefaultOktaOrganizationCreator creator = new DefaultOktaOrganizationCreator(new MetricsRegistry(), Deadline.none(),
+                IdempotencyKeyStore.inMemory(), CircuitBreaker.file(stateFile), Duration.ofMillis(10))
+
+        // the circuit opens after 3 failed builds in a row
+        3.times {
+            IOException failure = null
+            try {
+                creator.createNewOrg(unavailableUrl, organizationRequest())
+            } catch (IOException e) {
+                failure = e
+            }
+            assertThat failure, notNullValue()
+            assertThat failure, not(instanceOf(CircuitOpenException))
+        }
+        assertThat stateFile.exists(), is(true)
+
+        // the next build fails without a request
+        DefaultOktaOrganizationCreator nextBuild = new DefaultOktaOrganizationCreator(new MetricsRegistry(), Deadline.none(),
+                IdempotencyKeyStore.inMemory(), CircuitBreaker.file(stateFile), Duration.ofMillis(10))
+        CircuitOpenException e = expectException(CircuitOpenException) {
+            nextBuild.createNewOrg(unavailableUrl, organizationRequest())
+        }
+        assertThat e.message, containsString(unavailableUrl + " is unavailable")
+
+        // other services are not affected
+        assertThat nextBuild.createNewOrg(mockUrl(), organizationRequest()).orgUrl, is("https://okta.example.com")
+    }
+
+    @Test(timeOut = 10_000L)
+    void rateLimitedServiceDoesNotOpenCircuitTest() {
+
+        File stateFile = new File(File.createTempDir(), "circuit-breakers.json")
+        DefaultOktaOrganizationCreator creator = new DefaultOktaOrganizationCreator(new MetricsRegistry(), Deadline.none(),
+                IdempotencyKeyStore.inMemory(), CircuitBreaker.file(stateFile), Duration.ofMillis(10))
+
+        4.times {
+            RestException e = expectException(RestException) {
+                creator.createNewOrg(mockUrl() + "limited", organizationRequest())
+            }
+            assertThat e.errorResponse.status, is(429)
+        }
+        assertThat stateFile.exists(), is(false)
+    }
+
+    @Test(timeOut = 10_000L)
+    void createFailsOverToNextEndpointTest() {
+
+        DefaultOktaOrganizationCreator creator = multiEndpointCreator()
+        OrganizationResponse response = creator.createNewOrg(mockUrl() + "primary," + mockUrl() + "secondary", organizationRequest())
+        assertThat response.orgUrl, is("https://okta.example.com")
+
+        // the request is retried, then sent to the next endpoint with the same key
+        List<LoggedRequest> primary = wireMockServer.findAll(postRequestedFor(urlEqualTo("/primary/create")))
+        List<LoggedRequest> secondary = wireMockServer.findAll(postRequestedFor(urlEqualTo("/secondary/create")))
+        assertThat primary, hasSize(3)
+        assertThat secondary, hasSize(1)
+        assertThat secondary[0].getHeader(DefaultOktaOrganizationCreator.IDEMPOTENCY_KEY),
+                is(primary[0].getHeader(DefaultOktaOrganizationCreator.IDEMPOTENCY_KEY))
+    }
+
+    @Test(timeOut = 10_000L)
+    void slowVerifyIsHedgedTest() {
+
+        DefaultOktaOrganizationCreator creator = multiEndpointCreator()
+        long start = System.nanoTime()
+        OrganizationResponse response = creator.verifyNewOrg(mockUrl() + "primary," + mockUrl() + "secondary", "hedged", "123456")
+
+        assertThat response.orgUrl, is("https://okta.example.com")
+        assertThat System.nanoTime() - start, lessThan(Duration.ofSeconds(3).toNanos())
+        assertThat wireMockServer.findAll(postRequestedFor(urlEqualTo("/secondary/verify/hedged"))), hasSize(1)
+    }
+
+    @Test(timeOut = 5000L)
+    void hungRequestTimesOutTest() {
+
+        DefaultOktaOrganizationCreator creator = new DefaultOktaOrganizationCreator(new MetricsRegistry(), Deadline.after(Duration.ofMillis(500)))
+        long start = System.nanoTime()
+        DeadlineExceededException e = expectException(DeadlineExceededException) {
+            creator.verifyNewOrg(mockUrl(), "hung", "123456")
+        }
+        assertThat e.message, containsString("okta.verifyOrg")
+        assertThat System.nanoTime() - start, lessThan(Duration.ofSeconds(3).toNanos())
+    }
+
+    @Test(timeOut = 5000L)
+    void canceledRequestIsAbortedTest() {
+
+        Deadline deadline = Deadline.none()
+        DefaultOktaOrganizationCreator creator = new DefaultOktaOrganizationCreator(new MetricsRegistry(), deadline)
+        Thread.start {
+            sleep(300)
+            deadline.cancel()
+        }
+        DeadlineExceededException e = expectException(DeadlineExceededException) {
+            creator.verifyNewOrg(mockUrl(), "hung", "123456")
+        }
+        assertThat e.message, containsString("canceled")
+    }
+
+    private static DefaultOktaOrganizationCreator multiEndpointCreator() {
+        return new DefaultOktaOrganizationCreator(new MetricsRegistry(), Deadline.none(), IdempotencyKeyStore.inMemory(),
+                CircuitBreaker.inMemory(), Duration.ofMillis(10),
+                { new RegistrationEndpoints(RegistrationEndpoints.parse(it), Duration.ofMillis(200), Duration.ofMillis(200), Duration.ofSeconds(2)) },
+                HttpTransports.default)
+    }
+
+    private static int unusedPort() {
+        ServerSocket socket = new ServerSocket(0)
+        try {
+            return socket.localPort
+        } finally {
+            socket.close()
+        }
+    }
+
+    private static OrganizationRequest organizationRequest() {
+        return new OrganizationRequest()
+            .setEmail("joe.coder@example.com")
+            .setOrganization("Test co")
+            .setFirstName("Joe")
+            .setLastName("Coder")
+    }
+
     private String basicSuccess() {
         return """
         {
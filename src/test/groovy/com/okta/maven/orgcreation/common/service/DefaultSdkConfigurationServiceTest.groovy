@@ -20,8 +20,14 @@ import com.okta.sdk.impl.client.DefaultClientBuilder
 import com.okta.sdk.impl.config.ClientConfiguration
 import org.testng.annotations.Test
 
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
 import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.empty
 import static org.hamcrest.Matchers.is
+import static org.hamcrest.Matchers.startsWith
 import static org.hamcrest.io.FileMatchers.anExistingFile
 import static org.mockito.Mockito.mock
 
@@ -53,6 +59,32 @@ class DefaultSdkConfigurationServiceTest {
                         token: "an-api-token"]]])
     }
 
+    @Test
+    void concurrentWritesSdkConfig() {
+
+        DefaultSdkConfigurationService configurationService = configurationService(mock(ClientConfiguration))
+        File configDir = File.createTempDir("concurrentWritesSdkConfig-", "-test")
+        File configFile = new File(configDir, "test.yaml")
+
+        ExecutorService executor = Executors.newFixedThreadPool(8)
+        try {
+            List<Future> futures = (1..32).collect { index ->
+                executor.submit {
+                    configurationService.writeOktaYaml("https://okta.example.com", "an-api-token-${index}".toString(), configFile)
+                }
+            }
+            futures.each { it.get() }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        // the file must be complete and written by a single writer, and no temp files should be left behind
+        Map config = TestUtil.readYamlFromFile(configFile)
+        assertThat config.okta.client.orgUrl, is("https://okta.example.com")
+        assertThat config.okta.client.token, startsWith("an-api-token-")
+        assertThat configDir.list().findAll { it.endsWith(".tmp") }, empty()
+    }
+
     private static DefaultSdkConfigurationService configurationService(ClientConfiguration clientConfig) {
         return new DefaultSdkConfigurationService() {
             @Override
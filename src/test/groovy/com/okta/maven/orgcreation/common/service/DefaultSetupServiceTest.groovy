@@ -17,10 +17,13 @@ package com.okta.maven.orgcreation.common.service
 
 import com.okta.maven.orgcreation.common.FactorVerificationException
 import com.okta.maven.orgcreation.common.config.MutablePropertySource
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry
 import com.okta.maven.orgcreation.common.model.ErrorResponse
 import com.okta.maven.orgcreation.common.model.OrganizationRequest
 import com.okta.maven.orgcreation.common.model.OrganizationResponse
 import com.okta.maven.orgcreation.common.model.RegistrationQuestions
+import com.okta.maven.orgcreation.common.progressbar.ProgressBar
+import com.okta.maven.orgcreation.common.progressbar.ProgressBarFactory
 import com.okta.sdk.client.Client
 import com.okta.sdk.client.ClientBuilder
 import com.okta.sdk.client.Clients
@@ -35,6 +38,7 @@ import org.testng.IObjectFactory
 import org.testng.annotations.ObjectFactory
 import org.testng.annotations.Test
 
+import java.time.Duration
 import java.time.Instant
 import java.util.function.Supplier
 
@@ -66,6 +70,7 @@ class DefaultSetupServiceTest {
 
         setupService.createOktaOrg(registrationQuestions, oktaPropsFile, false, false)
 
+        verify(setupService.organizationCreator).warmUp("https://start.okta.dev/")
         verify(setupService.organizationCreator).createNewOrg("https://start.okta.dev/", orgRequest)
     }
 
@@ -84,9 +89,34 @@ class DefaultSetupServiceTest {
 
         setupService.verifyOktaOrg("test-id",  registrationQuestions, oktaPropsFile)
 
+        verify(setupService.organizationCreator).warmUp("https://start.okta.dev/")
         verify(setupService.organizationCreator).verifyNewOrg("https://start.okta.dev/", "test-id", "123456")
     }
 
+    @Test
+    void verifyOktaOrg_codeEnteredAfterDeadline() {
+        String newOrgUrl = "https://org.example.com"
+
+        OktaOrganizationCreator organizationCreator = mock(OktaOrganizationCreator)
+        DefaultSetupService setupService = new DefaultSetupService(mock(SdkConfigurationService), organizationCreator, mock(OidcAppCreator), mock(AuthorizationServerService), null,
+                { mock(Client) } as Supplier<Client>, { ProgressBar.create(false) } as ProgressBarFactory, new MetricsRegistry(), Deadline.after(Duration.ofMillis(100)))
+
+        // the user takes longer than the deadline to read the email and type the code
+        RegistrationQuestions registrationQuestions = mock(RegistrationQuestions)
+        when(registrationQuestions.getVerificationCode()).thenAnswer {
+            sleep(300)
+            return "123456"
+        }
+        OrganizationResponse orgResponse = mock(OrganizationResponse)
+        when(organizationCreator.verifyNewOrg("https://start.okta.dev/", "test-id", "123456")).thenReturn(orgResponse)
+        when(orgResponse.getOrgUrl()).thenReturn(newOrgUrl)
+        when(orgResponse.getUpdatePasswordUrl()).thenReturn("https://reset.password")
+
+        setupService.verifyOktaOrg("test-id", registrationQuestions, mock(File))
+
+        verify(organizationCreator).verifyNewOrg("https://start.okta.dev/", "test-id", "123456")
+    }
+
     @Test
     void verifyOktaOrg_invalidCode() {
         String newOrgUrl = "https://org.example.com"
@@ -149,6 +179,8 @@ class DefaultSetupServiceTest {
         PowerMockito.mockStatic(Clients)
         ClientBuilder clientBuilder = mock(ClientBuilder)
         Client client = mock(Client)
+        when(clientBuilder.setRetryMaxAttempts(0)).thenReturn(clientBuilder)
+        when(clientBuilder.setRetryMaxElapsed(0)).thenReturn(clientBuilder)
         when(clientBuilder.build()).thenReturn(client)
         when(Clients.builder()).thenReturn(clientBuilder)
 
@@ -168,6 +200,8 @@ class DefaultSetupServiceTest {
                 "okta.oauth2.client-secret": "test-client-secret"
         ])
 
+        verify(setupService.oidcAppCreator).prefetch(client, oidcAppName)
+
         // no group claim created
         PowerMockito.verifyNoMoreInteractions(setupService.authorizationServerService)
     }
@@ -185,6 +219,8 @@ class DefaultSetupServiceTest {
         PowerMockito.mockStatic(Clients)
         ClientBuilder clientBuilder = mock(ClientBuilder)
         Client client = mock(Client)
+        when(clientBuilder.setRetryMaxAttempts(0)).thenReturn(clientBuilder)
+        when(clientBuilder.setRetryMaxElapsed(0)).thenReturn(clientBuilder)
         when(clientBuilder.build()).thenReturn(client)
         when(Clients.builder()).thenReturn(clientBuilder)
 
@@ -204,6 +240,8 @@ class DefaultSetupServiceTest {
                 "okta.oauth2.client-secret": "test-client-secret"
         ])
 
+        verify(setupService.oidcAppCreator).prefetch(client, oidcAppName)
+        verify(setupService.authorizationServerService).prefetchGroupClaim(client, authorizationServerId)
         verify(setupService.authorizationServerService).createGroupClaim(client, groupClaimName, authorizationServerId)
     }
 
@@ -233,7 +271,8 @@ class DefaultSetupServiceTest {
         AuthorizationServerService authServerService = mock(AuthorizationServerService)
         when(sdkConfigurationService.loadUnvalidatedConfiguration()).thenReturn(new ClientConfiguration())
 
-        DefaultSetupService setupService = new DefaultSetupService(sdkConfigurationService, organizationCreator, oidcAppCreator, authServerService, springPropertyKey)
+        DefaultSetupService setupService = new DefaultSetupService(sdkConfigurationService, organizationCreator, oidcAppCreator, authServerService, springPropertyKey,
+                { OktaClients.build() } as Supplier<Client>, { ProgressBar.create(it) } as ProgressBarFactory, new MetricsRegistry(), Deadline.none())
 
         return setupService
     }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service
+
+import com.okta.maven.orgcreation.common.model.OrganizationRequest
+import org.testng.annotations.Test
+
+import java.nio.file.Files
+
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class IdempotencyKeyStoreTest {
+
+    private static final String BASE_URL = "https://start.example.com"
+
+    @Test
+    void keyIsReusedAcrossRestartsTest() {
+        File file = new File(Files.createTempDirectory("okta-keys-").toFile(), "pending-registrations.json")
+        OrganizationRequest request = organizationRequest("joe.coder@example.com")
+
+        String key = IdempotencyKeyStore.file(file).keyFor(BASE_URL, request)
+        assertThat file.exists(), is(true)
+
+        // a new store (e.g. the next build) resumes with the same key, the email is not case sensitive
+        IdempotencyKeyStore store = IdempotencyKeyStore.file(file)
+        assertThat store.keyFor(BASE_URL, organizationRequest("Joe.Coder@Example.com")), is(key)
+        assertThat store.keyFor(BASE_URL, organizationRequest("jill.coder@example.com")), not(key)
+        assertThat store.keyFor("https://other.example.com", request), not(key)
+
+        // the request is stored as a hash
+        assertThat file.text, not(containsString("joe.coder"))
+    }
+
+    @Test
+    void verifiedRemovesKeyTest() {
+        File file = new File(Files.createTempDirectory("okta-keys-").toFile(), "pending-registrations.json")
+        IdempotencyKeyStore store = IdempotencyKeyStore.file(file)
+        OrganizationRequest request = organizationRequest("joe.coder@example.com")
+
+        String key = store.keyFor(BASE_URL, request)
+        store.created(key, "org-id")
+        assertThat IdempotencyKeyStore.file(file).keyFor(BASE_URL, request), is(key)
+
+        store.verified("org-id")
+        assertThat file.exists(), is(false)
+        assertThat store.keyFor(BASE_URL, request), not(key)
+    }
+
+    @Test
+    void rejectedRemovesKeyTest() {
+        IdempotencyKeyStore store = IdempotencyKeyStore.inMemory()
+        OrganizationRequest request = organizationRequest("joe.coder@example.com")
+
+        String key = store.keyFor(BASE_URL, request)
+        assertThat store.keyFor(BASE_URL, request), is(key)
+        store.rejected(key)
+        assertThat store.keyFor(BASE_URL, request), not(key)
+    }
+
+    @Test
+    void invalidFileIsIgnoredTest() {
+        File file = Files.createTempFile("pending-registrations", ".json").toFile()
+        file.text = "not json"
+
+        assertThat IdempotencyKeyStore.file(file).keyFor(BASE_URL, organizationRequest("joe.coder@example.com")), notNullValue()
+    }
+
+    private static OrganizationRequest organizationRequest(String email) {
+        return new OrganizationRequest()
+                .setFirstName("Joe")
+                .setLastName("Coder")
+                .setEmail(email)
+                .setOrganization("Test co")
+    }
+}
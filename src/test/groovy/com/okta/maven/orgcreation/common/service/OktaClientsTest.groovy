@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service
+
+import com.github.tomakehurst.wiremock.stubbing.StubMapping
+import com.okta.commons.http.HttpException
+import com.okta.commons.http.RetryRequestExecutor
+import com.okta.maven.orgcreation.common.WireMockSupport
+import com.okta.sdk.authc.credentials.TokenClientCredentials
+import com.okta.sdk.cache.Caches
+import com.okta.sdk.client.Client
+import com.okta.sdk.client.Clients
+import com.okta.sdk.resource.ResourceException
+import org.testng.annotations.Test
+
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.containsString
+import static org.hamcrest.Matchers.hasSize
+import static org.hamcrest.Matchers.instanceOf
+import static org.hamcrest.Matchers.is
+
+class OktaClientsTest implements WireMockSupport {
+
+    private static final String DISABLE_HTTPS_CHECK = "okta.testing.disableHttpsCheck"
+
+    @Override
+    Collection<StubMapping> wireMockStubMapping() {
+        // the headers the SDK needs to retry a rate limited call, the limit resets right away
+        Instant now = Instant.now()
+        return [
+            get("/api/v1/groups")
+                .willReturn(aResponse()
+                    .withStatus(429)
+                    .withHeader("Content-Type", "application/json")
+                    .withHeader("Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(now.atZone(ZoneOffset.UTC)))
+                    .withHeader("X-Rate-Limit-Reset", String.valueOf(now.epochSecond))
+                    .withBody('{"errorCode": "E0000047", "errorSummary": "API call exceeded rate limit due to too many requests."}')),
+            get("/api/v1/apps")
+                .willReturn(aResponse()
+                    .withFixedDelay(10_000)
+                    .withHeader("Content-Type", "application/json")
+                    .withBody('[]'))
+        ]
+    }
+
+    @Test
+    void sdkRetriesTurnedOff() {
+        Client client = client()
+
+        assertThat OktaClients.requestExecutor(client), instanceOf(RetryRequestExecutor)
+        assertThat OktaClients.requestExecutor(client).numRetries, is(0)
+    }
+
+    @Test
+    void failedCallIsMadeOnce() {
+        Client client = client()
+
+        expectException(ResourceException) { client.listGroups().iterator().hasNext() }
+        assertThat wireMockServer.findAll(getRequestedFor(urlPathEqualTo("/api/v1/groups"))), hasSize(1)
+    }
+
+    private Client client() {
+        // the mock server is plain http
+        String disableHttpsCheck = System.getProperty(DISABLE_HTTPS_CHECK)
+        System.setProperty(DISABLE_HTTPS_CHECK, "true")
+        try {
+            return OktaClients.build(Clients.builder()
+                    .setOrgUrl(mockUrl())
+                    .setClientCredentials(new TokenClientCredentials("mock-api-token"))
+                    .setCacheManager(Caches.newDisabledCacheManager()))
+        } finally {
+            if (disableHttpsCheck == null) {
+                System.clearProperty(DISABLE_HTTPS_CHECK)
+            } else {
+                System.setProperty(DISABLE_HTTPS_CHECK, disableHttpsCheck)
+            }
+        }
+    }
+
+    @Test(timeOut = 8000L)
+    void requestBoundedByDeadline() {
+        Client client = client()
+        Deadline deadline = Deadline.after(Duration.ofMillis(500))
+        CountDownLatch requestEnded = new CountDownLatch(1)
+
+        expectException(DeadlineExceededException) {
+            deadline.call("okta.listApplications") {
+                try {
+                    return client.listApplications().iterator().hasNext()
+                } finally {
+                    requestEnded.countDown()
+                }
+            }
+        }
+        // the request ends with the deadline, not when the slow response arrives
+        assertThat requestEnded.await(2, TimeUnit.SECONDS), is(true)
+    }
+
+    @Test(timeOut = 8000L)
+    void cancelAbortsRequest() {
+        Client client = client()
+        Deadline deadline = Deadline.none()
+        CountDownLatch requestEnded = new CountDownLatch(1)
+        Thread.start {
+            sleep(500)
+            deadline.cancel()
+        }
+
+        expectException(DeadlineExceededException) {
+            deadline.call("okta.listApplications") {
+                try {
+                    return client.listApplications().iterator().hasNext()
+                } finally {
+                    requestEnded.countDown()
+                }
+            }
+        }
+        assertThat requestEnded.await(2, TimeUnit.SECONDS), is(true)
+    }
+
+    @Test
+    void closedClientCanNotBeUsed() {
+        Client client = client()
+        OktaClients.close(client)
+
+        HttpException e = expectException(HttpException) { client.listUsers().iterator().hasNext() }
+        assertThat e.message, containsString("Connection pool shut down")
+        assertThat wireMockServer.findAll(getRequestedFor(urlPathEqualTo("/api/v1/users"))), hasSize(0)
+    }
+}
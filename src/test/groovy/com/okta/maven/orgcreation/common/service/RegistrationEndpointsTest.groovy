@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service
+
+import com.okta.maven.orgcreation.common.http.HttpTransport
+import com.okta.maven.orgcreation.common.http.HttpTransports
+import org.testng.annotations.Test
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class RegistrationEndpointsTest {
+
+    private static final String ONE = "https://one.example.com"
+    private static final String TWO = "https://two.example.com"
+
+    @Test
+    void parseTest() {
+        assertThat RegistrationEndpoints.parse("https://start.okta.dev/"), is(["https://start.okta.dev/"])
+        assertThat RegistrationEndpoints.parse(" ${ONE}, ${TWO},,${ONE} ".toString()), is([ONE, TWO])
+        expectException(IllegalArgumentException) {
+            RegistrationEndpoints.parse(" , ")
+        }
+    }
+
+    @Test
+    void singleEndpointTest() {
+        RegistrationEndpoints endpoints = RegistrationEndpoints.forBaseUrls(ONE)
+        assertThat endpoints.multiple, is(false)
+        // a single endpoint is not probed
+        assertThat endpoints.ranked(HttpTransports.default, Deadline.none()), is([ONE])
+        assertThat RegistrationEndpoints.forBaseUrls(ONE), sameInstance(endpoints)
+    }
+
+    @Test
+    void rankedByLatencyTest() {
+        RegistrationEndpoints endpoints = endpoints()
+        endpoints.succeeded(ONE, ms(200))
+        endpoints.succeeded(TWO, ms(100))
+        assertThat endpoints.ranked(HttpTransports.default, Deadline.none()), is([TWO, ONE])
+
+        // the moving average follows the latest calls
+        3.times { endpoints.succeeded(TWO, ms(400)) }
+        assertThat endpoints.ranked(HttpTransports.default, Deadline.none()), is([ONE, TWO])
+    }
+
+    @Test
+    void failedEndpointIsRankedLastTest() {
+        RegistrationEndpoints endpoints = endpoints()
+        endpoints.succeeded(ONE, ms(100))
+        endpoints.succeeded(TWO, ms(200))
+        endpoints.failed(ONE)
+        assertThat endpoints.ranked(HttpTransports.default, Deadline.none()), is([TWO, ONE])
+
+        // until it is measured again
+        endpoints.succeeded(ONE, ms(50))
+        assertThat endpoints.ranked(HttpTransports.default, Deadline.none()), is([ONE, TWO])
+    }
+
+    @Test
+    void hedgeDelayTest() {
+        RegistrationEndpoints endpoints = new RegistrationEndpoints([ONE, TWO], Duration.ofMillis(500), Duration.ofSeconds(3), Duration.ofSeconds(2))
+        // not measured yet
+        assertThat endpoints.hedgeDelay(ONE), is(Duration.ofSeconds(3))
+
+        endpoints.succeeded(ONE, ms(400))
+        assertThat endpoints.hedgeDelay(ONE), is(Duration.ofMillis(400 * RegistrationEndpoints.HEDGE_FACTOR))
+
+        // within the floor and cap
+        endpoints.succeeded(TWO, ms(20))
+        assertThat endpoints.hedgeDelay(TWO), is(Duration.ofMillis(500))
+        3.times { endpoints.succeeded(ONE, ms(10_000)) }
+        assertThat endpoints.hedgeDelay(ONE), is(Duration.ofSeconds(3))
+
+        endpoints.failed(TWO)
+        assertThat endpoints.hedgeDelay(TWO), is(Duration.ofSeconds(3))
+    }
+
+    @Test(timeOut = 10_000L)
+    void rankingWaitsForProbesUntilDeadlineTest() {
+        CompletableFuture<HttpTransport.Response> slowProbe = new CompletableFuture<>()
+        HttpTransport transport = { HttpTransport.Request request ->
+            return request.url == ONE ? slowProbe : CompletableFuture.completedFuture([close: {}] as HttpTransport.Response)
+        } as HttpTransport
+
+        RegistrationEndpoints endpoints = new RegistrationEndpoints([ONE, TWO], Duration.ofMillis(500), Duration.ofSeconds(3), Duration.ofSeconds(30))
+        assertThat endpoints.ranked(transport, Deadline.after(Duration.ofMillis(200))), is([TWO, ONE])
+
+        // the probe still updates the ranking when it completes
+        3.times { endpoints.succeeded(TWO, ms(10_000)) }
+        slowProbe.complete([close: {}] as HttpTransport.Response)
+        assertThat endpoints.ranked(transport, Deadline.none()), is([ONE, TWO])
+    }
+
+    @Test
+    void unreachableEndpointIsRankedLastTest() {
+        RegistrationEndpoints endpoints = new RegistrationEndpoints(["http://localhost:${unusedPort()}".toString(), ONE],
+                Duration.ofMillis(500), Duration.ofSeconds(3), Duration.ofMillis(500))
+        endpoints.succeeded(ONE, ms(100))
+        assertThat endpoints.ranked(HttpTransports.default, Deadline.none())[0], is(ONE)
+    }
+
+    @Test
+    void warmUpTest() {
+        List<HttpTransport.Request> requests = []
+        HttpTransport transport = { HttpTransport.Request request ->
+            requests << request
+            return CompletableFuture.completedFuture([close: {}] as HttpTransport.Response)
+        } as HttpTransport
+
+        // each step warms up again, the previous connection may have been closed
+        RegistrationEndpoints single = new RegistrationEndpoints([ONE], Duration.ofMillis(500), Duration.ofSeconds(3), Duration.ofSeconds(2))
+        single.warmUp(transport).join()
+        single.warmUp(transport).join()
+        assertThat requests*.url, is([ONE, ONE])
+        assertThat requests[0].method, is("HEAD")
+
+        // ranking uses the probes of the warm up
+        requests.clear()
+        RegistrationEndpoints multiple = new RegistrationEndpoints([ONE, TWO], Duration.ofMillis(500), Duration.ofSeconds(3), Duration.ofSeconds(2))
+        multiple.warmUp(transport).join()
+        multiple.ranked(transport, Deadline.none())
+        assertThat requests*.url, is([ONE, TWO])
+    }
+
+    private static RegistrationEndpoints endpoints() {
+        RegistrationEndpoints endpoints = new RegistrationEndpoints([ONE, TWO], Duration.ofMillis(500), Duration.ofSeconds(3), Duration.ofSeconds(2))
+        // skip the probes
+        endpoints.succeeded(ONE, 0)
+        endpoints.succeeded(TWO, 0)
+        return endpoints
+    }
+
+    private static int unusedPort() {
+        ServerSocket socket = new ServerSocket(0)
+        try {
+            return socket.localPort
+        } finally {
+            socket.close()
+        }
+    }
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis)
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service
+
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+class RequestGovernorTest {
+
+    private long now
+
+    private List<Long> sleeps
+
+    @BeforeMethod
+    void setup() {
+        now = 0
+        sleeps = []
+    }
+
+    @Test
+    void burstThenRateTest() {
+        RequestGovernor governor = governor(2, 10)
+
+        // a burst of 2, then one request every 500 ms
+        assertThat governor.reserve(), is(0L)
+        assertThat governor.reserve(), is(0L)
+        assertThat governor.reserve(), is(ms(500))
+        assertThat governor.reserve(), is(ms(1000))
+
+        now += ms(1000)
+        assertThat governor.reserve(), is(ms(500))
+    }
+
+    @Test
+    void tokensRefillTest() {
+        RequestGovernor governor = governor(2, 10)
+        governor.reserve()
+        governor.reserve()
+
+        now += ms(10_000)
+        assertThat governor.reserve(), is(0L)
+        assertThat governor.reserve(), is(0L)
+        assertThat governor.reserve(), is(ms(500))
+    }
+
+    @Test
+    void rateLimitedPausesAndTunesTest() {
+        RequestGovernor governor = governor(10, 10)
+        governor.rateLimited(3_000, 60)
+
+        assertThat governor.rate(), is(1d)
+        assertThat governor.reserve(), is(ms(3000))
+        assertThat governor.reserve(), is(ms(4000))
+
+        // a higher limit than configured does not raise the rate
+        governor.rateLimited(0, 6000)
+        assertThat governor.rate(), is(1d)
+    }
+
+    @Test
+    void rateRecoversTest() {
+        RequestGovernor governor = governor(10, 10)
+        governor.rateLimited(0, 120)
+        assertThat governor.rate(), is(2d)
+
+        // not within the org's rate limit window
+        now += ms(59_000)
+        governor.succeeded()
+        assertThat governor.rate(), is(2d)
+
+        now += ms(1_000)
+        governor.succeeded()
+        assertThat governor.rate(), is(4d)
+        governor.succeeded()
+        assertThat governor.rate(), is(4d)
+
+        // rate limited again, the window starts over
+        now += ms(30_000)
+        governor.rateLimited(0, null)
+        now += ms(45_000)
+        governor.succeeded()
+        assertThat governor.rate(), is(4d)
+
+        now += ms(15_000)
+        governor.succeeded()
+        assertThat governor.rate(), is(8d)
+        now += ms(60_000)
+        governor.succeeded()
+        assertThat governor.rate(), is(10d)
+    }
+
+    @Test
+    void concurrencyPropertyTest() {
+        try {
+            System.setProperty(RequestGovernor.CONCURRENCY_PROPERTY, "0.5")
+            assertThat RequestGovernor.forOrg("https://half.example.com").availableConcurrency(), is(4)
+
+            System.setProperty(RequestGovernor.CONCURRENCY_PROPERTY, "0")
+            assertThat RequestGovernor.forOrg("https://zero.example.com").availableConcurrency(), is(4)
+
+            System.setProperty(RequestGovernor.CONCURRENCY_PROPERTY, "2")
+            assertThat RequestGovernor.forOrg("https://two-permits.example.com").availableConcurrency(), is(2)
+        } finally {
+            System.clearProperty(RequestGovernor.CONCURRENCY_PROPERTY)
+        }
+    }
+
+    @Test
+    void acquireWaitsForTokenTest() {
+        RequestGovernor governor = governor(1, 10)
+        governor.acquire().close()
+        governor.acquire().close()
+        assertThat sleeps, is([1001L])
+    }
+
+    @Test(timeOut = 10_000L)
+    void bulkheadLimitsConcurrencyTest() {
+        RequestGovernor governor = new RequestGovernor(10_000, 2, { System.nanoTime() }, { Thread.sleep(it) })
+        AtomicInteger active = new AtomicInteger()
+        AtomicInteger maxActive = new AtomicInteger()
+        CountDownLatch done = new CountDownLatch(8)
+
+        def executor = Executors.newFixedThreadPool(8)
+        try {
+            8.times {
+                executor.submit {
+                    RequestGovernor.Permit permit = governor.acquire()
+                    try {
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math.&max)
+                        Thread.sleep(50)
+                        active.decrementAndGet()
+                    } finally {
+                        permit.close()
+                        done.countDown()
+                    }
+                }
+            }
+            assertThat done.await(5, TimeUnit.SECONDS), is(true)
+        } finally {
+            executor.shutdownNow()
+        }
+        assertThat maxActive.get(), is(2)
+        assertThat governor.availableConcurrency(), is(2)
+    }
+
+    @Test
+    void sharedPerOrgTest() {
+        assertThat RequestGovernor.forOrg("https://one.example.com"), sameInstance(RequestGovernor.forOrg("https://one.example.com"))
+        assertThat RequestGovernor.forOrg("https://one.example.com"), not(sameInstance(RequestGovernor.forOrg("https://two.example.com")))
+    }
+
+    private RequestGovernor governor(double rate, int concurrency) {
+        return new RequestGovernor(rate, concurrency, { now }, { sleeps.add(it) })
+    }
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis)
+    }
+}
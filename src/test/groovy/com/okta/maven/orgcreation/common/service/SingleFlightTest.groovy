@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.common.service
+
+import com.okta.sdk.client.Client
+import org.testng.annotations.Test
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.is
+import static org.hamcrest.Matchers.not
+import static org.mockito.Mockito.mock
+
+class SingleFlightTest {
+
+    @Test(timeOut = 5000L)
+    void concurrentCallsShareResult() {
+
+        SingleFlight singleFlight = new SingleFlight()
+        Client client = mock(Client)
+        AtomicInteger calls = new AtomicInteger()
+        CountDownLatch release = new CountDownLatch(1)
+
+        ExecutorService executor = Executors.newFixedThreadPool(4)
+        try {
+            List<Future<String>> futures = (1..4).collect {
+                executor.submit({
+                    singleFlight.execute(SingleFlight.key(client, "op", "arg"), {
+                        calls.incrementAndGet()
+                        release.await(2, TimeUnit.SECONDS)
+                        return "result"
+                    })
+                } as java.util.concurrent.Callable<String>)
+            }
+
+            // give the other threads a chance to join the in-flight call
+            sleep(200)
+            release.countDown()
+
+            assertThat futures.collect { it.get() }, is(["result"] * 4)
+            assertThat calls.get(), is(1)
+        } finally {
+            executor.shutdownNow()
+        }
+
+        // nothing is retained after the call completes
+        assertThat singleFlight.execute(SingleFlight.key(client, "op", "arg"), { "second" }), is("second")
+    }
+
+    @Test
+    void exceptionIsPropagated() {
+        SingleFlight singleFlight = new SingleFlight()
+        expectException(IllegalStateException) {
+            singleFlight.execute(SingleFlight.key(mock(Client), "op"), { throw new IllegalStateException("expected") })
+        }
+    }
+
+    @Test
+    void keysCompareArraysByValue() {
+        Client client = mock(Client)
+        assertThat SingleFlight.key(client, "op", ["a", "b"] as String[]), is(SingleFlight.key(client, "op", ["a", "b"] as String[]))
+        assertThat SingleFlight.key(client, "op", "a"), not(SingleFlight.key(mock(Client), "op", "a"))
+    }
+
+    @Test(timeOut = 5000L)
+    void prefetchedResultIsUsedOnce() {
+
+        SingleFlight singleFlight = new SingleFlight()
+        List<Object> key = SingleFlight.key(mock(Client), "op", "arg")
+        AtomicInteger calls = new AtomicInteger()
+
+        singleFlight.prefetch(key, { calls.incrementAndGet(); "prefetched" })
+        // already prefetching
+        singleFlight.prefetch(key, { calls.incrementAndGet(); "again" })
+
+        assertThat singleFlight.execute(key, { "called" }), is("prefetched")
+        assertThat singleFlight.execute(key, { "called" }), is("called")
+        assertThat calls.get(), is(1)
+    }
+
+    @Test(timeOut = 5000L)
+    void failedPrefetchFallsBackToCall() {
+
+        SingleFlight singleFlight = new SingleFlight()
+        List<Object> key = SingleFlight.key(mock(Client), "op")
+
+        singleFlight.prefetch(key, { throw new IllegalStateException("expected") })
+
+        assertThat singleFlight.execute(key, { "called" }), is("called")
+    }
+
+    @Test(timeOut = 5000L)
+    void forgottenPrefetchIsNotUsed() {
+
+        SingleFlight singleFlight = new SingleFlight()
+        List<Object> key = SingleFlight.key(mock(Client), "op")
+        CountDownLatch release = new CountDownLatch(1)
+
+        singleFlight.prefetch(key, { release.await(2, TimeUnit.SECONDS); "stale" })
+        singleFlight.forget(key)
+        release.countDown()
+
+        assertThat singleFlight.execute(key, { "fresh" }), is("fresh")
+    }
+}
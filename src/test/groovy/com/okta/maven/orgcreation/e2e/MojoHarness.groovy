@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.e2e
+
+import com.okta.maven.orgcreation.JHipsterMojo
+import com.okta.maven.orgcreation.SpringBootMojo
+import com.okta.maven.orgcreation.WebAppMojo
+import com.okta.maven.orgcreation.common.service.SdkConfigurationService
+import com.okta.maven.orgcreation.service.DefaultDependencyAddService
+import com.okta.maven.orgcreation.service.DefaultOktaSessionCache
+import com.okta.maven.orgcreation.service.LatestVersionService
+import com.okta.sdk.authc.credentials.TokenClientCredentials
+import com.okta.sdk.cache.Caches
+import com.okta.sdk.client.Client
+import com.okta.sdk.client.Clients
+import com.okta.sdk.impl.config.ClientConfiguration
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion
+import org.apache.maven.model.Dependency
+import org.apache.maven.plugin.AbstractMojo
+import org.apache.maven.project.MavenProject
+import org.apache.maven.shared.release.transform.jdom.JDomModelETLFactory
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+
+import java.util.concurrent.TimeUnit
+
+import static org.mockito.ArgumentMatchers.any
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * Runs the {@code spring-boot}, {@code web-app}, and {@code jhipster} goals end to end against an
+ * {@link OktaStubServer}, and reports the wall-clock time and the requests made by each goal.
+ * <p>
+ * Only the Okta configuration (pointing to the stub server), and the latest version lookup of the Okta Spring Boot
+ * starter are stubbed, the configuration files and {@code pom.xml} are written to the project directory.
+ */
+class MojoHarness {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MojoHarness)
+
+    private static final String DISABLE_HTTPS_CHECK = "okta.testing.disableHttpsCheck"
+
+    final OktaStubServer server
+
+    final File projectDir
+
+    MojoHarness(OktaStubServer server, File projectDir = File.createTempDir()) {
+        this.server = server
+        this.projectDir = projectDir
+    }
+
+    /**
+     * Runs {@code goal} in a new Maven session and returns its report, the goal's exception (if any) is rethrown after
+     * the report is logged (at debug level).
+     */
+    GoalReport run(String goal) {
+        AbstractMojo mojo = mojo(goal)
+        server.resetRequests()
+
+        long start = System.nanoTime()
+        Throwable failure = null
+        try {
+            mojo.execute()
+        } catch (Throwable e) {
+            failure = e
+        }
+        GoalReport report = new GoalReport(goal, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), server.requestCounts())
+        LOG.debug("{}", report)
+
+        if (failure != null) {
+            throw failure
+        }
+        return report
+    }
+
+    private AbstractMojo mojo(String goal) {
+        AbstractMojo mojo
+        switch (goal) {
+            case "spring-boot":
+                mojo = springBootMojo()
+                break
+            case "web-app":
+                mojo = new WebAppMojo()
+                break
+            case "jhipster":
+                mojo = new JHipsterMojo()
+                break
+            default:
+                throw new IllegalArgumentException("Unsupported goal: ${goal}")
+        }
+
+        ClientConfiguration clientConfiguration = mock(ClientConfiguration)
+        when(clientConfiguration.getBaseUrl()).thenReturn(server.url())
+        SdkConfigurationService sdkConfigurationService = mock(SdkConfigurationService)
+        when(sdkConfigurationService.loadUnvalidatedConfiguration()).thenReturn(clientConfiguration)
+
+        mojo.oidcAppName = "stub-app"
+        mojo.baseDir = projectDir
+        mojo.interactiveMode = false
+        mojo.writeMetrics = false
+        mojo.sdkConfigurationService = sdkConfigurationService
+        mojo.sessionCache = new StubSessionCache(client())
+        return mojo
+    }
+
+    private SpringBootMojo springBootMojo() {
+        File pomFile = new File(projectDir, "pom.xml")
+        if (!pomFile.exists()) {
+            pomFile.text = getClass().getResource("/test-poms/spaces.xml").text
+        }
+        Dependency springBootDependency = new Dependency(groupId: "org.springframework.boot", artifactId: "spring-boot-starter-web")
+        MavenProject project = new MavenProject()
+        project.setFile(pomFile)
+        project.getModel().addDependency(springBootDependency)
+
+        LatestVersionService latestVersionService = mock(LatestVersionService)
+        when(latestVersionService.getLatestVersion(any(), any(), any(), any(), any(), any())).thenReturn(new DefaultArtifactVersion("1.4.0"))
+
+        SpringBootMojo mojo = new SpringBootMojo()
+        mojo.project = project
+        mojo.dependencyAddService = new DefaultDependencyAddService(new JDomModelETLFactory())
+        mojo.latestVersionService = latestVersionService
+        return mojo
+    }
+
+    private Client client() {
+        // the stub server is plain http
+        String disableHttpsCheck = System.getProperty(DISABLE_HTTPS_CHECK)
+        System.setProperty(DISABLE_HTTPS_CHECK, "true")
+        try {
+            return Clients.builder()
+                    .setOrgUrl(server.url())
+                    .setClientCredentials(new TokenClientCredentials("stub-api-token"))
+                    .setCacheManager(Caches.newDisabledCacheManager())
+                    .build()
+        } finally {
+            if (disableHttpsCheck == null) {
+                System.clearProperty(DISABLE_HTTPS_CHECK)
+            } else {
+                System.setProperty(DISABLE_HTTPS_CHECK, disableHttpsCheck)
+            }
+        }
+    }
+
+    /**
+     * A per-session cache that uses the client for the stub server.
+     */
+    private static class StubSessionCache extends DefaultOktaSessionCache {
+
+        private final Client client
+
+        StubSessionCache(Client client) {
+            this.client = client
+        }
+
+        @Override
+        Client getClient() {
+            return client
+        }
+    }
+
+    static class GoalReport {
+
+        final String goal
+        final long wallClockMs
+        final Map<OktaStubServer.Endpoint, Integer> requests
+
+        GoalReport(String goal, long wallClockMs, Map<OktaStubServer.Endpoint, Integer> requests) {
+            this.goal = goal
+            this.wallClockMs = wallClockMs
+            this.requests = requests
+        }
+
+        int getTotalRequests() {
+            return requests.values().sum(0) as int
+        }
+
+        @Override
+        String toString() {
+            return "okta:${goal} took ${wallClockMs} ms, ${totalRequests} request(s): ${requests}"
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.e2e
+
+import com.okta.maven.orgcreation.e2e.OktaStubServer.Endpoint
+import com.okta.sdk.resource.ResourceException
+import org.testng.annotations.AfterClass
+import org.testng.annotations.BeforeClass
+import org.testng.annotations.Test
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+/**
+ * The number of round trips to Okta made by each goal is part of its contract, a change that adds a request should
+ * update these tests.
+ */
+class MojoLatencyTest {
+
+    private static final Map<Endpoint, Integer> CREATE_APP_REQUESTS = [
+            (Endpoint.LIST_APPS): 1,
+            (Endpoint.CREATE_APP): 1,
+            (Endpoint.LIST_GROUPS): 1,
+            (Endpoint.ASSIGN_GROUP): 1,
+            (Endpoint.GET_CLIENT_CREDENTIALS): 1
+    ]
+
+    private OktaStubServer server
+
+    @BeforeClass
+    void startServer() {
+        server = new OktaStubServer().start()
+    }
+
+    @AfterClass
+    void stopServer() {
+        server.stop()
+    }
+
+    @Test
+    void webAppTest() {
+        MojoHarness harness = new MojoHarness(server)
+
+        MojoHarness.GoalReport report = harness.run("web-app")
+        assertThat report.requests, is(CREATE_APP_REQUESTS)
+        assertThat new File(harness.projectDir, ".okta.env").text, containsString(OktaStubServer.CLIENT_ID)
+
+        // the application is configured, nothing left to do
+        assertThat harness.run("web-app").totalRequests, is(0)
+    }
+
+    @Test
+    void jhipsterTest() {
+        MojoHarness harness = new MojoHarness(server)
+
+        MojoHarness.GoalReport report = harness.run("jhipster")
+        assertThat report.requests, is(CREATE_APP_REQUESTS + [
+                (Endpoint.LIST_CLAIMS): 1,
+                (Endpoint.CREATE_CLAIM): 1
+        ])
+        assertThat new File(harness.projectDir, ".okta.env").text, containsString(OktaStubServer.CLIENT_ID)
+    }
+
+    @Test
+    void springBootTest() {
+        MojoHarness harness = new MojoHarness(server)
+
+        MojoHarness.GoalReport report = harness.run("spring-boot")
+        assertThat report.requests, is(CREATE_APP_REQUESTS)
+        assertThat new File(harness.projectDir, "src/main/resources/application.yml").text, containsString(OktaStubServer.CLIENT_ID)
+        assertThat new File(harness.projectDir, "pom.xml").text, containsString("<artifactId>okta-spring-boot-starter</artifactId>")
+    }
+
+    @Test
+    void latencyTest() {
+        OktaStubServer slowServer = new OktaStubServer()
+                .profile([latencyMs: 100, jitterMs: 50], Endpoint.values())
+                .start()
+        try {
+            MojoHarness.GoalReport report = new MojoHarness(slowServer).run("web-app")
+
+            // the Everyone group is looked up at the same time as the application, the other four requests are made one
+            // after another
+            assertThat report.totalRequests, is(5)
+            assertThat report.wallClockMs, greaterThanOrEqualTo(4 * 100L)
+            long listAppsMs = slowServer.firstReceivedMs(Endpoint.LIST_APPS)
+            long listGroupsMs = slowServer.firstReceivedMs(Endpoint.LIST_GROUPS)
+            assertThat Math.abs(listGroupsMs - listAppsMs), lessThan(100L)
+        } finally {
+            slowServer.stop()
+        }
+    }
+
+    @Test
+    void errorProfileTest() {
+        OktaStubServer failingServer = new OktaStubServer()
+                .profile([failFirst: 1, errorStatus: 500], Endpoint.CREATE_APP)
+                .start()
+        try {
+            MojoHarness harness = new MojoHarness(failingServer)
+            expectException(ResourceException) {
+                harness.run("web-app")
+            }
+            // the Everyone group may have been looked up in the background, while the application was created
+            Map<Endpoint, Integer> counts = failingServer.requestCounts()
+            counts.remove(Endpoint.LIST_GROUPS)
+            assertThat counts, is([
+                    (Endpoint.LIST_APPS): 1,
+                    (Endpoint.CREATE_APP): 1
+            ])
+
+            // the next call succeeds
+            assertThat harness.run("web-app").requests, is(CREATE_APP_REQUESTS)
+        } finally {
+            failingServer.stop()
+        }
+    }
+
+    @Test
+    void transientErrorsAreRetriedTest() {
+        OktaStubServer failingServer = new OktaStubServer()
+                .profile([failFirst: 1, errorStatus: 500], Endpoint.LIST_APPS, Endpoint.GET_CLIENT_CREDENTIALS)
+                .start()
+        try {
+            MojoHarness.GoalReport report = new MojoHarness(failingServer).run("web-app")
+            assertThat report.requests, is(CREATE_APP_REQUESTS + [
+                    (Endpoint.LIST_APPS): 2,
+                    (Endpoint.GET_CLIENT_CREDENTIALS): 2
+            ])
+        } finally {
+            failingServer.stop()
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.e2e
+
+import com.github.tomakehurst.wiremock.WireMockServer
+import com.github.tomakehurst.wiremock.client.MappingBuilder
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder
+import com.github.tomakehurst.wiremock.http.RequestMethod
+import com.github.tomakehurst.wiremock.stubbing.Scenario
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse
+import static com.github.tomakehurst.wiremock.client.WireMock.request
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig
+
+/**
+ * An in-process stand-in for the Okta management API and {@code start.okta.dev}. Each endpoint can be given a latency
+ * (plus random jitter) and can fail its first calls, and every request is counted per endpoint.
+ */
+class OktaStubServer {
+
+    static final String CLIENT_ID = "0oa1stubclientid0005"
+    static final String CLIENT_SECRET = "stub-client-secret"
+    static final String APP_ID = "0oa1stubappid0000005"
+    static final String EVERYONE_GROUP_ID = "00g1everyonegroup005"
+
+    enum Endpoint {
+        LIST_APPS(RequestMethod.GET, "/api/v1/apps", "[]"),
+        CREATE_APP(RequestMethod.POST, "/api/v1/apps", """{
+            "id": "${APP_ID}",
+            "label": "stub-app",
+            "name": "oidc_client",
+            "signOnMode": "OPENID_CONNECT",
+            "status": "ACTIVE"
+        }"""),
+        LIST_GROUPS(RequestMethod.GET, "/api/v1/groups", """[{
+            "id": "${EVERYONE_GROUP_ID}",
+            "type": "BUILT_IN",
+            "profile": {"name": "Everyone"}
+        }]"""),
+        ASSIGN_GROUP(RequestMethod.PUT, "/api/v1/apps/[^/]+/groups/[^/]+", """{"id": "${EVERYONE_GROUP_ID}", "priority": 2}"""),
+        GET_CLIENT_CREDENTIALS(RequestMethod.GET, "/api/v1/internal/apps/[^/]+/settings/clientcreds", """{
+            "client_id": "${CLIENT_ID}",
+            "client_secret": "${CLIENT_SECRET}"
+        }"""),
+        LIST_CLAIMS(RequestMethod.GET, "/api/v1/authorizationServers/[^/]+/claims", "[]"),
+        CREATE_CLAIM(RequestMethod.POST, "/api/v1/authorizationServers/[^/]+/claims", """{"id": "ocl1stubclaim0000005", "name": "groups"}"""),
+        CREATE_ORG(RequestMethod.POST, "/create", """{
+            "id": "00o1stuborg000000005",
+            "email": "joe.coder@example.com",
+            "factorId": "emf1stubfactor000005"
+        }"""),
+        VERIFY_ORG(RequestMethod.POST, "/verify/[^/]+", """{
+            "orgUrl": "https://okta.example.com",
+            "apiToken": "stub-api-token",
+            "email": "joe.coder@example.com",
+            "updatePasswordUrl": "https://okta.example.com/reset_password/stub"
+        }"""),
+        WARM_UP(RequestMethod.HEAD, "/", "")
+
+        final RequestMethod method
+        final String urlPathPattern
+        final String body
+
+        Endpoint(RequestMethod method, String urlPathPattern, String body) {
+            this.method = method
+            this.urlPathPattern = urlPathPattern
+            this.body = body
+        }
+    }
+
+    /**
+     * How an endpoint responds: a fixed latency plus a uniformly random jitter, and the number of calls that fail with
+     * {@code errorStatus} before it succeeds.
+     */
+    static class EndpointProfile {
+        int latencyMs = 0
+        int jitterMs = 0
+        int failFirst = 0
+        int errorStatus = 500
+    }
+
+    private final Map<Endpoint, EndpointProfile> profiles = new EnumMap<>(Endpoint)
+
+    private final int containerThreads
+
+    private WireMockServer wireMockServer
+
+    /**
+     * @param containerThreads the number of requests the server handles concurrently
+     */
+    OktaStubServer(int containerThreads = 10) {
+        this.containerThreads = containerThreads
+    }
+
+    OktaStubServer profile(Map<String, Integer> settings, Endpoint... endpoints) {
+        endpoints.each { profiles.put(it, new EndpointProfile(settings)) }
+        if (wireMockServer != null) {
+            stub()
+        }
+        return this
+    }
+
+    OktaStubServer start() {
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort().containerThreads(containerThreads))
+        wireMockServer.start()
+        stub()
+        return this
+    }
+
+    void stop() {
+        if (wireMockServer != null && wireMockServer.isRunning()) {
+            wireMockServer.stop()
+        }
+    }
+
+    String url() {
+        return "http://localhost:${wireMockServer.port()}"
+    }
+
+    /**
+     * Forgets the recorded requests, the failures already returned are kept (the next call to a failing endpoint will
+     * not fail again).
+     */
+    void resetRequests() {
+        wireMockServer.resetRequests()
+    }
+
+    /**
+     * The number of requests served by each endpoint (and {@code null} for requests no endpoint matched). Warm ups are
+     * not included, their number depends on timing.
+     */
+    Map<Endpoint, Integer> requestCounts() {
+        Map<Endpoint, Integer> counts = [:]
+        wireMockServer.allServeEvents.findAll { !isWarmUp(it) }.each { ServeEvent event ->
+            Endpoint endpoint = event.wasMatched ? Endpoint.valueOf(event.stubMapping.metadata.getString("endpoint")) : null
+            counts.put(endpoint, counts.getOrDefault(endpoint, 0) + 1)
+        }
+        return counts.sort { it.key != null ? it.key.ordinal() : -1 }
+    }
+
+    /**
+     * The time the first request to {@code endpoint} was received, in epoch milliseconds.
+     */
+    long firstReceivedMs(Endpoint endpoint) {
+        return wireMockServer.allServeEvents
+                .findAll { it.wasMatched && it.stubMapping.metadata.getString("endpoint") == endpoint.name() }
+                .collect { it.request.loggedDate.time }
+                .min()
+    }
+
+    int warmUpCount() {
+        return wireMockServer.allServeEvents.count { isWarmUp(it) }
+    }
+
+    private static boolean isWarmUp(ServeEvent event) {
+        return event.wasMatched && event.stubMapping.metadata.getString("endpoint") == Endpoint.WARM_UP.name()
+    }
+
+    private void stub() {
+        wireMockServer.resetMappings()
+        Endpoint.values().each { Endpoint endpoint ->
+            EndpointProfile profile = profiles.getOrDefault(endpoint, new EndpointProfile())
+            if (profile.failFirst > 0) {
+                String scenario = endpoint.name()
+                (0..<profile.failFirst).each { int ii ->
+                    String state = ii == 0 ? Scenario.STARTED : "failed-${ii}"
+                    wireMockServer.stubFor(mapping(endpoint)
+                            .inScenario(scenario)
+                            .whenScenarioStateIs(state)
+                            .willSetStateTo("failed-${ii + 1}")
+                            .willReturn(response(profile, profile.errorStatus, '{"errorCode": "E0000009", "errorSummary": "Internal Server Error"}')))
+                }
+                wireMockServer.stubFor(mapping(endpoint)
+                        .inScenario(scenario)
+                        .whenScenarioStateIs("failed-${profile.failFirst}")
+                        .willReturn(response(profile, 200, endpoint.body)))
+            } else {
+                wireMockServer.stubFor(mapping(endpoint).willReturn(response(profile, 200, endpoint.body)))
+            }
+        }
+    }
+
+    private static MappingBuilder mapping(Endpoint endpoint) {
+        return request(endpoint.method.value(), urlPathMatching(endpoint.urlPathPattern))
+                .withMetadata([endpoint: endpoint.name()])
+    }
+
+    private static ResponseDefinitionBuilder response(EndpointProfile profile, int status, String body) {
+        ResponseDefinitionBuilder response = aResponse()
+                .withStatus(status)
+                .withHeader("Content-Type", "application/json")
+                .withBody(body)
+        if (profile.jitterMs > 0) {
+            response.withUniformRandomDelay(profile.latencyMs, profile.latencyMs + profile.jitterMs)
+        } else if (profile.latencyMs > 0) {
+            response.withFixedDelay(profile.latencyMs)
+        }
+        return response
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.e2e
+
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry
+import com.okta.maven.orgcreation.common.model.OrganizationRequest
+import com.okta.maven.orgcreation.common.model.OrganizationResponse
+import com.okta.maven.orgcreation.common.model.RegistrationQuestions
+import com.okta.maven.orgcreation.common.progressbar.ProgressBar
+import com.okta.maven.orgcreation.common.service.Deadline
+import com.okta.maven.orgcreation.common.service.DefaultAuthorizationServerService
+import com.okta.maven.orgcreation.common.service.DefaultOidcAppCreator
+import com.okta.maven.orgcreation.common.service.DefaultOktaOrganizationCreator
+import com.okta.maven.orgcreation.common.service.DefaultSdkConfigurationService
+import com.okta.maven.orgcreation.common.service.DefaultSetupService
+import com.okta.maven.orgcreation.common.service.SetupService
+import com.okta.sdk.client.Client
+import com.okta.sdk.impl.config.ClientConfiguration
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import static org.mockito.Mockito.mock
+
+/**
+ * Registers new Okta Organizations ({@code okta:register}: create and then verify) from many concurrent virtual users,
+ * against the {@code start.okta.dev} stand-in of an {@link OktaStubServer}. Each virtual user has its own
+ * {@link DefaultSetupService} and {@code okta.yaml}, like a workshop attendee running the goal on their own machine.
+ */
+class RegistrationLoad {
+
+    private final OktaStubServer server
+
+    private final int users
+
+    private final int registrationsPerUser
+
+    RegistrationLoad(OktaStubServer server, int users, int registrationsPerUser) {
+        this.server = server
+        this.users = users
+        this.registrationsPerUser = registrationsPerUser
+    }
+
+    Report run() {
+        Report report = new Report(users)
+        File workDir = File.createTempDir()
+        ExecutorService executor = Executors.newFixedThreadPool(users)
+        CountDownLatch start = new CountDownLatch(1)
+        try {
+            List futures = (0..<users).collect { int user ->
+                executor.submit {
+                    SetupService setupService = setupService()
+                    File oktaYaml = new File(workDir, "user-${user}/okta.yaml")
+                    start.await()
+                    registrationsPerUser.times { int ii ->
+                        register(setupService, oktaYaml, "user-${user}-${ii}", report)
+                    }
+                }
+            }
+
+            long startNanos = System.nanoTime()
+            start.countDown()
+            futures.each { it.get() }
+            report.elapsedNanos = System.nanoTime() - startNanos
+        } finally {
+            executor.shutdownNow()
+            workDir.deleteDir()
+        }
+        return report
+    }
+
+    private static void register(SetupService setupService, File oktaYaml, String name, Report report) {
+        OrganizationRequest request = new OrganizationRequest()
+                .setFirstName(name)
+                .setLastName("Attendee")
+                .setEmail("${name}@example.com")
+                .setOrganization("Workshop")
+        RegistrationQuestions answers = RegistrationQuestions.answers(true, request, "123456")
+
+        OrganizationResponse response = report.time("createOktaOrg") {
+            setupService.createOktaOrg(answers, oktaYaml, false, false)
+        }
+        if (response != null) {
+            report.time("verifyOktaOrg") {
+                setupService.verifyOktaOrg(response.id, answers, oktaYaml)
+            }
+        }
+    }
+
+    private SetupService setupService() {
+        MetricsRegistry metrics = new MetricsRegistry()
+        String apiBaseUrl = server.url()
+        return new DefaultSetupService(new NewUserSdkConfigurationService(),
+                new DefaultOktaOrganizationCreator(metrics),
+                new DefaultOidcAppCreator(),
+                new DefaultAuthorizationServerService(),
+                null,
+                { mock(Client) },
+                { interactive -> ProgressBar.create(false) },
+                metrics,
+                Deadline.none()) {
+            @Override
+            String getApiBaseUrl() {
+                return apiBaseUrl
+            }
+        }
+    }
+
+    /**
+     * A user without an existing Okta configuration, writes {@code okta.yaml} like the real service.
+     */
+    private static class NewUserSdkConfigurationService extends DefaultSdkConfigurationService {
+        @Override
+        ClientConfiguration loadUnvalidatedConfiguration() {
+            return new ClientConfiguration()
+        }
+    }
+
+    static class Report {
+
+        final int users
+        long elapsedNanos
+        final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>()
+        final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>()
+
+        Report(int users) {
+            this.users = users
+        }
+
+        def time(String operation, Closure call) {
+            long start = System.nanoTime()
+            try {
+                return call.call()
+            } catch (Exception e) {
+                // failures are grouped by operation and cause, e.g. a refused connection or a parsing error
+                Throwable cause = e.cause ?: e
+                failures.computeIfAbsent("${operation}: ${e.class.simpleName} (${cause.class.simpleName})" as String, { new AtomicInteger() }).incrementAndGet()
+                return null
+            } finally {
+                latencies.computeIfAbsent(operation, { new ConcurrentLinkedQueue<Long>() }).add(System.nanoTime() - start)
+            }
+        }
+
+        int getCalls() {
+            return latencies.values().sum(0) { it.size() } as int
+        }
+
+        int getFailureCount() {
+            return failures.values().sum(0) { it.get() } as int
+        }
+
+        double getThroughput() {
+            return calls / (elapsedNanos / 1_000_000_000d)
+        }
+
+        /**
+         * The latency, in milliseconds, at {@code percentile} (0-100) of {@code operation}.
+         */
+        long latencyMs(String operation, double percentile) {
+            List<Long> sorted = new ArrayList<>(latencies.getOrDefault(operation, new ConcurrentLinkedQueue<Long>())).sort()
+            if (sorted.isEmpty()) {
+                return 0
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sorted.size())
+            int index = Math.max(0, Math.min(sorted.size(), rank) - 1)
+            return TimeUnit.NANOSECONDS.toMillis(sorted[index])
+        }
+
+        @Override
+        String toString() {
+            StringBuilder result = new StringBuilder()
+            result.append(String.format("%d users, %d calls in %d ms, %.1f calls/s, %d failure(s)%n",
+                    users, calls, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), throughput, failureCount))
+            latencies.keySet().sort().each { String operation ->
+                result.append(String.format("  %-14s p50=%d ms p90=%d ms p99=%d ms max=%d ms%n", operation,
+                        latencyMs(operation, 50), latencyMs(operation, 90), latencyMs(operation, 99), latencyMs(operation, 100)))
+            }
+            failures.each { String failure, AtomicInteger count ->
+                result.append("  ${failure}: ${count.get()}\n")
+            }
+            return result.toString()
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.e2e
+
+import com.okta.maven.orgcreation.e2e.OktaStubServer.Endpoint
+import org.testng.Reporter
+import org.testng.annotations.Test
+
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.*
+
+/**
+ * Runs a small registration load, these tests are not part of the default build, run them with:
+ * <pre>
+ * ./mvnw -Pload-tests test
+ * </pre>
+ * Run a workshop sized load with:
+ * <pre>
+ * ./mvnw -Pload-tests test -Dokta.load.users=300 -Dokta.load.registrations=5
+ * </pre>
+ * Each test's report is written to the TestNG report (target/surefire-reports).
+ */
+@Test(groups = "load")
+class RegistrationLoadTest {
+
+    private static final int USERS = Integer.getInteger("okta.load.users", 20)
+
+    private static final int REGISTRATIONS_PER_USER = Integer.getInteger("okta.load.registrations", 2)
+
+    @Test(timeOut = 120_000L)
+    void concurrentRegistrationTest() {
+        OktaStubServer server = new OktaStubServer(USERS + 10)
+                .profile([latencyMs: 50, jitterMs: 50], Endpoint.CREATE_ORG)
+                .profile([latencyMs: 20, jitterMs: 20], Endpoint.VERIFY_ORG)
+                .start()
+        try {
+            RegistrationLoad.Report report = new RegistrationLoad(server, USERS, REGISTRATIONS_PER_USER).run()
+            Reporter.log(report.toString())
+
+            int registrations = USERS * REGISTRATIONS_PER_USER
+            assertThat report.failures, anEmptyMap()
+            assertThat report.calls, is(registrations * 2)
+            assertThat server.requestCounts(), is([
+                    (Endpoint.CREATE_ORG): registrations,
+                    (Endpoint.VERIFY_ORG): registrations
+            ])
+            assertThat report.latencyMs("createOktaOrg", 50), greaterThanOrEqualTo(50L)
+            assertThat server.warmUpCount(), greaterThan(0)
+        } finally {
+            server.stop()
+        }
+    }
+
+    @Test(timeOut = 120_000L)
+    void failuresAreReportedTest() {
+        // a rejected request is not retried
+        OktaStubServer server = new OktaStubServer()
+                .profile([failFirst: 3, errorStatus: 400], Endpoint.CREATE_ORG)
+                .start()
+        try {
+            RegistrationLoad.Report report = new RegistrationLoad(server, 5, 2).run()
+            Reporter.log(report.toString())
+
+            assertThat report.failureCount, is(3)
+            assertThat report.failures.keySet(), contains("createOktaOrg: ClientConfigurationException (ClientConfigurationException)")
+            assertThat server.requestCounts(), is([
+                    (Endpoint.CREATE_ORG): 10,
+                    (Endpoint.VERIFY_ORG): 7
+            ])
+        } finally {
+            server.stop()
+        }
+    }
+
+    @Test(timeOut = 120_000L)
+    void transientFailuresAreRetriedTest() {
+        // org creation is sent with an idempotency key, so it is safe to retry
+        OktaStubServer server = new OktaStubServer()
+                .profile([failFirst: 2, errorStatus: 503], Endpoint.CREATE_ORG)
+                .start()
+        try {
+            RegistrationLoad.Report report = new RegistrationLoad(server, 5, 2).run()
+            Reporter.log(report.toString())
+
+            assertThat report.failures, anEmptyMap()
+            assertThat server.requestCounts(), is([
+                    (Endpoint.CREATE_ORG): 12,
+                    (Endpoint.VERIFY_ORG): 10
+            ])
+        } finally {
+            server.stop()
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.service
+
+import com.okta.maven.orgcreation.common.service.ReferenceDataCache
+import org.testng.annotations.Test
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.is
+import static org.hamcrest.Matchers.not
+
+class ConfigScopedCacheTest {
+
+    @Test
+    void valuesAreScopedByConfigDirAndProject() {
+        ConfigScopedCache cache = new ConfigScopedCache(null)
+        File configDir1 = File.createTempDir()
+        File configDir2 = File.createTempDir()
+        File project1 = File.createTempDir()
+        File project2 = File.createTempDir()
+
+        assertThat cache.get(configDir1, project1).get(["key"], { "one" }), is("one")
+        assertThat cache.get(configDir1, project1).get(["key"], { "other" }), is("one")
+        assertThat cache.get(configDir2, project1).get(["key"], { "two" }), is("two")
+        assertThat cache.get(configDir1, project2).get(["key"], { "three" }), is("three")
+    }
+
+    @Test
+    void valuesAreDroppedWhenConfigChanges() {
+        ConfigScopedCache cache = new ConfigScopedCache(null)
+        File configDir = File.createTempDir()
+        File project = File.createTempDir()
+        File oktaYaml = new File(configDir, "okta.yaml")
+        oktaYaml.text = "okta:\n  client:\n    token: first-token\n"
+
+        assertThat cache.get(configDir, project).get(["key"], { "first" }), is("first")
+
+        // same size and (possibly) same timestamp, only the token changed
+        oktaYaml.text = "okta:\n  client:\n    token: other-token\n"
+        assertThat cache.get(configDir, project).get(["key"], { "second" }), is("second")
+    }
+
+    @Test
+    void valuesExpire() {
+        ConfigScopedCache cache = new ConfigScopedCache(Duration.ofMillis(50))
+        File configDir = File.createTempDir()
+        File project = File.createTempDir()
+
+        ReferenceDataCache values = cache.get(configDir, project)
+        assertThat values.get(["key"], { "first" }), is("first")
+        sleep(100)
+        assertThat values.get(["key"], { "second" }), is("second")
+    }
+
+    @Test
+    void fingerprintIncludesEnvAndSystemProperties() {
+        File configDir = File.createTempDir()
+        Properties props = new Properties()
+        String base = ConfigFingerprint.of(configDir, [:], props)
+
+        assertThat ConfigFingerprint.of(configDir, [PATH: "/bin"], props), is(base)
+        assertThat ConfigFingerprint.of(configDir, [OKTA_CLIENT_TOKEN: "token"], props), not(base)
+
+        props.setProperty("okta.client.token", "token")
+        String withProperty = ConfigFingerprint.of(configDir, [:], props)
+        assertThat withProperty, not(base)
+        assertThat withProperty.contains("token"), is(false)
+    }
+
+    @Test
+    void clearOnlyDropsOwnScope() {
+        ConfigScopedCache cache = new ConfigScopedCache(null)
+        File configDir = File.createTempDir()
+        File project1 = File.createTempDir()
+        File project2 = File.createTempDir()
+
+        cache.get(configDir, project1).get(["key"], { "one" })
+        cache.get(configDir, project2).get(["key"], { "two" })
+        cache.clear(configDir, project1)
+
+        assertThat cache.get(configDir, project1).get(["key"], { "other" }), is("other")
+        assertThat cache.get(configDir, project2).get(["key"], { "other" }), is("two")
+    }
+
+    @Test
+    void unusedScopesAreEvicted() {
+        MutableClock clock = new MutableClock()
+        ConfigScopedCache cache = new ConfigScopedCache(Duration.ofMinutes(30), clock)
+        File configDir = File.createTempDir()
+
+        cache.get(configDir, File.createTempDir())
+        clock.advance(Duration.ofMinutes(31))
+        cache.get(configDir, File.createTempDir())
+        assertThat cache.size(), is(1)
+
+        (1..ConfigScopedCache.MAX_SCOPES + 5).each {
+            clock.advance(Duration.ofSeconds(1))
+            cache.get(configDir, File.createTempDir())
+        }
+        assertThat cache.size(), is(ConfigScopedCache.MAX_SCOPES)
+    }
+
+    @Test
+    void stampOnlyTrustedOnceFilesSettle() {
+        File configDir = File.createTempDir()
+        File oktaYaml = new File(configDir, "okta.yaml")
+        oktaYaml.text = "okta:\n  client:\n    token: first-token\n"
+        Properties props = new Properties()
+        long modified = oktaYaml.lastModified()
+
+        // just written, the file could change again without changing its size or timestamp
+        ConfigFingerprint.Stamp racy = ConfigFingerprint.stamp(configDir, [:], props, modified)
+        assertThat ConfigFingerprint.stamp(configDir, [:], props, modified).isUnchangedSince(racy), is(false)
+
+        ConfigFingerprint.Stamp settled = ConfigFingerprint.stamp(configDir, [:], props, modified + 5000)
+        assertThat ConfigFingerprint.stamp(configDir, [:], props, modified + 6000).isUnchangedSince(settled), is(true)
+        assertThat ConfigFingerprint.stamp(configDir, [OKTA_CLIENT_TOKEN: "token"], props, modified + 6000).isUnchangedSince(settled), is(false)
+
+        oktaYaml.text = "okta:\n  client:\n    token: other-token-value\n"
+        assertThat ConfigFingerprint.stamp(configDir, [:], props, modified + 6000).isUnchangedSince(settled), is(false)
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.now()
+
+        void advance(Duration duration) {
+            now = now.plus(duration)
+        }
+
+        @Override
+        ZoneId getZone() {
+            return ZoneOffset.UTC
+        }
+
+        @Override
+        Clock withZone(ZoneId zone) {
+            return this
+        }
+
+        @Override
+        Instant instant() {
+            return now
+        }
+    }
+}
@@ -15,19 +15,22 @@
  */
 package com.okta.maven.orgcreation.service
 
-import org.apache.maven.artifact.Artifact
-import org.apache.maven.artifact.DefaultArtifact
-import org.apache.maven.artifact.metadata.ArtifactMetadataSource
-import org.apache.maven.artifact.repository.ArtifactRepository
+import com.okta.maven.orgcreation.common.metrics.MetricsRegistry
 import org.apache.maven.artifact.versioning.ArtifactVersion
-import org.apache.maven.artifact.versioning.DefaultArtifactVersion
+import org.eclipse.aether.DefaultRepositorySystemSession
+import org.eclipse.aether.RepositorySystem
+import org.eclipse.aether.repository.RemoteRepository
+import org.eclipse.aether.resolution.VersionRangeRequest
+import org.eclipse.aether.resolution.VersionRangeResult
+import org.eclipse.aether.util.version.GenericVersionScheme
 import org.hamcrest.Matchers
 import org.testng.annotations.DataProvider
 import org.testng.annotations.Test
 
-import java.util.stream.Collectors
+import java.time.Duration
 
 import static org.hamcrest.MatcherAssert.assertThat
+import static org.mockito.ArgumentMatchers.any
 import static org.mockito.Mockito.mock
 import static org.mockito.Mockito.when
 
@@ -36,22 +39,37 @@ class DefaultLatestVersionServiceTest {
     @Test(dataProvider = "inputVersions")
     void latestVersionTest(String expectedVersion, Collection<String> metadataVersions) {
 
-        String groupId = "gid"
-        String artifactId = "aid"
-        String defaultVersion = "dv"
-        Artifact artifact = new DefaultArtifact(groupId, artifactId, defaultVersion, "compile", "jar", "", null)
+        RepositorySystem repositorySystem = repositorySystem(["central": metadataVersions])
 
-        ArtifactRepository localRepository = mock(ArtifactRepository)
-        List<ArtifactRepository> remoteArtifactRepositories = Collections.emptyList()
+        DefaultLatestVersionService latestVersionService = new DefaultLatestVersionService(repositorySystem)
+        ArtifactVersion result = latestVersionService.getLatestVersion("gid", "aid", "dv", new DefaultRepositorySystemSession(), [repository("central")], new MetricsRegistry())
+        assertThat result.toString(), Matchers.is(expectedVersion)
+    }
 
-        ArtifactMetadataSource artifactMetadataSource = mock(ArtifactMetadataSource)
-        when(artifactMetadataSource.retrieveAvailableVersions(artifact, localRepository, remoteArtifactRepositories)).thenReturn(
-                metadataVersions.stream().map { new DefaultArtifactVersion(it) }.collect(Collectors.toList())
-        )
+    @Test
+    void multipleRepositoriesTest() {
 
-        DefaultLatestVersionService latestVersionService = new DefaultLatestVersionService(artifactMetadataSource)
-        ArtifactVersion result = latestVersionService.getLatestVersion(groupId, artifactId, defaultVersion, localRepository, remoteArtifactRepositories)
-        assertThat result.toString(), Matchers.is(expectedVersion)
+        RepositorySystem repositorySystem = repositorySystem([
+                "central": ["1.0", "1.1"],
+                "mirror": ["1.2", "1.3-SNAPSHOT"]
+        ])
+
+        DefaultLatestVersionService latestVersionService = new DefaultLatestVersionService(repositorySystem)
+        ArtifactVersion result = latestVersionService.getLatestVersion("gid", "aid", "dv", new DefaultRepositorySystemSession(), [repository("central"), repository("mirror")], new MetricsRegistry())
+        assertThat result.toString(), Matchers.is("1.2")
+    }
+
+    @Test(timeOut = 5000L)
+    void slowRepositoryIsSkippedTest() {
+
+        RepositorySystem repositorySystem = repositorySystem([
+                "central": ["1.0", "1.1"],
+                "slow-mirror": ["9.9"]
+        ], ["slow-mirror"])
+
+        DefaultLatestVersionService latestVersionService = new DefaultLatestVersionService(repositorySystem, Duration.ofMillis(200), Duration.ofMillis(500))
+        ArtifactVersion result = latestVersionService.getLatestVersion("gid", "aid", "dv", new DefaultRepositorySystemSession(), [repository("central"), repository("slow-mirror")], new MetricsRegistry())
+        assertThat result.toString(), Matchers.is("1.1")
     }
 
     @DataProvider
@@ -64,4 +82,25 @@ class DefaultLatestVersionServiceTest {
         ]
     }
 
+    private static RemoteRepository repository(String id) {
+        return new RemoteRepository.Builder(id, "default", "https://${id}.example.com/").build()
+    }
+
+    private static RepositorySystem repositorySystem(Map<String, Collection<String>> versionsByRepository, Collection<String> slowRepositories = []) {
+        GenericVersionScheme versionScheme = new GenericVersionScheme()
+        RepositorySystem repositorySystem = mock(RepositorySystem)
+        when(repositorySystem.resolveVersionRange(any(), any(VersionRangeRequest))).thenAnswer {
+            VersionRangeRequest request = it.getArgument(1)
+            VersionRangeResult result = new VersionRangeResult(request)
+            if (!request.repositories.isEmpty()) {
+                String id = request.repositories.get(0).id
+                if (slowRepositories.contains(id)) {
+                    sleep(10_000)
+                }
+                result.setVersions(versionsByRepository.get(id).collect { versionScheme.parseVersion(it) })
+            }
+            return result
+        }
+        return repositorySystem
+    }
 }
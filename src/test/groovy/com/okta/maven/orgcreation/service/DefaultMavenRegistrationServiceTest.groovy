@@ -48,7 +48,7 @@ class DefaultMavenRegistrationServiceTest {
         Prompter prompter = mock(Prompter)
         File propsFile = mock(File)
         DefaultSetupService setupService = mock(DefaultSetupService)
-        PowerMockito.whenNew(DefaultSetupService).withArguments(null).thenReturn(setupService)
+        PowerMockito.whenNew(DefaultSetupService).withAnyArguments().thenReturn(setupService)
 
         def registrationService = spy new DefaultMavenRegistrationService(prompter, propsFile, false, false)
         registrationService.register("first-name", "last-name", "email@example.com", "Example Co.")
@@ -61,7 +61,7 @@ class DefaultMavenRegistrationServiceTest {
         Prompter prompter = mock(Prompter)
         File propsFile = mock(File)
         DefaultSetupService setupService = mock(DefaultSetupService)
-        PowerMockito.whenNew(DefaultSetupService).withArguments(null).thenReturn(setupService)
+        PowerMockito.whenNew(DefaultSetupService).withAnyArguments().thenReturn(setupService)
 
         def registrationService = spy new DefaultMavenRegistrationService(prompter, propsFile, false, false)
         registrationService.verify("test-id", null)
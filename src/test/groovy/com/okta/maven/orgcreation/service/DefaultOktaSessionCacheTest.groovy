@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020-Present Okta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.okta.maven.orgcreation.service
+
+import com.okta.commons.http.HttpException
+import com.okta.maven.orgcreation.common.service.ClientConfigurationException
+import com.okta.maven.orgcreation.common.service.SdkConfigurationService
+import com.okta.sdk.client.Client
+import com.okta.sdk.impl.config.ClientConfiguration
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion
+import org.apache.maven.execution.DefaultMavenExecutionRequest
+import org.apache.maven.execution.ExecutionEvent
+import org.apache.maven.execution.ExecutionListener
+import org.apache.maven.execution.MavenExecutionRequest
+import org.apache.maven.execution.MavenSession
+import org.testng.annotations.Test
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.okta.maven.orgcreation.common.TestUtil.expectException
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.containsString
+import static org.hamcrest.Matchers.is
+import static org.hamcrest.Matchers.not
+import static org.hamcrest.Matchers.sameInstance
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.times
+import static org.mockito.Mockito.verify
+import static org.mockito.Mockito.when
+
+class DefaultOktaSessionCacheTest {
+
+    @Test
+    void configurationIsLoadedOnce() {
+        File configDir = File.createTempDir()
+        SdkConfigurationService sdkConfigurationService = mock(SdkConfigurationService)
+        ClientConfiguration clientConfiguration = mock(ClientConfiguration)
+        when(sdkConfigurationService.loadUnvalidatedConfiguration()).thenReturn(clientConfiguration)
+
+        DefaultOktaSessionCache cache = new DefaultOktaSessionCache(configDir)
+        assertThat cache.getClientConfiguration(sdkConfigurationService), sameInstance(clientConfiguration)
+        assertThat cache.getClientConfiguration(sdkConfigurationService), sameInstance(clientConfiguration)
+        verify(sdkConfigurationService, times(1)).loadUnvalidatedConfiguration()
+
+        // a new config file was written, e.g. by okta:login
+        new File(configDir, "okta.yaml").text = "okta:\n  client:\n    orgUrl: https://okta.example.com\n"
+        cache.getClientConfiguration(sdkConfigurationService)
+        verify(sdkConfigurationService, times(2)).loadUnvalidatedConfiguration()
+    }
+
+    @Test
+    void configurationExceptionIsNotCached() {
+        SdkConfigurationService sdkConfigurationService = mock(SdkConfigurationService)
+        ClientConfiguration clientConfiguration = mock(ClientConfiguration)
+        when(sdkConfigurationService.loadUnvalidatedConfiguration())
+                .thenThrow(new ClientConfigurationException("expected"))
+                .thenReturn(clientConfiguration)
+
+        DefaultOktaSessionCache cache = new DefaultOktaSessionCache(File.createTempDir())
+        expectException(ClientConfigurationException) {
+            cache.getClientConfiguration(sdkConfigurationService)
+        }
+        assertThat cache.getClientConfiguration(sdkConfigurationService), sameInstance(clientConfiguration)
+    }
+
+    @Test
+    void clearedWhenSessionEnds() {
+        ExecutionListener buildLogger = mock(ExecutionListener)
+        MavenExecutionRequest request = new DefaultMavenExecutionRequest().setExecutionListener(buildLogger)
+        MavenSession session = mock(MavenSession)
+        when(session.getExecutionRootDirectory()).thenReturn(File.createTempDir().absolutePath)
+        when(session.getRequest()).thenReturn(request)
+
+        DefaultOktaSessionCache cache = new DefaultOktaSessionCache(session)
+        AtomicInteger resolved = new AtomicInteger()
+        def resolver = { new DefaultArtifactVersion("1.${resolved.incrementAndGet()}") }
+        assertThat cache.getLatestVersion(["gid", "aid"], resolver).toString(), is("1.1")
+        assertThat cache.getLatestVersion(["gid", "aid"], resolver).toString(), is("1.1")
+
+        ExecutionEvent sessionEnded = mock(ExecutionEvent)
+        request.executionListener.sessionEnded(sessionEnded)
+
+        assertThat cache.getLatestVersion(["gid", "aid"], resolver).toString(), is("1.2")
+        // the listener that was already set still gets the events
+        verify(buildLogger).sessionEnded(sessionEnded)
+    }
+
+    @Test
+    void clientIsClosedWhenSessionEnds() {
+        Map<String, String> properties = [
+                "okta.client.orgUrl": "https://okta.example.com",
+                "okta.client.token": "test-api-token"
+        ]
+        Map<String, String> previous = properties.collectEntries { key, value -> [key, System.getProperty(key)] }
+        properties.each { key, value -> System.setProperty(key, value) }
+        try {
+            DefaultOktaSessionCache cache = new DefaultOktaSessionCache(File.createTempDir(), File.createTempDir(), true)
+            Client client = cache.getClient()
+            assertThat cache.getClient(), sameInstance(client)
+
+            cache.close()
+
+            HttpException e = expectException(HttpException) { client.listUsers().iterator().hasNext() }
+            assertThat e.message, containsString("Connection pool shut down")
+            // clients are not kept in the daemon
+            assertThat cache.getClient(), not(sameInstance(client))
+            cache.close()
+        } finally {
+            previous.each { key, value -> value != null ? System.setProperty(key, value) : System.clearProperty(key) }
+        }
+    }
+}